@@ -0,0 +1,78 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.search.SearchBatch;
+import com.unbxd.client.search.SearchClient;
+import com.unbxd.client.search.SearchClientFactory;
+import com.unbxd.client.search.exceptions.SearchException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares a landing page's searches executed one after the other with the same searches run as a {@link SearchBatch},
+ * against a {@link StandInServer} answering after a fixed delay.
+ *
+ * Run with the SDK and its external-libraries on the classpath:
+ * java com.unbxd.client.benchmark.BatchBenchmark [searches] [latencyMillis] [rounds]
+ */
+public class BatchBenchmark {
+
+	public static void main(String[] args) throws IOException, SearchException {
+		int searches = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 50;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+		StandInServer server = new StandInServer(SearchPayloads.searchResponse(12), latencyMillis).start();
+		HttpTransport.getInstance().setProxy("127.0.0.1", server.getPort());
+
+		try {
+			List<SearchClient> clients = new ArrayList<SearchClient>();
+			for(int i = 0; i < searches; i++){
+				clients.add(SearchClientFactory.getSearchClient("demo-site", "demo-key", false)
+						.search("carousel " + i, null)
+						.setPage(1, 12));
+			}
+
+			// Warm up the connection pool and the JIT.
+			sequential(clients, rounds);
+			batch(clients, rounds);
+
+			long sequential = sequential(clients, rounds);
+			long batch = batch(clients, rounds);
+
+			System.out.println(String.format("%d searches, %d ms server latency", searches, latencyMillis));
+			System.out.println(String.format("%-10s %10.1f ms/page", "sequential", sequential / 1e6 / rounds));
+			System.out.println(String.format("%-10s %10.1f ms/page", "batch", batch / 1e6 / rounds));
+		} finally {
+			server.stop();
+		}
+		System.exit(0);
+	}
+
+	private static long sequential(List<SearchClient> clients, int rounds) throws SearchException {
+		long start = System.nanoTime();
+		for(int round = 0; round < rounds; round++){
+			for(SearchClient client : clients){
+				client.execute();
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static long batch(List<SearchClient> clients, int rounds) throws SearchException {
+		long start = System.nanoTime();
+		for(int round = 0; round < rounds; round++){
+			SearchBatch batch = new SearchBatch().setDeadline(10000);
+			for(SearchClient client : clients){
+				batch.add(client);
+			}
+			for(SearchBatch.Result result : batch.execute()){
+				if(!result.isSuccess())
+					throw result.getException();
+			}
+		}
+		return System.nanoTime() - start;
+	}
+}
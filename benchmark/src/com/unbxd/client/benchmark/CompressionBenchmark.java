@@ -0,0 +1,93 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.http.ContentDecoder;
+import com.unbxd.client.http.JsonDecoder;
+import com.unbxd.client.http.StringPool;
+import com.unbxd.client.search.response.SearchResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Time to parse a search page sent as identity, gzip or deflate. Compressed bodies go through {@link ContentDecoder}
+ * straight into the parser and are closed, like the transport does. The bytes on the wire of each encoding are
+ * printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+	@Param({"50", "100"})
+	public int rows;
+
+	@Param({"identity", "gzip", "deflate"})
+	public String encoding;
+
+	private byte[] body;
+	private String contentEncoding;
+	private StringPool pool;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.pool = new StringPool(4096);
+		byte[] identity = SearchPayloads.searchResponse(rows);
+		if(encoding.equals("gzip")){
+			this.body = gzip(identity);
+			this.contentEncoding = "gzip";
+		}else if(encoding.equals("deflate")){
+			this.body = deflate(identity);
+			this.contentEncoding = "deflate";
+		}else{
+			this.body = identity;
+		}
+		System.out.println(String.format("%d rows, %s: %d bytes on the wire, %.1f%% of identity", rows, encoding,
+				body.length, 100.0 * body.length / identity.length));
+	}
+
+	@Benchmark
+	public SearchResponse parse() throws IOException {
+		InputStream content = ContentDecoder.decode(new ByteArrayInputStream(body), contentEncoding);
+		try{
+			return new SearchResponse(JsonDecoder.readMap(content, pool));
+		}finally{
+			ContentDecoder.close(content);
+		}
+	}
+
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		gzip.write(body);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DeflaterOutputStream deflate = new DeflaterOutputStream(out);
+		deflate.write(body);
+		deflate.close();
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,82 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.search.response.Facet;
+import com.unbxd.client.search.response.SearchResponse;
+import com.unbxd.client.search.response.SearchResult;
+import com.unbxd.client.search.response.SearchResults;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a {@link SearchResponse} from decoded JSON and reading it, for the common list screen usage
+ * (the count and the first rows) and for a caller going through every section. Jackson's share is left
+ * out, refer {@link ParseBenchmark} for the whole decoding. Run with -prof gc and compare gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyResponseBenchmark {
+
+	private static final int FIRST_ROWS = 10;
+
+	@Param({"24", "100"})
+	public int rows;
+
+	private Map<String, Object> decoded;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.decoded = new ObjectMapper().readValue(SearchPayloads.searchResponse(rows), Map.class);
+	}
+
+	@Benchmark
+	public void countAndFirstRows(Blackhole blackhole){
+		SearchResponse response = new SearchResponse(decoded);
+		blackhole.consume(response.getTotalResultsCount());
+
+		SearchResults results = response.getResults();
+		for(int i = 0; i < FIRST_ROWS && i < results.getResultsCount(); i++){
+			SearchResult result = results.getAt(i);
+			blackhole.consume(result.getUniqueId());
+			blackhole.consume(result.getAttribute("title"));
+		}
+	}
+
+	@Benchmark
+	public void countOnly(Blackhole blackhole){
+		blackhole.consume(new SearchResponse(decoded).getTotalResultsCount());
+	}
+
+	@Benchmark
+	public void allSections(Blackhole blackhole){
+		SearchResponse response = new SearchResponse(decoded);
+		blackhole.consume(response.getTotalResultsCount());
+		for(SearchResult result : response.getResults().getResults()){
+			blackhole.consume(result.getUniqueId());
+		}
+		for(Facet facet : response.getFacets().getFacets()){
+			blackhole.consume(facet.getEntries());
+		}
+		blackhole.consume(response.getStats().getStats());
+		blackhole.consume(response.getSpellCorrections());
+	}
+}
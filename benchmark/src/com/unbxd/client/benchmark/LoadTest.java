@@ -0,0 +1,317 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.UnbxdConfig;
+import com.unbxd.client.UnbxdContext;
+import com.unbxd.client.autosuggest.AutoSuggestClient;
+import com.unbxd.client.autosuggest.AutoSuggestRequest;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.http.JsonResponseParser;
+import com.unbxd.client.http.LatencyHistogram;
+import com.unbxd.client.http.OperationMetrics;
+import com.unbxd.client.http.RequestInfo;
+import com.unbxd.client.http.RequestMetrics;
+import com.unbxd.client.http.ResponseParser;
+import com.unbxd.client.http.TrafficRecorder;
+import com.unbxd.client.recommendations.RecommendationRequest;
+import com.unbxd.client.recommendations.response.RecommendationResponse;
+import com.unbxd.client.search.SearchClient;
+import com.unbxd.client.search.SearchRequest;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URLEncoder;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the clients of one {@link UnbxdContext} against a {@link MockUnbxdServer} at a target request rate and reports
+ * throughput, latency percentiles per operation, connections and heap growth.
+ *
+ * Requests are issued on a schedule (open loop) and handed to a pool of worker threads, the way {@link com.unbxd.client.RequestManager}
+ * hands them to AsyncTask's pool on a device. AsyncTask can't run on a plain JVM, so workers call the same blocking
+ * execute methods its background threads do. Latencies are measured from the time a request was scheduled, so they
+ * include the time spent waiting for a worker when the pool can't keep up. Run with 1 thread to emulate AsyncTask's
+ * serial executor.
+ *
+ * The traffic of the measured run can be recorded with a {@link TrafficRecorder}, to be replayed by {@link TrafficReplay}.
+ *
+ * Run with the SDK and its external-libraries on the classpath:
+ * java com.unbxd.client.benchmark.LoadTest [requestsPerSecond] [threads] [seconds] [rows] [errorRate] [recordTo]
+ */
+public class LoadTest {
+
+	static final String SITE_KEY = "demo-site";
+	static final String API_KEY = "demo-key";
+
+	private static final String[] QUERIES = {"shirt", "red shirt", "jeans", "slim fit jeans", "sneakers", "white sneakers",
+			"dress", "summer dress", "t-shirt", "polo t-shirt", "heels", "jacket", "denim jacket", "shorts", "kurta"};
+
+	/**
+	 * @param transport
+	 * @return Parser of recommendations taking its strings from the pool of the transport, like the client's
+	 */
+	static ResponseParser<RecommendationResponse> recommendationsParser(HttpTransport transport){
+		return new JsonResponseParser<RecommendationResponse>(transport.getStringPool()) {
+			@Override
+			protected RecommendationResponse create(Map<String, Object> params) {
+				return new RecommendationResponse(params);
+			}
+		};
+	}
+
+	static final ResponseParser<Integer> DRAIN = new ResponseParser<Integer>() {
+		@Override
+		public Integer parse(InputStream content) throws IOException {
+			int length = 0;
+			byte[] buffer = new byte[1024];
+			int n;
+			while((n = content.read(buffer)) != -1){
+				length += n;
+			}
+			return length;
+		}
+	};
+
+	/**
+	 * Kinds of requests issued, with their share of the traffic
+	 */
+	private enum Operation {
+		SEARCH(40),
+		BROWSE(10),
+		AUTOSUGGEST(30),
+		RECOMMENDATIONS(10),
+		TRACKER(10);
+
+		private final int weight;
+
+		Operation(int weight){
+			this.weight = weight;
+		}
+	}
+
+	private final UnbxdContext context;
+	private final SearchClient searchClient;
+	private final AutoSuggestClient autoSuggestClient;
+	private final HttpTransport transport;
+	private final ResponseParser<RecommendationResponse> recommendationsParser;
+	private final LatencyHistogram[] latencies;
+	private final AtomicLong[] failures;
+	private final AtomicLong completed;
+	private final LatencyHistogram queueTimes;
+
+	private LoadTest(UnbxdContext context){
+		this.context = context;
+		this.searchClient = context.getSearchClient();
+		this.autoSuggestClient = context.getAutoSuggestClient();
+		this.transport = context.getTransport();
+		this.recommendationsParser = recommendationsParser(transport);
+
+		this.latencies = new LatencyHistogram[Operation.values().length];
+		this.failures = new AtomicLong[Operation.values().length];
+		for(int i = 0; i < latencies.length; i++){
+			this.latencies[i] = new LatencyHistogram(Integer.MAX_VALUE);
+			this.failures[i] = new AtomicLong();
+		}
+		this.completed = new AtomicLong();
+		this.queueTimes = new LatencyHistogram(Integer.MAX_VALUE);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int rate = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		int rows = args.length > 3 ? Integer.parseInt(args[3]) : 24;
+		double errorRate = args.length > 4 ? Double.parseDouble(args[4]) : 0.01;
+		String recordTo = args.length > 5 ? args[5] : null;
+
+		MockUnbxdServer server = new MockUnbxdServer().start();
+		configure(server, rows, errorRate);
+
+		UnbxdContext context = new UnbxdContext(new UnbxdConfig(SITE_KEY, API_KEY, "secret"));
+		context.getTransport().setProxy("127.0.0.1", server.getPort());
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		try{
+			LoadTest test = new LoadTest(context);
+
+			// Warm up the JIT and the connection pool, then start from a clean heap.
+			test.run(rate, threads, Math.min(5, seconds), new Random(1));
+			test = new LoadTest(context);
+			TrafficRecorder recorder = null;
+			if(recordTo != null){
+				recorder = new TrafficRecorder(new FileOutputStream(recordTo), "load-test");
+				context.getTransport().setEventListener(recorder);
+			}
+			System.gc();
+			long heapBefore = memory.getHeapMemoryUsage().getUsed();
+			int connectionsBefore = server.getConnections();
+
+			long elapsed = test.run(rate, threads, seconds, new Random(2));
+			if(recorder != null){
+				context.getTransport().setEventListener(null);
+				recorder.close();
+			}
+
+			System.gc();
+			long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+			System.out.println(String.format("target %d req/s, %d threads, %d s, %d rows, %.1f%% errors injected",
+					rate, threads, seconds, rows, errorRate * 100));
+			test.report(elapsed);
+			System.out.println(String.format("connections opened %d (%d during warm up), max concurrent requests on the server %d",
+					server.getConnections(), connectionsBefore, server.getMaxInFlight()));
+			System.out.println(String.format("heap after GC %.1f MB -> %.1f MB (%+.1f MB)",
+					heapBefore / 1e6, heapAfter / 1e6, (heapAfter - heapBefore) / 1e6));
+			System.out.println(String.format("string pool hit ratio %.1f%%", 100 * context.getTransport().getStringPool().getHitRatio()));
+		}finally{
+			context.shutdown();
+			server.stop();
+		}
+		System.exit(0);
+	}
+
+	static void configure(MockUnbxdServer server, int rows, double errorRate) throws IOException {
+		server.getBehavior(Endpoint.SEARCH)
+				.setBody(SearchPayloads.searchResponse(rows))
+				.setLatency(MockUnbxdServer.LatencyDistribution.logNormal(40, 0.5))
+				.setErrorRate(errorRate);
+		server.getBehavior(Endpoint.BROWSE)
+				.setBody(SearchPayloads.searchResponse(rows))
+				.setLatency(MockUnbxdServer.LatencyDistribution.logNormal(40, 0.5))
+				.setErrorRate(errorRate);
+		server.getBehavior(Endpoint.AUTOSUGGEST)
+				.setBody(SearchPayloads.autosuggestResponse(12))
+				.setLatency(MockUnbxdServer.LatencyDistribution.logNormal(15, 0.4))
+				.setErrorRate(errorRate);
+		server.getBehavior(Endpoint.RECOMMENDATIONS)
+				.setBody(SearchPayloads.recommendationResponse(rows / 2))
+				.setLatency(MockUnbxdServer.LatencyDistribution.logNormal(30, 0.6))
+				.setErrorRate(errorRate);
+		server.getBehavior(Endpoint.TRACKER)
+				.setLatency(MockUnbxdServer.LatencyDistribution.uniform(2, 10))
+				.setErrorRate(errorRate);
+	}
+
+	/**
+	 * @return Nanoseconds between the first request being scheduled and the last one completing
+	 */
+	private long run(int rate, int threads, int seconds, Random random) throws InterruptedException {
+		ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+		long total = (long) rate * seconds;
+		long start = System.nanoTime();
+
+		for(long i = 0; i < total; i++){
+			long scheduledAt = start + i * interval;
+			long wait = scheduledAt - System.nanoTime();
+			if(wait > 0)
+				LockSupport.parkNanos(wait);
+
+			workers.execute(request(pick(random), random.nextInt(QUERIES.length), scheduledAt));
+		}
+
+		shutdown(workers);
+		return System.nanoTime() - start;
+	}
+
+	private static void shutdown(ExecutorService workers) throws InterruptedException {
+		workers.shutdown();
+		if(!workers.awaitTermination(5, TimeUnit.MINUTES))
+			throw new IllegalStateException("Requests didn't complete in time");
+	}
+
+	private static Operation pick(Random random){
+		int total = 0;
+		for(Operation operation : Operation.values()){
+			total += operation.weight;
+		}
+
+		int n = random.nextInt(total);
+		for(Operation operation : Operation.values()){
+			n -= operation.weight;
+			if(n < 0)
+				return operation;
+		}
+		throw new IllegalStateException();
+	}
+
+	private Runnable request(final Operation operation, final int query, final long scheduledAt){
+		return new Runnable() {
+			@Override
+			public void run() {
+				queueTimes.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduledAt));
+				try{
+					execute(operation, QUERIES[query]);
+				}catch (Exception e){
+					failures[operation.ordinal()].incrementAndGet();
+				}
+				latencies[operation.ordinal()].record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduledAt));
+				completed.incrementAndGet();
+			}
+		};
+	}
+
+	private void execute(Operation operation, String query) throws Exception {
+		switch(operation){
+			case SEARCH:
+				searchClient.execute(SearchRequest.newBuilder().search(query, null).setPage(1, 24).build());
+				break;
+			case BROWSE:
+				searchClient.execute(SearchRequest.newBuilder().browse(String.valueOf(1000 + query.length()), null).setPage(1, 24).build());
+				break;
+			case AUTOSUGGEST:
+				autoSuggestClient.execute(AutoSuggestRequest.newBuilder().autosuggest(query.substring(0, Math.min(3, query.length()))).build());
+				break;
+			case RECOMMENDATIONS:
+				// RecommendationsClient needs an Android Context, go through the transport the way it does.
+				RecommendationRequest request = RecommendationRequest.alsoViewed("SKU" + query.hashCode()).withUid("load-test");
+				transport.execute(new RequestInfo(Endpoint.RECOMMENDATIONS, "recommendations/" + request.getBoxType().getPath()),
+						"http://apac-recommendations.unbxdapi.com/v1.0/" + API_KEY + "/" + SITE_KEY + "/" + request.getCanonicalQuery(),
+						recommendationsParser, null);
+				break;
+			case TRACKER:
+				// Same for UnbxdAnalytics.
+				transport.execute(new RequestInfo(Endpoint.TRACKER, "tracker"),
+						"http://tracker.unbxdapi.com/v2/1p.jpg?q=" + URLEncoder.encode("{\"query\":\"" + query + "\"}", "UTF-8")
+								+ "&UnbxdKey=" + SITE_KEY + "&action=search&uid=load-test&t=" + System.currentTimeMillis(),
+						DRAIN, null);
+				break;
+		}
+	}
+
+	private void report(long elapsed){
+		double seconds = elapsed / 1e9;
+		System.out.println(String.format("completed %d requests in %.1f s, %.1f req/s, queue wait p50 %d ms p99 %d ms",
+				completed.get(), seconds, completed.get() / seconds, queueTimes.getPercentile(0.5), queueTimes.getPercentile(0.99)));
+
+		System.out.println(String.format("%-16s %8s %8s %8s %8s %8s %8s %10s", "operation", "count", "failed", "p50", "p90", "p99", "p99.9", "sdk ttfb50"));
+		for(Operation operation : Operation.values()){
+			LatencyHistogram histogram = latencies[operation.ordinal()];
+			System.out.println(String.format("%-16s %8d %8d %8d %8d %8d %8d %10s", operation.name().toLowerCase(), histogram.getCount(),
+					failures[operation.ordinal()].get(), histogram.getPercentile(0.5), histogram.getPercentile(0.9),
+					histogram.getPercentile(0.99), histogram.getPercentile(0.999), sdkTtfb(operation)));
+		}
+	}
+
+	/**
+	 * @return Median time to first byte of the operation as seen by the transport's metrics, over warm up and run
+	 */
+	private String sdkTtfb(Operation operation){
+		long ttfb = -1;
+		for(OperationMetrics metrics : transport.getMetrics().getOperations().values()){
+			if(metrics.getOperation().startsWith(operation.name().toLowerCase()))
+				ttfb = Math.max(ttfb, metrics.getLatencies(RequestMetrics.Phase.TTFB).getPercentile(0.5));
+		}
+		return ttfb >= 0 ? String.format("%.1f ms", ttfb / 1000.0) : "-";
+	}
+}
@@ -0,0 +1,250 @@
+package com.unbxd.client.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.unbxd.client.http.Endpoint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local server emulating the search, browse, autosuggest, recommendations and tracker endpoints, each with its own
+ * {@link Behavior}: latency distribution, error rate and body.
+ *
+ * Like {@link StandInServer} it is reached as a proxy, and tells the endpoints apart by the host and path of the
+ * URLs the clients build:
+ * transport.setProxy("127.0.0.1", server.getPort())
+ */
+public class MockUnbxdServer {
+
+	private static final byte[] PIXEL = {71, 73, 70, 56, 57, 97, 1, 0, 1, 0, -128, 0, 0, -1, -1, -1, 0, 0, 0, 33, -7, 4,
+			1, 0, 0, 0, 0, 44, 0, 0, 0, 0, 1, 0, 1, 0, 0, 2, 2, 68, 1, 0, 59};
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Map<Endpoint, Behavior> behaviors;
+	private final Map<Endpoint, AtomicLong> requests;
+	private final AtomicLong errors;
+	private final Set<String> connections;
+	private final AtomicInteger inFlight;
+	private final AtomicInteger maxInFlight;
+	private final Random random;
+
+	public MockUnbxdServer() throws IOException {
+		this.behaviors = new EnumMap<Endpoint, Behavior>(Endpoint.class);
+		this.requests = new EnumMap<Endpoint, AtomicLong>(Endpoint.class);
+		for(Endpoint endpoint : Endpoint.values()){
+			this.behaviors.put(endpoint, new Behavior());
+			this.requests.put(endpoint, new AtomicLong());
+		}
+		this.behaviors.get(Endpoint.TRACKER).setBody(PIXEL, "image/gif");
+
+		this.errors = new AtomicLong();
+		this.connections = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		this.inFlight = new AtomicInteger();
+		this.maxInFlight = new AtomicInteger();
+		this.random = new Random();
+
+		this.executor = Executors.newCachedThreadPool();
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+		this.server.setExecutor(executor);
+		this.server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange);
+			}
+		});
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Behavior of the endpoint, to configure. Changes apply to the following requests.
+	 */
+	public Behavior getBehavior(Endpoint endpoint){
+		return behaviors.get(endpoint);
+	}
+
+	private static Endpoint endpointOf(URI uri, String hostHeader){
+		String path = uri.getPath();
+		String host = uri.getHost() != null ? uri.getHost() : hostHeader;
+
+		if(host != null && host.startsWith("tracker."))
+			return Endpoint.TRACKER;
+		if(host != null && host.contains("recommendations"))
+			return Endpoint.RECOMMENDATIONS;
+		if(path.endsWith("/autosuggest"))
+			return Endpoint.AUTOSUGGEST;
+		if(path.endsWith("/browse"))
+			return Endpoint.BROWSE;
+		return Endpoint.SEARCH;
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+		int current = inFlight.incrementAndGet();
+		while(true){
+			int max = maxInFlight.get();
+			if(current <= max || maxInFlight.compareAndSet(max, current))
+				break;
+		}
+		connections.add(exchange.getRemoteAddress().toString());
+
+		try{
+			Endpoint endpoint = endpointOf(exchange.getRequestURI(), exchange.getRequestHeaders().getFirst("Host"));
+			Behavior behavior = behaviors.get(endpoint);
+			requests.get(endpoint).incrementAndGet();
+
+			long latency = behavior.latency.nextMillis(random);
+			if(latency > 0)
+				Thread.sleep(latency);
+
+			if(behavior.errorRate > 0 && random.nextDouble() < behavior.errorRate){
+				errors.incrementAndGet();
+				exchange.sendResponseHeaders(503, -1);
+				exchange.close();
+				return;
+			}
+
+			byte[] body = behavior.body;
+			exchange.getResponseHeaders().set("Content-Type", behavior.contentType);
+			exchange.sendResponseHeaders(200, body.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(body);
+			out.close();
+		}catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			exchange.close();
+		}finally{
+			inFlight.decrementAndGet();
+		}
+	}
+
+	public MockUnbxdServer start(){
+		server.start();
+		return this;
+	}
+
+	public void stop(){
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	public int getPort(){
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return Number of requests received for the endpoint so far
+	 */
+	public long getRequests(Endpoint endpoint){
+		return requests.get(endpoint).get();
+	}
+
+	/**
+	 * @return Number of requests answered with an injected error
+	 */
+	public long getErrors(){
+		return errors.get();
+	}
+
+	/**
+	 * @return Number of distinct connections requests were received on
+	 */
+	public int getConnections(){
+		return connections.size();
+	}
+
+	/**
+	 * @return Highest number of requests being answered at the same time
+	 */
+	public int getMaxInFlight(){
+		return maxInFlight.get();
+	}
+
+	/**
+	 * How an endpoint answers. Empty JSON object, right away and without errors by default.
+	 */
+	public static class Behavior {
+
+		private volatile LatencyDistribution latency = LatencyDistribution.fixed(0);
+		private volatile double errorRate;
+		private volatile byte[] body = "{}".getBytes();
+		private volatile String contentType = "application/json";
+
+		public Behavior setLatency(LatencyDistribution latency){
+			this.latency = latency;
+			return this;
+		}
+
+		/**
+		 * @param errorRate Share of the requests answered with 503, between 0 and 1
+		 * @return this
+		 */
+		public Behavior setErrorRate(double errorRate){
+			this.errorRate = errorRate;
+			return this;
+		}
+
+		public Behavior setBody(byte[] body){
+			return this.setBody(body, "application/json");
+		}
+
+		public Behavior setBody(byte[] body, String contentType){
+			this.body = body;
+			this.contentType = contentType;
+			return this;
+		}
+	}
+
+	/**
+	 * Distribution server side latencies are drawn from.
+	 */
+	public static abstract class LatencyDistribution {
+
+		public abstract long nextMillis(Random random);
+
+		public static LatencyDistribution fixed(final long millis){
+			return new LatencyDistribution() {
+				@Override
+				public long nextMillis(Random random) {
+					return millis;
+				}
+			};
+		}
+
+		public static LatencyDistribution uniform(final long minMillis, final long maxMillis){
+			return new LatencyDistribution() {
+				@Override
+				public long nextMillis(Random random) {
+					return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+				}
+			};
+		}
+
+		/**
+		 * Long tailed latencies, like the ones of real services
+		 * @param medianMillis
+		 * @param sigma Spread of the tail. 0.5 puts p99 around 3 times the median
+		 */
+		public static LatencyDistribution logNormal(final long medianMillis, final double sigma){
+			return new LatencyDistribution() {
+				@Override
+				public long nextMillis(Random random) {
+					return Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+				}
+			};
+		}
+	}
+}
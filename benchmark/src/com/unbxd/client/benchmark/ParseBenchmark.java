@@ -0,0 +1,75 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.autosuggest.response.AutoSuggestResponse;
+import com.unbxd.client.http.JsonDecoder;
+import com.unbxd.client.http.StringPool;
+import com.unbxd.client.recommendations.response.RecommendationResponse;
+import com.unbxd.client.search.response.SearchResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding response bodies into response objects the way the clients' parsers do, for pages of several sizes.
+ * Run with -prof gc to see the allocation rate next to the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+	@Param({"10", "50", "200"})
+	public int rows;
+
+	/**
+	 * shared decodes with a {@link StringPool} kept across operations, like the one of a transport, none without
+	 * pooling
+	 */
+	@Param({"shared", "none"})
+	public String strings;
+
+	private StringPool pool;
+
+	private byte[] search;
+	private byte[] autosuggest;
+	private byte[] recommendations;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.pool = strings.equals("shared") ? new StringPool(4096) : null;
+		this.search = SearchPayloads.searchResponse(rows);
+		this.autosuggest = SearchPayloads.autosuggestResponse(rows);
+		this.recommendations = SearchPayloads.recommendationResponse(rows);
+	}
+
+	@Benchmark
+	public SearchResponse searchResponse() throws IOException {
+		return new SearchResponse(JsonDecoder.readMap(new ByteArrayInputStream(search), pool));
+	}
+
+	@Benchmark
+	public AutoSuggestResponse autosuggestResponse() throws IOException {
+		return new AutoSuggestResponse(JsonDecoder.readMap(new ByteArrayInputStream(autosuggest), pool));
+	}
+
+	@Benchmark
+	public RecommendationResponse recommendationResponse() throws IOException {
+		return new RecommendationResponse(JsonDecoder.readMap(new ByteArrayInputStream(recommendations), pool));
+	}
+}
@@ -0,0 +1,130 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.UnbxdConfig;
+import com.unbxd.client.UnbxdContext;
+import com.unbxd.client.autosuggest.AutoSuggestClient;
+import com.unbxd.client.autosuggest.AutoSuggestPrefetcher;
+import com.unbxd.client.autosuggest.AutoSuggestRequest;
+import com.unbxd.client.autosuggest.SuggestionIndex;
+import com.unbxd.client.autosuggest.SuggestionSearchPrefetcher;
+import com.unbxd.client.autosuggest.response.AutoSuggestResponse;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.http.LatencyHistogram;
+import com.unbxd.client.search.SearchClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Types popular queries a character at a time against a {@link MockUnbxdServer}, with and without an
+ * {@link AutoSuggestPrefetcher} and a {@link SuggestionSearchPrefetcher}, and reports how many keystrokes were
+ * answered from the response cache, the keystroke latency, the speculative requests made, hit and wasted, and the
+ * latency of tapping the top suggestion.
+ *
+ * The index knows the popular queries, the user types one of them, mostly among the most popular, pausing between
+ * keystrokes, then taps the top suggestion. The server suggests the query being typed.
+ */
+public class PrefetchSimulation {
+
+	private static final String[] WORDS = {"shirt", "shoes", "shorts", "jeans", "jacket", "dress", "denim", "sneakers",
+			"sandals", "kurta", "saree", "polo", "hoodie", "red", "blue", "black", "white", "slim", "casual", "formal"};
+
+	public static void main(String[] args) throws Exception {
+		int queries = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+		int pauseMillis = args.length > 1 ? Integer.parseInt(args[1]) : 150;
+
+		MockUnbxdServer server = new MockUnbxdServer().start();
+		server.getBehavior(Endpoint.AUTOSUGGEST)
+				.setLatency(MockUnbxdServer.LatencyDistribution.logNormal(40, 0.4));
+		server.getBehavior(Endpoint.SEARCH)
+				.setBody(SearchPayloads.searchResponse(24))
+				.setLatency(MockUnbxdServer.LatencyDistribution.logNormal(80, 0.4));
+
+		Random random = new Random(3);
+		List<String> popular = new ArrayList<String>();
+		for(int i = 0; i < 200; i++){
+			popular.add(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]);
+		}
+
+		try{
+			run(server, popular, queries, pauseMillis, false);
+			run(server, popular, queries, pauseMillis, true);
+		}finally{
+			server.stop();
+		}
+		System.exit(0);
+	}
+
+	private static void run(MockUnbxdServer server, List<String> popular, int queries, int pauseMillis,
+	                        boolean prefetch) throws Exception {
+		UnbxdContext context = new UnbxdContext(new UnbxdConfig("demo-site", "demo-key", "secret"));
+		HttpTransport transport = context.getTransport();
+		transport.setProxy("127.0.0.1", server.getPort());
+		transport.setCacheTtl(Endpoint.AUTOSUGGEST, 60000);
+		transport.setCacheTtl(Endpoint.SEARCH, 60000);
+
+		SuggestionIndex index = new SuggestionIndex(1000);
+		index.learnPopularQueries(popular);
+		AutoSuggestPrefetcher prefetcher = new AutoSuggestPrefetcher(index)
+				.setIdleMillis(pauseMillis / 3)
+				.setBudget(queries * 6, 60000);
+		SearchClient searchClient = context.getSearchClient();
+		SuggestionSearchPrefetcher searchPrefetcher = new SuggestionSearchPrefetcher(searchClient)
+				.setDelayMillis(pauseMillis / 3);
+		AutoSuggestClient client = context.getAutoSuggestClient().setSuggestionIndex(index);
+		if(prefetch)
+			client.setPrefetcher(prefetcher).setSearchPrefetcher(searchPrefetcher);
+
+		LatencyHistogram latencies = new LatencyHistogram(Integer.MAX_VALUE);
+		LatencyHistogram taps = new LatencyHistogram(Integer.MAX_VALUE);
+		long serverBefore = server.getRequests(Endpoint.AUTOSUGGEST);
+		int keystrokes = 0;
+		int cached = 0;
+		Random random = new Random(5);
+		try{
+			for(int q = 0; q < queries; q++){
+				// Skewed towards the first, most popular queries
+				String query = popular.get((int) (popular.size() * Math.pow(random.nextDouble(), 3)));
+				server.getBehavior(Endpoint.AUTOSUGGEST).setBody(SearchPayloads.keywordSuggestions(Arrays.asList(query)));
+				AutoSuggestResponse response = null;
+				for(int i = 1; i <= query.length(); i++){
+					long hits = transport.getResponseCache().getHits();
+					long start = System.nanoTime();
+					response = client.execute(AutoSuggestRequest.newBuilder().autosuggest(query.substring(0, i)).build());
+					latencies.record((System.nanoTime() - start) / 1000000);
+					keystrokes++;
+					if(transport.getResponseCache().getHits() > hits)
+						cached++;
+					Thread.sleep(pauseMillis / 2 + random.nextInt(pauseMillis));
+				}
+
+				String top = SuggestionSearchPrefetcher.getTopSuggestion(response);
+				if(top != null){
+					long start = System.nanoTime();
+					searchClient.execute(searchPrefetcher.getRequest(top));
+					taps.record((System.nanoTime() - start) / 1000000);
+				}
+			}
+		}finally{
+			context.shutdown();
+		}
+
+		System.out.println(String.format("%s: %d keystrokes, %.1f%% from the cache, latency p50 %d ms p90 %d ms, %d requests to the server",
+				prefetch ? "prefetch" : "no prefetch", keystrokes, 100.0 * cached / keystrokes,
+				latencies.getPercentile(0.5), latencies.getPercentile(0.9),
+				server.getRequests(Endpoint.AUTOSUGGEST) - serverBefore));
+		System.out.println(String.format("  tap on the top suggestion p50 %d ms p90 %d ms",
+				taps.getPercentile(0.5), taps.getPercentile(0.9)));
+		if(prefetch){
+			System.out.println(String.format("  speculative requests %d, hits %d (%.1f%%), wasted %d, denied %d, cancelled %d",
+					prefetcher.getIssued(), prefetcher.getHits(), 100 * prefetcher.getHitRatio(),
+					prefetcher.getWasted(), prefetcher.getDenied(), prefetcher.getCancelled()));
+			System.out.println(String.format("  searches prefetched %d, cancelled %d, failed %d, background requests refused %d",
+					searchPrefetcher.getIssued(), searchPrefetcher.getCancelled(), searchPrefetcher.getFailed(),
+					transport.getBackgroundRejected()));
+		}
+	}
+}
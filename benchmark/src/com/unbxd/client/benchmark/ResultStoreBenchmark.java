@@ -0,0 +1,128 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.http.JsonDecoder;
+import com.unbxd.client.http.StringPool;
+import com.unbxd.client.search.response.SearchResponse;
+import com.unbxd.client.search.response.SearchResult;
+import com.unbxd.client.search.store.ResultStore;
+import com.unbxd.client.search.store.StoredResults;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost of caching many browse pages as decoded responses and in a {@link ResultStore}: heap held, off-heap bytes,
+ * time of a full collection with the cache live, and time to read a few attributes of every cached product.
+ *
+ * Run with the SDK and its external-libraries on the classpath:
+ * java com.unbxd.client.benchmark.ResultStoreBenchmark [pages] [rows]
+ */
+public class ResultStoreBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int pages = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int rows = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+
+		List<byte[]> bodies = new ArrayList<byte[]>();
+		for(int i = 0; i < 8; i++){
+			bodies.add(SearchPayloads.searchResponse(rows + i));
+		}
+
+		System.out.println(String.format("%d pages of %d rows", pages, rows));
+		System.out.println(String.format("%-9s %10s %13s %13s %10s", "cache", "heap (MB)", "off-heap (MB)", "full gc (ms)", "read (ms)"));
+		// Twice, the first round warms up the JIT
+		for(int round = 0; round < 2; round++){
+			responses(bodies, pages, round == 1);
+			store(bodies, pages, round == 1);
+		}
+	}
+
+	private static void responses(List<byte[]> bodies, int pages, boolean print) throws IOException {
+		long heapBefore = collect();
+		List<SearchResponse> cache = new ArrayList<SearchResponse>();
+		for(int i = 0; i < pages; i++){
+			cache.add(decode(bodies.get(i % bodies.size())));
+		}
+		long heapAfter = usedHeap();
+		long gcMillis = timeCollection();
+
+		long start = System.nanoTime();
+		long checksum = 0;
+		for(SearchResponse response : cache){
+			checksum += read(response.getResults().getResults());
+		}
+		report(print, "responses", heapAfter - heapBefore, 0, gcMillis, System.nanoTime() - start, checksum);
+	}
+
+	private static void store(List<byte[]> bodies, int pages, boolean print) throws IOException {
+		long heapBefore = collect();
+		ResultStore store = new ResultStore(1 << 20, Long.MAX_VALUE);
+		for(int i = 0; i < pages; i++){
+			store.put("page-" + i, decode(bodies.get(i % bodies.size())).getResults());
+		}
+		long heapAfter = usedHeap();
+		long gcMillis = timeCollection();
+
+		long start = System.nanoTime();
+		long checksum = 0;
+		for(int i = 0; i < pages; i++){
+			checksum += read(store.get("page-" + i));
+		}
+		report(print, "store", heapAfter - heapBefore, store.getAllocatedBytes(), gcMillis, System.nanoTime() - start, checksum);
+	}
+
+	private static final StringPool POOL = new StringPool(4096);
+
+	private static SearchResponse decode(byte[] body) throws IOException {
+		return new SearchResponse(JsonDecoder.readMap(new ByteArrayInputStream(body), POOL));
+	}
+
+	private static long read(List<SearchResult> results){
+		long checksum = 0;
+		for(SearchResult result : results){
+			checksum += result.getUniqueId().length();
+			checksum += ((Number) result.getAttribute("price")).longValue();
+		}
+		return checksum;
+	}
+
+	private static void report(boolean print, String name, long heap, long offHeap, long gcMillis, long readNanos, long checksum){
+		if(checksum == 0)
+			throw new IllegalStateException("Nothing was read");
+		if(print)
+			System.out.println(String.format("%-9s %10.2f %13.1f %13d %10.1f", name, heap / 1e6, offHeap / 1e6, gcMillis, readNanos / 1e6));
+	}
+
+	/**
+	 * @return Heap used after a full collection
+	 */
+	private static long collect(){
+		System.gc();
+		return usedHeap();
+	}
+
+	private static long usedHeap(){
+		System.gc();
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	private static long timeCollection(){
+		long before = collectionMillis();
+		System.gc();
+		return collectionMillis() - before;
+	}
+
+	private static long collectionMillis(){
+		long millis = 0;
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+			millis += collector.getCollectionTime();
+		}
+		return millis;
+	}
+}
@@ -0,0 +1,119 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.http.JsonDecoder;
+import com.unbxd.client.http.StringPool;
+import com.unbxd.client.schema.ProductRecord;
+import com.unbxd.client.schema.ProductSchema;
+import com.unbxd.client.search.response.SearchResponse;
+import com.unbxd.client.search.response.SearchResult;
+import com.unbxd.client.search.response.SearchResults;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the fields a list screen shows from every product of a search response, through the attribute maps
+ * with casts and through a {@link ProductSchema}. The decode benchmarks include Jackson, the read benchmarks
+ * start from an already built response.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchemaBenchmark {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private static final ProductSchema.Builder BUILDER = ProductSchema.newBuilder();
+	private static final ProductSchema.StringField TITLE = BUILDER.addString("title");
+	private static final ProductSchema.StringField BRAND = BUILDER.addString("brand", true);
+	private static final ProductSchema.DoubleField PRICE = BUILDER.addDouble("price");
+	private static final ProductSchema.DoubleField SELLING_PRICE = BUILDER.addDouble("sellingPrice");
+	private static final ProductSchema.IntField DISCOUNT = BUILDER.addInt("discount");
+	private static final ProductSchema.BooleanField AVAILABILITY = BUILDER.addBoolean("availability");
+	private static final ProductSchema.StringField IMAGE_URL = BUILDER.addString("imageUrl");
+	private static final ProductSchema SCHEMA = BUILDER.build();
+
+	@Param({"24", "100"})
+	public int rows;
+
+	private byte[] payload;
+	private SearchResponse response;
+	private StringPool pool;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.pool = new StringPool(4096);
+		this.payload = SearchPayloads.searchResponse(rows);
+		this.response = new SearchResponse(MAPPER.readValue(payload, Map.class));
+	}
+
+	@Benchmark
+	public void readAttributes(Blackhole blackhole){
+		readAttributes(response, blackhole);
+	}
+
+	@Benchmark
+	public void readBound(Blackhole blackhole){
+		SearchResults results = response.getResults();
+		for(int i = 0; i < results.getResultsCount(); i++){
+			readRecord(results.getAt(i).bind(SCHEMA), blackhole);
+		}
+	}
+
+	@Benchmark
+	public void decodeAttributes(Blackhole blackhole) throws IOException {
+		readAttributes(new SearchResponse(JsonDecoder.readMap(new ByteArrayInputStream(payload), pool)), blackhole);
+	}
+
+	@Benchmark
+	public void decodeRecords(Blackhole blackhole) throws IOException {
+		List<ProductRecord> records = SCHEMA.readProducts(new ByteArrayInputStream(payload));
+		for(int i = 0; i < records.size(); i++){
+			readRecord(records.get(i), blackhole);
+		}
+	}
+
+	private static void readAttributes(SearchResponse response, Blackhole blackhole){
+		SearchResults results = response.getResults();
+		for(int i = 0; i < results.getResultsCount(); i++){
+			SearchResult result = results.getAt(i);
+			blackhole.consume((String) result.getAttribute("title"));
+			blackhole.consume((String) result.getAttribute("brand"));
+			blackhole.consume(((Number) result.getAttribute("price")).doubleValue());
+			blackhole.consume(((Number) result.getAttribute("sellingPrice")).doubleValue());
+			blackhole.consume(((Number) result.getAttribute("discount")).intValue());
+			blackhole.consume(Boolean.parseBoolean((String) result.getAttribute("availability")));
+			blackhole.consume((String) result.getAttribute("imageUrl"));
+		}
+	}
+
+	private static void readRecord(ProductRecord record, Blackhole blackhole){
+		blackhole.consume(TITLE.get(record));
+		blackhole.consume(BRAND.get(record));
+		blackhole.consume(PRICE.get(record));
+		blackhole.consume(SELLING_PRICE.get(record));
+		blackhole.consume(DISCOUNT.get(record));
+		blackhole.consume(AVAILABILITY.get(record));
+		blackhole.consume(IMAGE_URL.get(record));
+	}
+}
@@ -0,0 +1,236 @@
+package com.unbxd.client.benchmark;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates search API responses shaped like the ones of a typical fashion catalog:
+ * products with a dozen attributes, a few term facets with many values, a range facet and stats.
+ * Autosuggest and recommendations responses are generated from the same catalog.
+ */
+public class SearchPayloads {
+
+	private static final String[] BRANDS = {"Nike", "Adidas", "Puma", "Reebok", "Levis", "Wrangler", "Lee", "Pepe Jeans",
+			"United Colors of Benetton", "Tommy Hilfiger", "Calvin Klein", "Jack & Jones", "Vero Moda", "Only", "Mango"};
+	private static final String[] COLORS = {"Black", "White", "Blue", "Navy Blue", "Red", "Maroon", "Green", "Olive",
+			"Grey", "Charcoal", "Beige", "Brown", "Pink", "Yellow", "Mustard", "Multi"};
+	private static final String[] CATEGORIES = {"Men > Clothing > T-Shirts", "Men > Clothing > Shirts", "Men > Clothing > Jeans",
+			"Women > Clothing > Tops", "Women > Clothing > Dresses", "Women > Footwear > Heels", "Men > Footwear > Sneakers"};
+	private static final String[] SIZES = {"XS", "S", "M", "L", "XL", "XXL", "28", "30", "32", "34", "36"};
+
+	private SearchPayloads(){}
+
+	/**
+	 * @param rows Number of products in the page
+	 * @return JSON body of a search response
+	 */
+	public static byte[] searchResponse(int rows) throws IOException {
+		Random random = new Random(rows);
+
+		Map<String, Object> response = new LinkedHashMap<String, Object>();
+
+		Map<String, Object> metaData = new LinkedHashMap<String, Object>();
+		metaData.put("status", 0);
+		metaData.put("queryTime", 14);
+		response.put("searchMetaData", metaData);
+
+		List<Map<String, Object>> products = new ArrayList<Map<String, Object>>();
+		for(int i = 0; i < rows; i++){
+			products.add(product(random, i));
+		}
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("numberOfProducts", 4000 + rows);
+		result.put("start", 0);
+		result.put("products", products);
+		response.put("response", result);
+
+		Map<String, Object> facets = new LinkedHashMap<String, Object>();
+		facets.put("brand_fq", termFacet(random, BRANDS));
+		facets.put("color_fq", termFacet(random, COLORS));
+		facets.put("category_fq", termFacet(random, CATEGORIES));
+		facets.put("size_fq", termFacet(random, SIZES));
+		facets.put("price_fq", rangeFacet(random));
+		response.put("facets", facets);
+
+		Map<String, Object> priceStat = new LinkedHashMap<String, Object>();
+		priceStat.put("min", 199.0);
+		priceStat.put("max", 8999.0);
+		priceStat.put("count", 4000 + rows);
+		priceStat.put("sum", 4512345.0);
+		priceStat.put("mean", 1128.08);
+		Map<String, Object> stats = new LinkedHashMap<String, Object>();
+		stats.put("price", priceStat);
+		response.put("stats", stats);
+
+		Map<String, Object> suggestion = new HashMap<String, Object>();
+		suggestion.put("suggestion", "shirt");
+		suggestion.put("frequency", 120);
+		response.put("didYouMean", Arrays.asList(suggestion));
+
+		return new ObjectMapper().writeValueAsBytes(response);
+	}
+
+	/**
+	 * @param suggestions Number of suggestions, spread over the autosuggest sections
+	 * @return JSON body of an autosuggest response
+	 */
+	public static byte[] autosuggestResponse(int suggestions) throws IOException {
+		Random random = new Random(suggestions);
+
+		Map<String, Object> response = new LinkedHashMap<String, Object>();
+
+		Map<String, Object> metaData = new LinkedHashMap<String, Object>();
+		metaData.put("status", 0);
+		metaData.put("queryTime", 3);
+		response.put("searchMetaData", metaData);
+
+		String[] doctypes = {"IN_FIELD", "KEYWORD_SUGGESTION", "TOP_SEARCH_QUERIES", "POPULAR_PRODUCTS"};
+		List<Map<String, Object>> products = new ArrayList<Map<String, Object>>();
+		for(int i = 0; i < suggestions; i++){
+			String doctype = doctypes[i % doctypes.length];
+			String brand = BRANDS[random.nextInt(BRANDS.length)];
+			String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+			String type = category.substring(category.lastIndexOf('>') + 2).toLowerCase();
+
+			Map<String, Object> suggestion = new LinkedHashMap<String, Object>();
+			suggestion.put("doctype", doctype);
+			suggestion.put("autosuggest", brand.toLowerCase() + " " + type);
+			if(doctype.equals("IN_FIELD")){
+				suggestion.put("brand_in", Arrays.asList(brand));
+				suggestion.put("category_in", Arrays.asList(category.split(" > ")));
+				suggestion.put("unbxdAutosuggestSrc", "brand");
+			}else if(doctype.equals("POPULAR_PRODUCTS")){
+				suggestion.putAll(product(random, i));
+			}else{
+				suggestion.put("unbxdAutosuggestScore", random.nextInt(1000));
+			}
+			products.add(suggestion);
+		}
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("numberOfProducts", suggestions);
+		result.put("start", 0);
+		result.put("products", products);
+		response.put("response", result);
+
+		return new ObjectMapper().writeValueAsBytes(response);
+	}
+
+	/**
+	 * @param keywords Keyword suggestions, best first
+	 * @return JSON body of an autosuggest response holding only the keyword suggestions
+	 */
+	public static byte[] keywordSuggestions(List<String> keywords) throws IOException {
+		Map<String, Object> response = new LinkedHashMap<String, Object>();
+
+		Map<String, Object> metaData = new LinkedHashMap<String, Object>();
+		metaData.put("status", 0);
+		metaData.put("queryTime", 2);
+		response.put("searchMetaData", metaData);
+
+		List<Map<String, Object>> products = new ArrayList<Map<String, Object>>();
+		for(int i = 0; i < keywords.size(); i++){
+			Map<String, Object> suggestion = new LinkedHashMap<String, Object>();
+			suggestion.put("doctype", "KEYWORD_SUGGESTION");
+			suggestion.put("autosuggest", keywords.get(i));
+			suggestion.put("unbxdAutosuggestScore", 1000 - i);
+			products.add(suggestion);
+		}
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("numberOfProducts", keywords.size());
+		result.put("start", 0);
+		result.put("products", products);
+		response.put("response", result);
+
+		return new ObjectMapper().writeValueAsBytes(response);
+	}
+
+	/**
+	 * @param rows Number of recommended products
+	 * @return JSON body of a recommendations response
+	 */
+	public static byte[] recommendationResponse(int rows) throws IOException {
+		Random random = new Random(rows);
+
+		Map<String, Object> response = new LinkedHashMap<String, Object>();
+		response.put("status", 200);
+		response.put("queryTime", 9);
+		response.put("count", rows);
+		response.put("boxType", "ALSO_VIEWED");
+
+		List<Map<String, Object>> products = new ArrayList<Map<String, Object>>();
+		for(int i = 0; i < rows; i++){
+			products.add(product(random, i));
+		}
+		response.put("Recommendations", products);
+
+		return new ObjectMapper().writeValueAsBytes(response);
+	}
+
+	private static Map<String, Object> product(Random random, int i){
+		String brand = BRANDS[random.nextInt(BRANDS.length)];
+		String color = COLORS[random.nextInt(COLORS.length)];
+		String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+
+		Map<String, Object> product = new LinkedHashMap<String, Object>();
+		product.put("uniqueId", "SKU" + (100000 + random.nextInt(900000)) + "-" + i);
+		product.put("title", brand + " " + color + " " + category.substring(category.lastIndexOf('>') + 2) + " " + i);
+		product.put("brand", brand);
+		product.put("color", Arrays.asList(color));
+		product.put("category", Arrays.asList(category.split(" > ")));
+		product.put("size", Arrays.asList(SIZES[random.nextInt(6)], SIZES[random.nextInt(6)], SIZES[6 + random.nextInt(5)]));
+		product.put("price", 199 + random.nextInt(8800));
+		product.put("sellingPrice", 149 + random.nextInt(8000));
+		product.put("discount", random.nextInt(70));
+		product.put("rating", Math.round(random.nextDouble() * 50) / 10.0);
+		product.put("availability", random.nextBoolean() ? "true" : "false");
+		product.put("imageUrl", "https://images.example.com/catalog/" + brand.toLowerCase().replace(' ', '-') + "/" + i + "/1080x1440.jpg");
+		product.put("productUrl", "https://www.example.com/p/" + brand.toLowerCase().replace(' ', '-') + "-" + i);
+		product.put("description", "Regular fit " + color.toLowerCase() + " " + category.substring(category.lastIndexOf('>') + 2).toLowerCase()
+				+ " from " + brand + ". Made with soft cotton for all day comfort. Machine wash.");
+		return product;
+	}
+
+	private static Map<String, Object> termFacet(Random random, String[] terms){
+		List<Object> values = new ArrayList<Object>();
+		for(String term : terms){
+			values.add(term);
+			values.add(1 + random.nextInt(900));
+		}
+
+		Map<String, Object> facet = new LinkedHashMap<String, Object>();
+		facet.put("type", "facet_fields");
+		facet.put("displayName", "");
+		facet.put("position", 0);
+		facet.put("values", values);
+		return facet;
+	}
+
+	private static Map<String, Object> rangeFacet(Random random){
+		List<Object> counts = new ArrayList<Object>();
+		for(int from = 0; from < 10000; from += 500){
+			counts.add(from + ".0");
+			counts.add(random.nextInt(400));
+		}
+
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		values.put("counts", counts);
+		values.put("gap", 500);
+		values.put("start", 0);
+		values.put("end", 10000);
+
+		Map<String, Object> facet = new LinkedHashMap<String, Object>();
+		facet.put("type", "facet_ranges");
+		facet.put("displayName", "Price");
+		facet.put("position", 1);
+		facet.put("values", values);
+		return facet;
+	}
+}
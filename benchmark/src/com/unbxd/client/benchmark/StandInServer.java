@@ -0,0 +1,92 @@
+package com.unbxd.client.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local server standing in for the Unbxd APIs. Every request is answered with the same search page after a fixed delay.
+ *
+ * Point the transport at it as a proxy, the clients keep building their usual URLs:
+ * HttpTransport.getInstance().setProxy("127.0.0.1", server.getPort())
+ */
+public class StandInServer {
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final AtomicInteger requests;
+
+	private volatile byte[] body;
+	private volatile long latencyMillis;
+
+	public StandInServer(byte[] body, long latencyMillis) throws IOException {
+		this.body = body;
+		this.latencyMillis = latencyMillis;
+		this.requests = new AtomicInteger();
+
+		this.executor = Executors.newCachedThreadPool();
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.server.setExecutor(executor);
+		this.server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange);
+			}
+		});
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		try {
+			if(latencyMillis > 0)
+				Thread.sleep(latencyMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		byte[] body = this.body;
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, body.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(body);
+		out.close();
+	}
+
+	public StandInServer start(){
+		server.start();
+		return this;
+	}
+
+	public void stop(){
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	public int getPort(){
+		return server.getAddress().getPort();
+	}
+
+	public StandInServer setBody(byte[] body){
+		this.body = body;
+		return this;
+	}
+
+	public StandInServer setLatencyMillis(long latencyMillis){
+		this.latencyMillis = latencyMillis;
+		return this;
+	}
+
+	/**
+	 * @return Number of requests received so far
+	 */
+	public int getRequests(){
+		return requests.get();
+	}
+}
@@ -0,0 +1,59 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.http.JsonDecoder;
+import com.unbxd.client.http.StringPool;
+import com.unbxd.client.search.response.SearchResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Heap held by a cache of decoded search pages, with the strings of the responses taken from a {@link StringPool}
+ * and without. Every page is decoded anew like the responses of separate requests, so only the pool makes them
+ * share strings.
+ *
+ * Run with the SDK and its external-libraries on the classpath:
+ * java com.unbxd.client.benchmark.StringPoolBenchmark [pages] [rows]
+ */
+public class StringPoolBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int pages = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int rows = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+
+		List<byte[]> bodies = new ArrayList<byte[]>();
+		for(int i = 0; i < 8; i++){
+			bodies.add(SearchPayloads.searchResponse(rows + i));
+		}
+
+		System.out.println(String.format("%d pages of %d rows", pages, rows));
+		System.out.println(String.format("%-8s %12s %10s", "strings", "heap (MB)", "hit ratio"));
+		report("none", null, bodies, pages);
+		report("pooled", new StringPool(4096), bodies, pages);
+	}
+
+	private static void report(String name, StringPool pool, List<byte[]> bodies, int pages) throws IOException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		long before = memory.getHeapMemoryUsage().getUsed();
+
+		List<SearchResponse> cache = new ArrayList<SearchResponse>();
+		for(int i = 0; i < pages; i++){
+			SearchResponse response = new SearchResponse(JsonDecoder.readMap(new ByteArrayInputStream(bodies.get(i % bodies.size())), pool));
+			response.getResults().getResults();
+			cache.add(response);
+		}
+
+		System.gc();
+		long after = memory.getHeapMemoryUsage().getUsed();
+		System.out.println(String.format("%-8s %12.1f %9.1f%%", name, (after - before) / 1e6,
+				pool != null ? 100 * pool.getHitRatio() : 0.0));
+
+		if(cache.isEmpty())
+			throw new IllegalStateException("Nothing was decoded");
+	}
+}
@@ -0,0 +1,81 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.autosuggest.SuggestionIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local suggestion lookups for prefixes of one and more words, and learning a list of popular queries, on an index
+ * holding a few thousand suggestions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SuggestionIndexBenchmark {
+
+	private static final String[] WORDS = {"shirt", "shirts", "shoes", "shorts", "jeans", "jacket", "dress", "denim",
+			"sneakers", "sandals", "kurta", "saree", "top", "tshirt", "polo", "hoodie", "red", "blue", "black", "white",
+			"slim", "fit", "casual", "formal", "men", "women", "kids", "cotton", "linen", "leather"};
+
+	@Param({"1000", "5000"})
+	public int suggestions;
+
+	private SuggestionIndex index;
+	private List<String> popular;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(7);
+		this.popular = new ArrayList<String>();
+		for(int i = 0; i < suggestions; i++){
+			int words = 1 + random.nextInt(3);
+			StringBuilder sb = new StringBuilder();
+			for(int w = 0; w < words; w++){
+				sb.append(w > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			this.popular.add(sb.append(' ').append(i).toString());
+		}
+		this.index = new SuggestionIndex(suggestions * 2);
+		this.index.learnPopularQueries(popular);
+	}
+
+	@Benchmark
+	public Object suggestOneChar() {
+		return index.suggest("s", 8);
+	}
+
+	@Benchmark
+	public Object suggestThreeChars() {
+		return index.suggest("shi", 8);
+	}
+
+	@Benchmark
+	public Object suggestTwoWords() {
+		return index.suggest("red sh", 8);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Object learnPopularQueries() {
+		index.learnPopularQueries(popular.subList(0, 100));
+		return index;
+	}
+}
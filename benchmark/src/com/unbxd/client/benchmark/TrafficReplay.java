@@ -0,0 +1,207 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.UnbxdConfig;
+import com.unbxd.client.UnbxdContext;
+import com.unbxd.client.autosuggest.response.AutoSuggestResponse;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.http.JsonResponseParser;
+import com.unbxd.client.http.LatencyHistogram;
+import com.unbxd.client.http.OperationMetrics;
+import com.unbxd.client.http.RequestInfo;
+import com.unbxd.client.http.ResponseParser;
+import com.unbxd.client.http.TrafficLogReader;
+import com.unbxd.client.http.TrafficRecord;
+import com.unbxd.client.recommendations.response.RecommendationResponse;
+import com.unbxd.client.search.response.SearchResponse;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a traffic log written by {@link com.unbxd.client.http.TrafficRecorder} against a {@link MockUnbxdServer},
+ * at the recorded pace or faster, and compares cache hit rates and latencies with the recording. Configure the
+ * transport of the replay in {@link #configure(HttpTransport)} to measure the effect of a transport feature.
+ *
+ * Logs hold canonical queries rather than the client calls which built them, so requests are replayed through
+ * {@link HttpTransport#execute(RequestInfo, String, ResponseParser, com.unbxd.client.http.Deadline)} with the
+ * operation and parsers of the clients, on the base URLs of the replay's site.
+ *
+ * Run with the SDK and its external-libraries on the classpath:
+ * java com.unbxd.client.benchmark.TrafficReplay log [speed] [threads] [rows]
+ * A speed of 1 replays in real time, 10 ten times faster, 0 as fast as possible.
+ */
+public class TrafficReplay {
+
+	private static final String SEARCH_BASE_URL = "http://search.unbxdapi.com/" + LoadTest.API_KEY + "/" + LoadTest.SITE_KEY + "/";
+	private static final String RECOMMENDATIONS_BASE_URL = "http://apac-recommendations.unbxdapi.com/v1.0/" + LoadTest.API_KEY + "/" + LoadTest.SITE_KEY + "/";
+	private static final String TRACKER_BASE_URL = "http://tracker.unbxdapi.com/";
+
+	private final HttpTransport transport;
+	private final ResponseParser<SearchResponse> searchParser;
+	private final ResponseParser<AutoSuggestResponse> autosuggestParser;
+	private final ResponseParser<RecommendationResponse> recommendationsParser;
+	private final Map<String, LatencyHistogram> recorded;
+	private final Map<String, LatencyHistogram> replayed;
+	private final Map<String, long[]> recordedHits;
+
+	private TrafficReplay(HttpTransport transport) {
+		this.transport = transport;
+		this.searchParser = new JsonResponseParser<SearchResponse>(transport.getStringPool()) {
+			@Override
+			protected SearchResponse create(Map<String, Object> params) {
+				return new SearchResponse(params);
+			}
+		};
+		this.autosuggestParser = new JsonResponseParser<AutoSuggestResponse>(transport.getStringPool()) {
+			@Override
+			protected AutoSuggestResponse create(Map<String, Object> params) {
+				return new AutoSuggestResponse(params);
+			}
+		};
+		this.recommendationsParser = LoadTest.recommendationsParser(transport);
+		this.recorded = new ConcurrentHashMap<String, LatencyHistogram>();
+		this.replayed = new ConcurrentHashMap<String, LatencyHistogram>();
+		this.recordedHits = new ConcurrentHashMap<String, long[]>();
+	}
+
+	public static void main(String[] args) throws Exception {
+		String log = args[0];
+		double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		int rows = args.length > 3 ? Integer.parseInt(args[3]) : 24;
+
+		TrafficLogReader reader = new TrafficLogReader(new FileInputStream(log));
+		List<TrafficRecord> records;
+		try{
+			records = reader.readAll();
+		}finally{
+			reader.close();
+		}
+
+		MockUnbxdServer server = new MockUnbxdServer().start();
+		LoadTest.configure(server, rows, 0);
+
+		UnbxdContext context = new UnbxdContext(new UnbxdConfig(LoadTest.SITE_KEY, LoadTest.API_KEY, "secret"));
+		context.getTransport().setProxy("127.0.0.1", server.getPort());
+		configure(context.getTransport());
+
+		try{
+			TrafficReplay replay = new TrafficReplay(context.getTransport());
+			long elapsed = replay.run(records, speed, threads);
+
+			System.out.println(String.format("replayed %d requests at %sx in %.1f s", records.size(),
+					speed > 0 ? String.valueOf(speed) : "max", elapsed / 1e9));
+			replay.report();
+		}finally{
+			context.shutdown();
+			server.stop();
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Transport configuration under test
+	 */
+	private static void configure(HttpTransport transport){
+		transport.setCacheTtl(Endpoint.SEARCH, 60000);
+		transport.setCacheTtl(Endpoint.AUTOSUGGEST, 60000);
+	}
+
+	private long run(List<TrafficRecord> records, double speed, int threads) throws InterruptedException {
+		ThreadPoolExecutor workers = (ThreadPoolExecutor) Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+
+		for(TrafficRecord record : records){
+			histogram(recorded, record.getOperation()).record(record.getDurationMicros() / 1000);
+			long[] hits = recordedHits.get(record.getOperation());
+			if(hits == null){
+				hits = new long[2];
+				recordedHits.put(record.getOperation(), hits);
+			}
+			hits[record.isCacheHit() ? 0 : 1]++;
+
+			long scheduledAt = start + (speed > 0 ? (long) (record.getOffsetMicros() * 1000 / speed) : 0);
+			long wait = scheduledAt - System.nanoTime();
+			if(wait > 0)
+				LockSupport.parkNanos(wait);
+
+			workers.execute(request(record, speed > 0 ? scheduledAt : System.nanoTime()));
+		}
+
+		workers.shutdown();
+		if(!workers.awaitTermination(5, TimeUnit.MINUTES))
+			throw new IllegalStateException("Requests didn't complete in time");
+		return System.nanoTime() - start;
+	}
+
+	private Runnable request(final TrafficRecord record, final long scheduledAt){
+		return new Runnable() {
+			@Override
+			public void run() {
+				try{
+					execute(record);
+				}catch (IOException e){
+					// Accounted for in the transport's metrics
+				}
+				histogram(replayed, record.getOperation()).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduledAt));
+			}
+		};
+	}
+
+	private void execute(TrafficRecord record) throws IOException {
+		RequestInfo info = new RequestInfo(record.getEndpoint(), record.getOperation());
+		switch(record.getEndpoint()){
+			case SEARCH:
+			case BROWSE:
+				transport.execute(info, SEARCH_BASE_URL + record.getQuery(), searchParser, null);
+				break;
+			case AUTOSUGGEST:
+				transport.execute(info, SEARCH_BASE_URL + record.getQuery(), autosuggestParser, null);
+				break;
+			case RECOMMENDATIONS:
+				transport.execute(info, RECOMMENDATIONS_BASE_URL + record.getQuery(), recommendationsParser, null);
+				break;
+			case TRACKER:
+				transport.execute(info, TRACKER_BASE_URL + record.getQuery() + "&UnbxdKey=" + LoadTest.SITE_KEY + "&t=" + System.nanoTime(), LoadTest.DRAIN, null);
+				break;
+		}
+	}
+
+	private static LatencyHistogram histogram(Map<String, LatencyHistogram> histograms, String operation){
+		LatencyHistogram histogram = histograms.get(operation);
+		if(histogram == null){
+			synchronized (histograms){
+				histogram = histograms.get(operation);
+				if(histogram == null){
+					histogram = new LatencyHistogram(Integer.MAX_VALUE);
+					histograms.put(operation, histogram);
+				}
+			}
+		}
+		return histogram;
+	}
+
+	private void report(){
+		System.out.println(String.format("%-36s %7s %15s %15s %15s", "operation", "count", "cache hits", "p50 ms", "p99 ms"));
+		System.out.println(String.format("%-36s %7s %15s %15s %15s", "", "", "rec -> replay", "rec -> replay", "rec -> replay"));
+		for(String operation : new TreeMap<String, LatencyHistogram>(recorded).keySet()){
+			LatencyHistogram before = recorded.get(operation);
+			LatencyHistogram after = histogram(replayed, operation);
+			long[] hits = recordedHits.get(operation);
+			OperationMetrics metrics = transport.getMetrics().getOperation(operation);
+
+			System.out.println(String.format("%-36s %7d %6.1f%% %6.1f%% %7d %7d %7d %7d", operation, before.getCount(),
+					100.0 * hits[0] / (hits[0] + hits[1]), metrics != null ? 100 * metrics.getCacheHitRatio() : 0.0,
+					before.getPercentile(0.5), after.getPercentile(0.5), before.getPercentile(0.99), after.getPercentile(0.99)));
+		}
+	}
+}
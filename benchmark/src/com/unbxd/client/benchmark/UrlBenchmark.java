@@ -0,0 +1,118 @@
+package com.unbxd.client.benchmark;
+
+import com.unbxd.client.UnbxdConfig;
+import com.unbxd.client.UnbxdContext;
+import com.unbxd.client.autosuggest.AutoSuggestClient;
+import com.unbxd.client.autosuggest.AutoSuggestRequest;
+import com.unbxd.client.autosuggest.exceptions.AutoSuggestException;
+import com.unbxd.client.recommendations.RecommendationRequest;
+import com.unbxd.client.recommendations.exceptions.RecommendationsException;
+import com.unbxd.client.search.SearchClient;
+import com.unbxd.client.search.SearchRequest;
+import com.unbxd.client.search.exceptions.SearchException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building requests and their URLs, from the builder to the string handed to the transport.
+ *
+ * RecommendationsClient needs an Android Context to be created, so recommendations are measured up to
+ * the canonical query of the request, which is all of the URL but the fixed base.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlBenchmark {
+
+	private UnbxdContext context;
+	private SearchClient searchClient;
+	private AutoSuggestClient autoSuggestClient;
+	private Map<String, String> queryParams;
+
+	@Setup
+	public void setUp(){
+		this.context = new UnbxdContext(new UnbxdConfig("demo-site", "0123456789abcdef", "secret"));
+		this.searchClient = context.getSearchClient();
+		this.autoSuggestClient = context.getAutoSuggestClient();
+
+		this.queryParams = new HashMap<String, String>();
+		this.queryParams.put("fields", "uniqueId,title,price,imageUrl");
+		this.queryParams.put("facet.multiselect", "true");
+	}
+
+	@TearDown
+	public void tearDown(){
+		this.context.shutdown();
+	}
+
+	@Benchmark
+	public String searchUrl() throws SearchException {
+		SearchRequest request = SearchRequest.newBuilder()
+				.search("red shirt", queryParams)
+				.addFilter("brand_fq", "Nike", "Puma")
+				.addFilter("color_fq", "Red")
+				.addSort("price", SearchClient.SortDir.ASC)
+				.setPage(2, 24)
+				.build();
+		return searchClient.getUrl(request);
+	}
+
+	@Benchmark
+	public String bucketUrl() throws SearchException {
+		SearchRequest request = SearchRequest.newBuilder()
+				.bucket("shirt", "category", queryParams)
+				.addFilter("size_fq", "M", "L")
+				.build();
+		return searchClient.getUrl(request);
+	}
+
+	@Benchmark
+	public String browseUrl() throws SearchException {
+		SearchRequest request = SearchRequest.newBuilder()
+				.browse(Arrays.asList("1001", "1002"), queryParams)
+				.addSort("rating")
+				.setPage(1, 24)
+				.build();
+		return searchClient.getUrl(request);
+	}
+
+	@Benchmark
+	public String autosuggestUrl() throws AutoSuggestException {
+		AutoSuggestRequest request = AutoSuggestRequest.newBuilder()
+				.autosuggest("red sh")
+				.setInFieldsCount(3)
+				.setKeywordSuggestionsCount(5)
+				.setTopQueriesCount(5)
+				.setPopularProductsCount(4)
+				.build();
+		return autoSuggestClient.getUrl(request);
+	}
+
+	@Benchmark
+	public String recommendationsQuery() throws RecommendationsException {
+		return RecommendationRequest.alsoViewed("SKU123456-7").withUid("uid-8f14e45f").getCanonicalQuery();
+	}
+
+	@Benchmark
+	public String categoryTopSellersQuery() throws RecommendationsException {
+		return RecommendationRequest.categoryTopSellers("Men > Clothing > Shirts", "10.0.0.1").withUid("uid-8f14e45f").getCanonicalQuery();
+	}
+}
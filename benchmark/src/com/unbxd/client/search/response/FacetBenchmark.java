@@ -0,0 +1,53 @@
+package com.unbxd.client.search.response;
+
+import com.unbxd.client.benchmark.SearchPayloads;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building {@link Facets} and {@link Stats} from already decoded JSON, i.e. the share of
+ * {@link SearchResponse} construction which isn't Jackson's. Lives in the package of the response
+ * classes to reach their constructors.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FacetBenchmark {
+
+	private Map<String, Object> facets;
+	private Map<String, Object> stats;
+
+	@Setup
+	public void setUp() throws IOException {
+		Map<String, Object> response = new ObjectMapper().readValue(SearchPayloads.searchResponse(10), Map.class);
+		this.facets = (Map<String, Object>) response.get("facets");
+		this.stats = (Map<String, Object>) response.get("stats");
+	}
+
+	@Benchmark
+	public Facets facets(){
+		return new Facets(facets);
+	}
+
+	@Benchmark
+	public Stats stats(){
+		return new Stats(stats);
+	}
+}
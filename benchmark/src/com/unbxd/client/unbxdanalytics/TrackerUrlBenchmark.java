@@ -0,0 +1,42 @@
+package com.unbxd.client.unbxdanalytics;
+
+import com.unbxd.client.unbxdanalytics.exception.UnbxdAnalyticsException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the tracker URL of an event. Lives in the package of {@link UnbxdAnalytics}, whose instances need an
+ * Android Context, to reach the URL building on its own.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackerUrlBenchmark {
+
+	private final String uid = "uid-8f14e45f-ceea-467f-a8f3";
+	private final String searchBeacon = "{\"query\":\"red shirt\",\"visit_type\":\"repeat\"}";
+	private final String clickBeacon = "{\"pid\":\"SKU123456-7\",\"query\":\"red shirt\",\"visit_type\":\"repeat\"}";
+
+	@Benchmark
+	public String searchEvent() throws UnbxdAnalyticsException {
+		return UnbxdAnalytics.getTrackerUrl(true, "demo-site", "0123456789abcdef", uid, "search", searchBeacon);
+	}
+
+	@Benchmark
+	public String clickEvent() throws UnbxdAnalyticsException {
+		return UnbxdAnalytics.getTrackerUrl(true, "demo-site", "0123456789abcdef", uid, "click", clickBeacon);
+	}
+}
@@ -3,12 +3,13 @@
  */
 package com.unbxd.client;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.lang.ref.WeakReference;
 
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
+import com.unbxd.client.http.Deadline;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.EventListener;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.http.RequestInfo;
 
 import android.R.integer;
 import android.content.Context;
@@ -16,8 +17,6 @@ import android.os.AsyncTask;
 import android.widget.ImageView;
 import android.os.AsyncTask;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpStatus;
 import android.util.Log;
 
 
@@ -40,10 +39,15 @@ public class RequestManager {
 	}
 
 
-	private void setAsyncTask(String url,String requestType,Context context,AsyncResponse delegate){
-		AsyncTrackerFire asyncTrackerFire = new AsyncTrackerFire(context);
+	private void setAsyncTask(HttpTransport transport,String url,RequestInfo info,Deadline deadline,Context context,AsyncResponse delegate){
+		EventListener eventListener = transport.getEventListener();
+		eventListener.urlBuilt(info, url, info.getCreatedNanos());
+		info.markEnqueued();
+		eventListener.enqueued(info, info.getEnqueuedNanos());
+
+		AsyncTrackerFire asyncTrackerFire = new AsyncTrackerFire(transport, context, info, deadline);
 		asyncTrackerFire.setDelegate(delegate);
-		asyncTrackerFire.execute(new String[]{url,requestType});
+		asyncTrackerFire.execute(new String[]{url});
 
 	}
 
@@ -52,7 +56,45 @@ public class RequestManager {
 	 * 
 	 */
 	public static void getResponse(String requestType,String url,Context context,AsyncResponse delegate){
-		getInstance(url,context,delegate).setAsyncTask(url, requestType,context, delegate);
+		getResponse("tracker".equals(requestType) ? Endpoint.TRACKER : Endpoint.SEARCH, url, context, delegate);
+
+	}
+
+	/**
+	 * Method to be called for asynchronous http requests to an endpoint.
+	 * 
+	 */
+	public static void getResponse(Endpoint endpoint,String url,Context context,AsyncResponse delegate){
+		getResponse(endpoint, url, null, context, delegate);
+
+	}
+
+	/**
+	 * Method to be called for asynchronous http requests to an endpoint which have to complete by a deadline.
+	 * Time spent waiting for a background thread counts against the deadline.
+	 * 
+	 */
+	public static void getResponse(Endpoint endpoint,String url,Deadline deadline,Context context,AsyncResponse delegate){
+		getResponse(HttpTransport.getInstance(), endpoint, url, deadline, context, delegate);
+
+	}
+
+	/**
+	 * Method to be called for asynchronous http requests going through a given transport.
+	 * 
+	 */
+	public static void getResponse(HttpTransport transport,Endpoint endpoint,String url,Deadline deadline,Context context,AsyncResponse delegate){
+		getResponse(transport, RequestInfo.of(endpoint), url, deadline, context, delegate);
+
+	}
+
+	/**
+	 * Method to be called for asynchronous http requests going through a given transport, accounted for as an operation.
+	 * Time spent waiting for a background thread is reported in the request's metrics.
+	 * 
+	 */
+	public static void getResponse(HttpTransport transport,RequestInfo info,String url,Deadline deadline,Context context,AsyncResponse delegate){
+		getInstance(url,context,delegate).setAsyncTask(transport, url, info, deadline, context, delegate);
 
 	}
 
@@ -65,12 +107,18 @@ public class RequestManager {
 	private class AsyncTrackerFire extends AsyncTask<String, Void, String>{
 		/* Making this class private so that it doesn't get exposed in the sdk*/
 		private WeakReference<Context> weakContext;
+		private HttpTransport transport;
+		private RequestInfo info;
+		private Deadline deadline;
 		public AsyncResponse delegate = null;
 		private String errors = null;
 
 
-		public AsyncTrackerFire(Context context){
+		public AsyncTrackerFire(HttpTransport transport, Context context, RequestInfo info, Deadline deadline){
 			weakContext = new WeakReference<Context>(context);
+			this.transport = transport;
+			this.info = info;
+			this.deadline = deadline;
 
 		}
 
@@ -89,38 +137,7 @@ public class RequestManager {
 			String responseString=null;
 			try{
 				String url = params[0];
-				String requestType = params[1];
-				DefaultHttpClient client = new DefaultHttpClient();
-				HttpGet httpGet = new HttpGet(url);
-				HttpResponse response = client.execute(httpGet);				
-				if(response.getStatusLine().getStatusCode()!=HttpStatus.SC_OK){
-					StringBuffer sb = new StringBuffer();
-					BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-					String line = "";
-					while ((line = rd.readLine()) != null) {
-						sb.append(line);
-					}
-
-					responseString = sb.toString();
-					this.errors = responseString;
-
-				}
-				else{
-					if(requestType.equals("tracker")){
-						this.errors = null;
-						StringBuffer sb = new StringBuffer();
-						BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-						String line = "";
-						while ((line = rd.readLine()) != null) {
-							sb.append(line);
-						}
-
-						responseString = sb.toString();
-
-
-					}
-				}
-
+				responseString = transport.execute(info, url, HttpTransport.STRING_PARSER, deadline);
 
 			} catch(Exception e){
 				responseString = e.getMessage();
@@ -141,6 +158,7 @@ public class RequestManager {
 				else {
 					this.delegate.processErrors(response);
 				}
+				transport.getEventListener().delivered(info, System.nanoTime());
 
 			}
 
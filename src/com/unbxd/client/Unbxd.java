@@ -1,14 +1,9 @@
 package com.unbxd.client;
 
-import android.R.string;
-
 import com.unbxd.client.autosuggest.AutoSuggestClient;
-import com.unbxd.client.autosuggest.AutoSuggestClientFactory;
+import com.unbxd.client.http.HttpTransport;
 import com.unbxd.client.recommendations.RecommendationsClient;
-import com.unbxd.client.recommendations.RecommendationsClientFactory;
 import com.unbxd.client.search.SearchClient;
-import com.unbxd.client.search.SearchClientFactory;
-import com.unbxd.client.unbxdanalytics.UnbxdAnalyticsFactory;
 import com.unbxd.client.unbxdanalytics.UnbxdAnalytics;
 
 import android.content.Context;
@@ -22,15 +17,13 @@ import android.content.Context;
  * http://unbxd.com/docs/
  *
  * Class to configure and retrieve clients.
+ *
+ * Holds a default {@link UnbxdContext} over the shared {@link HttpTransport}, for apps talking to a single site.
+ * Apps and services talking to several sites should create one {@link UnbxdContext} per site instead.
  */
 public class Unbxd {
 
-	private static boolean _configured = false;
-
-	private static String siteKey;
-	private static String apiKey;
-	private static String secretKey;
-	private static boolean secure = false;
+	private static volatile UnbxdContext defaultContext;
 
 	private Unbxd(){}
 
@@ -43,11 +36,7 @@ public class Unbxd {
 	 * @param secretKey API key for calling Feed APIs
 	 */
 	public static void configure(String siteKey, String apiKey, String secretKey){
-		Unbxd.siteKey = siteKey;
-		Unbxd.apiKey = apiKey;
-		Unbxd.secretKey = secretKey;
-
-		_configured = true;
+		Unbxd.configure(siteKey, apiKey, secretKey, false);
 	}
 
 	/**
@@ -60,8 +49,27 @@ public class Unbxd {
 	 * @param secure True to use HTTPS while making REST API calls
 	 */
 	public static void configure(String siteKey, String apiKey, String secretKey, boolean secure){
-		Unbxd.configure(siteKey, apiKey, secretKey);
-		Unbxd.secure = secure;
+		Unbxd.configure(new UnbxdConfig(siteKey, apiKey, secretKey, secure));
+	}
+
+	/**
+	 * Configure Unbxd Client. This method should be called while initializing you application.
+	 *
+	 * @param config
+	 */
+	public static void configure(UnbxdConfig config){
+		defaultContext = new UnbxdContext(config, HttpTransport.getInstance());
+	}
+
+	/**
+	 * @return Context configured with {@link #configure(UnbxdConfig)}
+	 * @throws ConfigException
+	 */
+	public static UnbxdContext getDefaultContext() throws ConfigException {
+		UnbxdContext context = defaultContext;
+		if(context == null)
+			throw new ConfigException("Please configure first with Unbxd.configure()");
+		return context;
 	}
 
 	/**
@@ -70,9 +78,7 @@ public class Unbxd {
 	 * @throws ConfigException
 	 */
 	public static SearchClient getSearchClient() throws ConfigException {
-		if(!_configured)
-			throw new ConfigException("Please configure first with Unbxd.configure()");
-		return SearchClientFactory.getSearchClient(siteKey, apiKey, secure);
+		return getDefaultContext().getSearchClient();
 	}
 
 	/**
@@ -82,36 +88,28 @@ public class Unbxd {
 	 */
 
 	public static AutoSuggestClient getAutoSuggestClient() throws ConfigException {
-		if(!_configured)
-			throw new ConfigException("Please configure first with Unbxd.configure()");
-		return AutoSuggestClientFactory.getAutoSuggestClient(siteKey, apiKey, secure);
+		return getDefaultContext().getAutoSuggestClient();
 	}
 
 	/**
 	 * Should return a new Recommendations Client
+	 * @param context
 	 * @return {@link RecommendationsClient}
 	 * @throws ConfigException
 	 */
-	public static RecommendationsClient getRecommendationsClient() throws ConfigException {
-		if(!_configured)
-			throw new ConfigException("Please configure first with Unbxd.configure()");
-		return RecommendationsClientFactory.getRecommendationsClient(siteKey, apiKey, secure);
+	public static RecommendationsClient getRecommendationsClient(Context context) throws ConfigException {
+		return getDefaultContext().getRecommendationsClient(context);
 	}
 
 	/**
 	 * 
 	 * Should return a new UnbxdAnalytics Client
-	 * @return {@link UnbxdAnalyticsClient}
+	 * @return {@link UnbxdAnalytics}
 	 * @throws ConfigException
 	 */
 	public static UnbxdAnalytics getUnbxdAnalyticsClient(Context context) throws ConfigException {
-		if(!_configured)
-			throw new ConfigException("Please configure first with Unbxd.configure()");
-		return UnbxdAnalyticsFactory.getUnbxdAanalytics(context, siteKey, apiKey, secure);
-
-
+		return getDefaultContext().getUnbxdAnalyticsClient(context);
 	}
 
 
 }
-
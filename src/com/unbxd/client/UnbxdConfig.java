@@ -0,0 +1,51 @@
+package com.unbxd.client;
+
+/**
+ * Configuration of one site created on the Unbxd Platform.
+ * If you don't know the configuration details please get in touch with support@unbxd.com
+ */
+public final class UnbxdConfig {
+
+	private final String siteKey;
+	private final String apiKey;
+	private final String secretKey;
+	private final boolean secure;
+
+	/**
+	 * @param siteKey The Unique Identifier for Site created on Unbxd Platform
+	 * @param apiKey API key for calling read APIs
+	 * @param secretKey API key for calling Feed APIs
+	 */
+	public UnbxdConfig(String siteKey, String apiKey, String secretKey){
+		this(siteKey, apiKey, secretKey, false);
+	}
+
+	/**
+	 * @param siteKey The Unique Identifier for Site created on Unbxd Platform
+	 * @param apiKey API key for calling read APIs
+	 * @param secretKey API key for calling Feed APIs
+	 * @param secure True to use HTTPS while making REST API calls
+	 */
+	public UnbxdConfig(String siteKey, String apiKey, String secretKey, boolean secure){
+		this.siteKey = siteKey;
+		this.apiKey = apiKey;
+		this.secretKey = secretKey;
+		this.secure = secure;
+	}
+
+	public String getSiteKey(){
+		return siteKey;
+	}
+
+	public String getApiKey(){
+		return apiKey;
+	}
+
+	public String getSecretKey(){
+		return secretKey;
+	}
+
+	public boolean isSecure(){
+		return secure;
+	}
+}
@@ -0,0 +1,99 @@
+package com.unbxd.client;
+
+import android.content.Context;
+
+import com.unbxd.client.autosuggest.AutoSuggestClient;
+import com.unbxd.client.autosuggest.AutoSuggestClientFactory;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.recommendations.RecommendationsClient;
+import com.unbxd.client.recommendations.RecommendationsClientFactory;
+import com.unbxd.client.search.SearchClient;
+import com.unbxd.client.search.SearchClientFactory;
+import com.unbxd.client.unbxdanalytics.UnbxdAnalytics;
+import com.unbxd.client.unbxdanalytics.UnbxdAnalyticsFactory;
+
+/**
+ * Clients of one site, isolated from the other sites of the process.
+ *
+ * Every context owns its {@link HttpTransport}: connection pool, response cache, retry budget, circuit breakers
+ * and latency statistics are not shared with other contexts, so a busy or failing site doesn't slow the others down.
+ * Call {@link #shutdown()} once the site isn't needed anymore.
+ */
+public class UnbxdContext {
+
+	private final UnbxdConfig config;
+	private final HttpTransport transport;
+
+	/**
+	 * Creates a context with its own transport
+	 * @param config
+	 */
+	public UnbxdContext(UnbxdConfig config){
+		this(config, new HttpTransport());
+	}
+
+	/**
+	 * Creates a context over an existing transport, which may be shared with other contexts
+	 * @param config
+	 * @param transport
+	 */
+	public UnbxdContext(UnbxdConfig config, HttpTransport transport){
+		this.config = config;
+		this.transport = transport;
+	}
+
+	/**
+	 * @return Configuration of the site
+	 */
+	public UnbxdConfig getConfig(){
+		return config;
+	}
+
+	/**
+	 * @return Transport of this context, for tuning retries, timeouts, caching, etc.
+	 */
+	public HttpTransport getTransport(){
+		return transport;
+	}
+
+	/**
+	 * Should return a new Search Client
+	 * @return {@link SearchClient}
+	 */
+	public SearchClient getSearchClient(){
+		return SearchClientFactory.getSearchClient(config.getSiteKey(), config.getApiKey(), config.isSecure(), transport);
+	}
+
+	/**
+	 * Should return a new Autosuggest Client
+	 * @return {@link AutoSuggestClient}
+	 */
+	public AutoSuggestClient getAutoSuggestClient(){
+		return AutoSuggestClientFactory.getAutoSuggestClient(config.getSiteKey(), config.getApiKey(), config.isSecure(), transport);
+	}
+
+	/**
+	 * Should return a new Recommendations Client
+	 * @param context
+	 * @return {@link RecommendationsClient}
+	 */
+	public RecommendationsClient getRecommendationsClient(Context context){
+		return RecommendationsClientFactory.getRecommendationsClient(context, config.getSiteKey(), config.getApiKey(), config.isSecure(), transport);
+	}
+
+	/**
+	 * Should return a new UnbxdAnalytics Client
+	 * @param context
+	 * @return {@link UnbxdAnalytics}
+	 */
+	public UnbxdAnalytics getUnbxdAnalyticsClient(Context context){
+		return UnbxdAnalyticsFactory.getUnbxdAanalytics(context, config.getSiteKey(), config.getApiKey(), config.isSecure(), transport);
+	}
+
+	/**
+	 * Releases the connections and threads of the transport. Clients of this context can't be used afterwards.
+	 */
+	public void shutdown(){
+		transport.shutdown();
+	}
+}
@@ -6,21 +6,20 @@ import com.unbxd.client.autosuggest.exceptions.AutoSuggestException;
 import com.unbxd.client.autosuggest.response.AutoSuggestResponse;
 import com.unbxd.client.AsyncResponse;
 import com.unbxd.client.RequestManager;
+import com.unbxd.client.http.Deadline;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpStatusException;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.http.JsonResponseParser;
+import com.unbxd.client.http.RequestInfo;
+import com.unbxd.client.http.ResponseParser;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
-import org.codehaus.jackson.map.ObjectMapper;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
 import java.util.Map;
 
 /**
@@ -30,37 +29,46 @@ import java.util.Map;
  * Time: 5:32 PM
  *
  * Client class for calling AutoSuggest APIs
+ *
+ * {@link #execute(AutoSuggestRequest)} is thread safe, so one client can serve concurrent {@link AutoSuggestRequest}s.
+ * The builder style methods below configure a single call on the client itself and must not be used from several threads.
  */
 public class AutoSuggestClient {
 
 	private static final Logger LOG = Logger.getLogger(AutoSuggestClient.class);
 
-	private static final String __encoding = "UTF-8";
+	private final String siteKey;
+	private final String apiKey;
+	private final boolean secure;
+	private final String baseUrl;
+	private final HttpTransport transport;
+	private final ResponseParser<AutoSuggestResponse> parser;
 
-	private String siteKey;
-	private String apiKey;
-	private boolean secure;
+	private final AutoSuggestRequest.Builder builder;
 
-	private String query;
-	private int inFieldsCount;
-	private int popularProductsCount;
-	private int keywordSuggestionsCount;
-	private int topQueriesCount;
+	private volatile SuggestionIndex suggestionIndex;
+	private volatile AutoSuggestPrefetcher prefetcher;
+	private volatile SuggestionSearchPrefetcher searchPrefetcher;
 
 
 	protected AutoSuggestClient(String siteKey, String apiKey, boolean secure) {
+		this(siteKey, apiKey, secure, HttpTransport.getInstance());
+	}
+
+	protected AutoSuggestClient(String siteKey, String apiKey, boolean secure, HttpTransport transport) {
+		this.transport = transport;
 		this.siteKey = siteKey;
 		this.apiKey = apiKey;
 		this.secure = secure;
+		this.baseUrl = (secure ? "https://" : "http://") + "search.unbxdapi.com/" + apiKey + "/" + siteKey + "/";
+		this.parser = new JsonResponseParser<AutoSuggestResponse>(transport.getStringPool()) {
+			@Override
+			protected AutoSuggestResponse create(Map<String, Object> params) {
+				return new AutoSuggestResponse(params);
+			}
+		};
 
-		this.inFieldsCount = -1;
-		this.popularProductsCount = -1;
-		this.keywordSuggestionsCount = -1;
-		this.topQueriesCount = -1;
-	}
-
-	private String getAutoSuggestUrl(){
-		return (secure ? "https://" : "http://") + "search.unbxdapi.com/" + apiKey + "/" + siteKey +"/autosuggest?wt=json";
+		this.builder = AutoSuggestRequest.newBuilder();
 	}
 
 	/**
@@ -69,7 +77,7 @@ public class AutoSuggestClient {
 	 * @return this
 	 */
 	public AutoSuggestClient autosuggest(String query){
-		this.query = query;
+		this.builder.autosuggest(query);
 
 		return this;
 	}
@@ -80,7 +88,7 @@ public class AutoSuggestClient {
 	 * @return this
 	 */
 	public AutoSuggestClient setInFieldsCount(int inFieldsCount) {
-		this.inFieldsCount = inFieldsCount;
+		this.builder.setInFieldsCount(inFieldsCount);
 
 		return this;
 	}
@@ -91,7 +99,7 @@ public class AutoSuggestClient {
 	 * @return this
 	 */
 	public AutoSuggestClient setPopularProductsCount(int popularProductsCount) {
-		this.popularProductsCount = popularProductsCount;
+		this.builder.setPopularProductsCount(popularProductsCount);
 
 		return this;
 	}
@@ -102,7 +110,7 @@ public class AutoSuggestClient {
 	 * @return this
 	 */
 	public AutoSuggestClient setKeywordSuggestionsCount(int keywordSuggestionsCount) {
-		this.keywordSuggestionsCount = keywordSuggestionsCount;
+		this.builder.setKeywordSuggestionsCount(keywordSuggestionsCount);
 
 		return this;
 	}
@@ -113,53 +121,124 @@ public class AutoSuggestClient {
 	 * @return this
 	 */
 	public AutoSuggestClient setTopQueriesCount(int topQueriesCount) {
-		this.topQueriesCount = topQueriesCount;
+		this.builder.setTopQueriesCount(topQueriesCount);
 
 		return this;
 	}
 
-	private String generateUrl() throws AutoSuggestException {
-		try {
-			StringBuffer sb = new StringBuffer();
+	/**
+	 * Bounds the time taken by the autosuggest call, including retries and parsing of the response.
+	 * Defaults to the deadline configured for the endpoint on {@link HttpTransport}, if any.
+	 * @param deadlineMillis
+	 * @return this
+	 */
+	public AutoSuggestClient setDeadline(long deadlineMillis){
+		this.builder.setDeadline(deadlineMillis);
 
-			if(query != null){
-				sb.append(this.getAutoSuggestUrl());
-				sb.append("&q=" + URLEncoder.encode(query, __encoding));
+		return this;
+	}
 
-			}
+	/**
+	 * Makes the index learn the suggestions of every response the client receives, refer {@link SuggestionIndex}
+	 * @param suggestionIndex null to stop
+	 * @return this
+	 */
+	public AutoSuggestClient setSuggestionIndex(SuggestionIndex suggestionIndex){
+		this.suggestionIndex = suggestionIndex;
 
-			if(inFieldsCount != -1){
-				sb.append("&inFields.count=" + URLEncoder.encode(inFieldsCount + "", __encoding));
-			}
+		return this;
+	}
 
-			if(popularProductsCount != -1){
-				sb.append("&popularProducts.count=" + URLEncoder.encode(popularProductsCount + "", __encoding));
-			}
+	public SuggestionIndex getSuggestionIndex(){
+		return this.suggestionIndex;
+	}
 
-			if(keywordSuggestionsCount != -1){
-				sb.append("&keywordSuggestions.count=" + URLEncoder.encode(keywordSuggestionsCount + "", __encoding));
-			}
+	/**
+	 * Prefetches the likely next prefixes between keystrokes, refer {@link AutoSuggestPrefetcher}
+	 * @param prefetcher null to stop
+	 * @return this
+	 */
+	public AutoSuggestClient setPrefetcher(AutoSuggestPrefetcher prefetcher){
+		this.prefetcher = prefetcher;
 
-			if(topQueriesCount != -1){
-				sb.append("&topQueries.count=" + URLEncoder.encode(topQueriesCount + "", __encoding));
-			}
+		return this;
+	}
 
-			return sb.toString();
-		} catch (UnsupportedEncodingException e) {
-			LOG.error("Encoding error", e);
-			throw new AutoSuggestException(e);
-		}
+	public AutoSuggestPrefetcher getPrefetcher(){
+		return this.prefetcher;
+	}
+
+	/**
+	 * Searches for the top suggestion of every response ahead of a tap, refer {@link SuggestionSearchPrefetcher}
+	 * @param searchPrefetcher null to stop
+	 * @return this
+	 */
+	public AutoSuggestClient setSearchPrefetcher(SuggestionSearchPrefetcher searchPrefetcher){
+		this.searchPrefetcher = searchPrefetcher;
+
+		return this;
+	}
+
+	public SuggestionSearchPrefetcher getSearchPrefetcher(){
+		return this.searchPrefetcher;
+	}
+
+	HttpTransport getTransport(){
+		return this.transport;
+	}
+
+	/**
+	 * @return Immutable snapshot of the call configured on this client
+	 * @throws AutoSuggestException
+	 */
+	public AutoSuggestRequest buildRequest() throws AutoSuggestException {
+		return this.builder.build();
+	}
+
+	private static RequestInfo newRequestInfo(){
+		return new RequestInfo(Endpoint.AUTOSUGGEST, "autosuggest");
+	}
+
+	private static Deadline newDeadline(AutoSuggestRequest request){
+		return request.getDeadlineMillis() > 0 ? Deadline.after(request.getDeadlineMillis()) : null;
+	}
+
+	/**
+	 * @param request
+	 * @return URL of the request for this site
+	 */
+	public String getUrl(AutoSuggestRequest request){
+		return this.baseUrl + request.getCanonicalQuery();
 	}
 
 
 	public void execute(AsyncResponse delegate,Context context) throws AutoSuggestException{
+		this.execute(this.buildRequest(), delegate, context);
+	}
+
+	/**
+	 * Executes an autosuggest call in the background thread by passing callback
+	 * @param request
+	 * @param delegate
+	 * @param context
+	 * @throws AutoSuggestException
+	 */
+	public void execute(AutoSuggestRequest request, AsyncResponse delegate, Context context) throws AutoSuggestException{
 		try{
-			String url = this.generateUrl();
-			RequestManager.getResponse(null, url, context, delegate);	
+			SuggestionIndex index = this.suggestionIndex;
+			SuggestionSearchPrefetcher searchPrefetcher = this.searchPrefetcher;
+			if(index != null || searchPrefetcher != null){
+				long generation = searchPrefetcher != null ? searchPrefetcher.onRequest() : 0;
+				delegate = new ObservedResponse(delegate, this, index, searchPrefetcher, generation);
+			}
+			AutoSuggestPrefetcher prefetcher = this.prefetcher;
+			if(prefetcher != null)
+				prefetcher.onRequest(this, request, true);
+			RequestManager.getResponse(this.transport, newRequestInfo(), this.getUrl(request), newDeadline(request), context, delegate);
 		}catch (Exception e){
 			LOG.error(e.getMessage(),e);
 			throw new AutoSuggestException(e);
-		}   	
+		}
 	}
 
 
@@ -172,40 +251,103 @@ public class AutoSuggestClient {
 	 * @throws AutoSuggestException
 	 */
 	public AutoSuggestResponse execute() throws AutoSuggestException {
-		try{
-			String url = this.generateUrl();
-			DefaultHttpClient client = new DefaultHttpClient();
-			HttpGet get = new HttpGet(url);
-			HttpResponse response = client.execute(get);
-			if(response.getStatusLine().getStatusCode() == 200){
-				Map<String, Object> responseObject = new ObjectMapper().readValue(new InputStreamReader(response.getEntity().getContent()), Map.class);
-				return new AutoSuggestResponse(responseObject);
-			} else {
-				StringBuffer sb = new StringBuffer();
-				BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-				String line = "";
-				while ((line = rd.readLine()) != null) {
-					sb.append(line);
-				}
-
-				String responseText = sb.toString();
+		return this.execute(this.buildRequest());
+	}
 
-				LOG.error(responseText);
-				throw new AutoSuggestException(responseText);
-			}
+	/**
+	 * Executes an autosuggest call. Safe to call from several threads.
+	 *
+	 * @param request
+	 * @return {@link AutoSuggestResponse}
+	 * @throws AutoSuggestException
+	 */
+	public AutoSuggestResponse execute(AutoSuggestRequest request) throws AutoSuggestException {
+		AutoSuggestPrefetcher prefetcher = this.prefetcher;
+		if(prefetcher != null)
+			prefetcher.onRequest(this, request, false);
+		SuggestionSearchPrefetcher searchPrefetcher = this.searchPrefetcher;
+		long generation = searchPrefetcher != null ? searchPrefetcher.onRequest() : 0;
+		try{
+			AutoSuggestResponse response = this.transport.execute(newRequestInfo(), this.getUrl(request), this.parser, newDeadline(request));
+			SuggestionIndex index = this.suggestionIndex;
+			if(index != null)
+				index.learn(response);
+			if(searchPrefetcher != null)
+				searchPrefetcher.onResponse(this, response, false, generation);
+			return response;
 		} catch (JsonParseException e) {
 			LOG.error(e.getMessage(), e);
 			throw new AutoSuggestException(e);
 		} catch (JsonMappingException e) {
 			LOG.error(e.getMessage(), e);
 			throw new AutoSuggestException(e);
-		} catch (ClientProtocolException e) {
-			LOG.error(e.getMessage(), e);
-			throw new AutoSuggestException(e);
+		} catch (HttpStatusException e) {
+			LOG.error(e.getMessage());
+			throw new AutoSuggestException(e.getMessage());
 		} catch (IOException e) {
 			LOG.error(e.getMessage(), e);
 			throw new AutoSuggestException(e);
 		}
 	}
 
+	/**
+	 * Fetches a speculative request into the response cache, without learning it
+	 * @param request
+	 * @param text true to cache the response as text for asynchronous calls, parsed otherwise
+	 * @throws IOException
+	 */
+	void prefetch(AutoSuggestRequest request, boolean text) throws IOException {
+		RequestInfo info = new RequestInfo(Endpoint.AUTOSUGGEST, "autosuggest-prefetch");
+		if(text){
+			this.transport.execute(info, this.getUrl(request), HttpTransport.STRING_PARSER, newDeadline(request));
+		}else{
+			this.transport.execute(info, this.getUrl(request), this.parser, newDeadline(request));
+		}
+	}
+
+	/**
+	 * Passes responses on to the app's delegate, and parses them in the background rather than on the main thread
+	 * delivering them, for the index to learn and the search prefetcher
+	 */
+	private static class ObservedResponse implements AsyncResponse {
+
+		private final AsyncResponse delegate;
+		private final AutoSuggestClient client;
+		private final SuggestionIndex index;
+		private final SuggestionSearchPrefetcher searchPrefetcher;
+		private final long generation;
+
+		private ObservedResponse(AsyncResponse delegate, AutoSuggestClient client, SuggestionIndex index,
+								 SuggestionSearchPrefetcher searchPrefetcher, long generation) {
+			this.delegate = delegate;
+			this.client = client;
+			this.index = index;
+			this.searchPrefetcher = searchPrefetcher;
+			this.generation = generation;
+		}
+
+		@Override
+		public void processResponse(final String output) {
+			this.client.getTransport().getExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					try{
+						AutoSuggestResponse response = client.parser.parse(new ByteArrayInputStream(output.getBytes("UTF-8")));
+						if(index != null)
+							index.learn(response);
+						if(searchPrefetcher != null)
+							searchPrefetcher.onResponse(client, response, true, generation);
+					}catch (Exception e){
+						LOG.error("Couldn't read suggestions: " + e.getMessage());
+					}
+				}
+			});
+			this.delegate.processResponse(output);
+		}
+
+		@Override
+		public void processErrors(String output) {
+			this.delegate.processErrors(output);
+		}
+	}
 }
@@ -1,5 +1,7 @@
 package com.unbxd.client.autosuggest;
 
+import com.unbxd.client.http.HttpTransport;
+
 /**
  * Created with IntelliJ IDEA.
  * User: sourabh
@@ -12,4 +14,8 @@ public class AutoSuggestClientFactory {
 	public static AutoSuggestClient getAutoSuggestClient(String siteKey, String apiKey, boolean secure){
 		return new AutoSuggestClient(siteKey, apiKey, secure);
 	}
+
+	public static AutoSuggestClient getAutoSuggestClient(String siteKey, String apiKey, boolean secure, HttpTransport transport){
+		return new AutoSuggestClient(siteKey, apiKey, secure, transport);
+	}
 }
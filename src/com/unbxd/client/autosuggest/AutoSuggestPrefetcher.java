@@ -0,0 +1,314 @@
+package com.unbxd.client.autosuggest;
+
+import com.unbxd.client.autosuggest.exceptions.AutoSuggestException;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpTransport;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches suggestions for the prefixes the user is likely to type next while they pause between keystrokes, so
+ * the next keystroke is answered from the response cache. Set it with
+ * {@link AutoSuggestClient#setPrefetcher(AutoSuggestPrefetcher)}, and cache autosuggest responses with
+ * {@link HttpTransport#setCacheTtl(Endpoint, long)}, speculation is skipped otherwise.
+ *
+ * Once no autosuggest call was made for {@link #setIdleMillis(long)}, the next characters of the local
+ * suggestions matching the query are weighed by the suggestions' scores, and the most likely prefixes are fetched
+ * with the parameters of the last call. A new call cancels the speculation not started yet, including requests
+ * still waiting in the background lane, whose budget is given back. Speculative requests
+ * are limited by a budget, {@link #setBudget(int, long)}, run in the transport's background lane, refer
+ * {@link HttpTransport#executeInBackground(Runnable)}, and are reported as the autosuggest-prefetch operation in
+ * the transport's metrics.
+ *
+ * A speculative request is a hit if a call for its prefix is made while it's fresh, and wasted if none was.
+ */
+public class AutoSuggestPrefetcher {
+
+	private static final Logger LOG = Logger.getLogger(AutoSuggestPrefetcher.class);
+
+	private final SuggestionIndex index;
+
+	private volatile long idleMillis = 150;
+	private volatile int prefixesPerQuery = 2;
+
+	private int maxRequests = 20;
+	private long perMillis = 60000;
+	private double tokens = maxRequests;
+	private long refilledAt = System.currentTimeMillis();
+
+	private final Map<String, Long> prefetched = new HashMap<String, Long>();
+	private final Set<String> inFlight = new HashSet<String>();
+	private ScheduledFuture<?> pending;
+	private long generation;
+
+	private final AtomicLong issued = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong wasted = new AtomicLong();
+	private final AtomicLong denied = new AtomicLong();
+	private final AtomicLong cancelled = new AtomicLong();
+
+	/**
+	 * @param index Suggestions next prefixes are predicted from. Should also be set on the client, to learn from
+	 *              its responses.
+	 */
+	public AutoSuggestPrefetcher(SuggestionIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * @param idleMillis Pause after a call before speculating. Defaults to 150.
+	 * @return this
+	 */
+	public AutoSuggestPrefetcher setIdleMillis(long idleMillis){
+		this.idleMillis = idleMillis;
+
+		return this;
+	}
+
+	/**
+	 * @param prefixesPerQuery Prefixes fetched at most after a call. Defaults to 2.
+	 * @return this
+	 */
+	public AutoSuggestPrefetcher setPrefixesPerQuery(int prefixesPerQuery){
+		this.prefixesPerQuery = prefixesPerQuery;
+
+		return this;
+	}
+
+	/**
+	 * Limits speculative requests to maxRequests per period, refilled continuously. Defaults to 20 a minute.
+	 * @param maxRequests
+	 * @param perMillis
+	 * @return this
+	 */
+	public synchronized AutoSuggestPrefetcher setBudget(int maxRequests, long perMillis){
+		this.maxRequests = maxRequests;
+		this.perMillis = perMillis;
+		this.tokens = Math.min(tokens, maxRequests);
+
+		return this;
+	}
+
+	/**
+	 * Called by the client for every autosuggest call, before it's made
+	 * @param client
+	 * @param request
+	 * @param text true if the call reads the response as text, like asynchronous calls do
+	 */
+	synchronized void onRequest(final AutoSuggestClient client, final AutoSuggestRequest request, final boolean text){
+		long now = System.currentTimeMillis();
+		this.expire(now);
+
+		if(prefetched.remove(key(client.getUrl(request), text)) != null)
+			this.hits.incrementAndGet();
+
+		if(pending != null)
+			this.pending.cancel(false);
+		final long generation = ++this.generation;
+		this.pending = client.getTransport().getScheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				speculate(client, request, text, generation);
+			}
+		}, idleMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void expire(long now){
+		for(Iterator<Long> it = prefetched.values().iterator(); it.hasNext();){
+			if(it.next() < now){
+				it.remove();
+				this.wasted.incrementAndGet();
+			}
+		}
+	}
+
+	private void speculate(final AutoSuggestClient client, AutoSuggestRequest request, final boolean text,
+						   final long generation){
+		final HttpTransport transport = client.getTransport();
+		final long ttl = transport.getCacheTtl(Endpoint.AUTOSUGGEST);
+		if(ttl <= 0)
+			return;
+
+		for(String query : this.nextQueries(request.getQuery())){
+			final AutoSuggestRequest next;
+			try{
+				next = request.toBuilder().autosuggest(query).build();
+			}catch (AutoSuggestException e){
+				continue;
+			}
+
+			final String key = key(client.getUrl(next), text);
+			synchronized (this){
+				if(generation != this.generation)
+					return;
+				if(prefetched.containsKey(key) || inFlight.contains(key))
+					continue;
+				if(!this.tryAcquire()){
+					this.denied.incrementAndGet();
+					return;
+				}
+				this.inFlight.add(key);
+			}
+			boolean accepted = transport.executeInBackground(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (AutoSuggestPrefetcher.this){
+						// Overtaken by a later call while waiting in the lane
+						if(generation != AutoSuggestPrefetcher.this.generation){
+							inFlight.remove(key);
+							tokens = Math.min(maxRequests, tokens + 1);
+							cancelled.incrementAndGet();
+							return;
+						}
+					}
+					issued.incrementAndGet();
+
+					boolean fetched = false;
+					try{
+						client.prefetch(next, text);
+						fetched = true;
+					}catch (IOException e){
+						LOG.debug("Prefetch failed: " + e.getMessage());
+					}finally{
+						synchronized (AutoSuggestPrefetcher.this){
+							inFlight.remove(key);
+							if(fetched){
+								prefetched.put(key, System.currentTimeMillis() + ttl);
+							}else{
+								wasted.incrementAndGet();
+							}
+						}
+					}
+				}
+			});
+			if(!accepted){
+				synchronized (this){
+					this.inFlight.remove(key);
+				}
+				this.denied.incrementAndGet();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @param query What the user typed
+	 * @return Queries of the most likely next keystrokes
+	 */
+	List<String> nextQueries(String query){
+		String typed = SuggestionIndex.normalize(query);
+		if(typed.length() == 0)
+			return Collections.emptyList();
+		if(Character.isWhitespace(query.charAt(query.length() - 1)))
+			typed += ' ';
+
+		final Map<Character, Double> weights = new HashMap<Character, Double>();
+		for(Suggestion suggestion : index.suggest(query, SuggestionIndex.MAX_SUGGESTIONS)){
+			String text = SuggestionIndex.normalize(suggestion.getText());
+			// The query matches the start of a word of the suggestion, the earliest one is the likeliest
+			for(int start = 0; start != -1 && start < text.length(); start = nextWord(text, start)){
+				if(!text.startsWith(typed, start))
+					continue;
+
+				int end = start + typed.length();
+				if(end < text.length()){
+					Character next = text.charAt(end);
+					Double weight = weights.get(next);
+					weights.put(next, (weight != null ? weight : 0) + suggestion.getScore());
+				}
+				break;
+			}
+		}
+
+		List<Character> likely = new ArrayList<Character>(weights.keySet());
+		Collections.sort(likely, new Comparator<Character>() {
+			@Override
+			public int compare(Character c1, Character c2) {
+				return weights.get(c2).compareTo(weights.get(c1));
+			}
+		});
+
+		List<String> queries = new ArrayList<String>();
+		for(int i = 0; i < likely.size() && i < prefixesPerQuery; i++){
+			queries.add(query + likely.get(i));
+		}
+		return queries;
+	}
+
+	private static int nextWord(String text, int start){
+		int space = text.indexOf(' ', start);
+		return space != -1 ? space + 1 : -1;
+	}
+
+	private boolean tryAcquire(){
+		long now = System.currentTimeMillis();
+		this.tokens = Math.min(maxRequests, tokens + (double) (now - refilledAt) * maxRequests / perMillis);
+		this.refilledAt = now;
+		if(tokens < 1)
+			return false;
+
+		this.tokens--;
+		return true;
+	}
+
+	private static String key(String url, boolean text){
+		return text ? "text:" + url : url;
+	}
+
+	/**
+	 * @return Speculative requests made
+	 */
+	public long getIssued(){
+		return this.issued.get();
+	}
+
+	/**
+	 * @return Speculative requests followed by a call for their prefix
+	 */
+	public long getHits(){
+		return this.hits.get();
+	}
+
+	/**
+	 * @return Speculative requests which failed or expired before a call for their prefix
+	 */
+	public long getWasted(){
+		return this.wasted.get();
+	}
+
+	/**
+	 * @return Speculations given up because the budget was spent or the background lane was busy
+	 */
+	public long getDenied(){
+		return this.denied.get();
+	}
+
+	/**
+	 * @return Speculative requests dropped from the background lane because a later call was made meanwhile
+	 */
+	public long getCancelled(){
+		return this.cancelled.get();
+	}
+
+	/**
+	 * @return Fraction of the speculative requests which were hits
+	 */
+	public double getHitRatio(){
+		long n = issued.get();
+		return n == 0 ? 0 : (double) hits.get() / n;
+	}
+}
@@ -0,0 +1,256 @@
+package com.unbxd.client.autosuggest;
+
+import com.unbxd.client.autosuggest.exceptions.AutoSuggestException;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * Immutable autosuggest call. Can be shared between threads and executed any number of times with
+ * {@link AutoSuggestClient#execute(AutoSuggestRequest)}. Its canonical query and hash code are computed once.
+ */
+public final class AutoSuggestRequest {
+
+	private static final String __encoding = "UTF-8";
+
+	private final String query;
+	private final int inFieldsCount;
+	private final int popularProductsCount;
+	private final int keywordSuggestionsCount;
+	private final int topQueriesCount;
+	private final long deadlineMillis;
+
+	private final String canonicalQuery;
+	private final int hash;
+
+	private AutoSuggestRequest(Builder builder) throws AutoSuggestException {
+		if(builder.query == null){
+			throw new AutoSuggestException("Query is not set");
+		}
+
+		this.query = builder.query;
+		this.inFieldsCount = builder.inFieldsCount;
+		this.popularProductsCount = builder.popularProductsCount;
+		this.keywordSuggestionsCount = builder.keywordSuggestionsCount;
+		this.topQueriesCount = builder.topQueriesCount;
+		this.deadlineMillis = builder.deadlineMillis;
+
+		this.canonicalQuery = this.generateQuery();
+		this.hash = this.canonicalQuery.hashCode();
+	}
+
+	private String generateQuery() throws AutoSuggestException {
+		try {
+			StringBuilder sb = new StringBuilder();
+			sb.append("autosuggest?wt=json");
+			sb.append("&q=").append(URLEncoder.encode(query, __encoding));
+
+			if(inFieldsCount != -1){
+				sb.append("&inFields.count=").append(inFieldsCount);
+			}
+
+			if(popularProductsCount != -1){
+				sb.append("&popularProducts.count=").append(popularProductsCount);
+			}
+
+			if(keywordSuggestionsCount != -1){
+				sb.append("&keywordSuggestions.count=").append(keywordSuggestionsCount);
+			}
+
+			if(topQueriesCount != -1){
+				sb.append("&topQueries.count=").append(topQueriesCount);
+			}
+
+			return sb.toString();
+		} catch (UnsupportedEncodingException e) {
+			throw new AutoSuggestException(e);
+		}
+	}
+
+	/**
+	 * @return New builder with default values
+	 */
+	public static Builder newBuilder(){
+		return new Builder();
+	}
+
+	/**
+	 * @return New builder initialised with the values of this request
+	 */
+	public Builder toBuilder(){
+		Builder builder = new Builder();
+		builder.query = query;
+		builder.inFieldsCount = inFieldsCount;
+		builder.popularProductsCount = popularProductsCount;
+		builder.keywordSuggestionsCount = keywordSuggestionsCount;
+		builder.topQueriesCount = topQueriesCount;
+		builder.deadlineMillis = deadlineMillis;
+
+		return builder;
+	}
+
+	public String getQuery(){
+		return query;
+	}
+
+	/**
+	 * @return Number of in_fields asked for, -1 for the default
+	 */
+	public int getInFieldsCount(){
+		return inFieldsCount;
+	}
+
+	/**
+	 * @return Number of popular products asked for, -1 for the default
+	 */
+	public int getPopularProductsCount(){
+		return popularProductsCount;
+	}
+
+	/**
+	 * @return Number of keyword suggestions asked for, -1 for the default
+	 */
+	public int getKeywordSuggestionsCount(){
+		return keywordSuggestionsCount;
+	}
+
+	/**
+	 * @return Number of popular queries asked for, -1 for the default
+	 */
+	public int getTopQueriesCount(){
+		return topQueriesCount;
+	}
+
+	/**
+	 * @return Time allowed for the call, 0 for the default deadline of the endpoint
+	 */
+	public long getDeadlineMillis(){
+		return deadlineMillis;
+	}
+
+	/**
+	 * @return Path and query string of the call, relative to the site's base URL
+	 */
+	public String getCanonicalQuery(){
+		return canonicalQuery;
+	}
+
+	/**
+	 * Deadlines don't take part, two requests are equal when they ask for the same suggestions.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if(this == o)
+			return true;
+		if(!(o instanceof AutoSuggestRequest))
+			return false;
+
+		AutoSuggestRequest other = (AutoSuggestRequest) o;
+		return hash == other.hash && canonicalQuery.equals(other.canonicalQuery);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return canonicalQuery;
+	}
+
+	/**
+	 * Builds {@link AutoSuggestRequest}. Not thread safe.
+	 */
+	public static class Builder {
+
+		private String query;
+		private int inFieldsCount;
+		private int popularProductsCount;
+		private int keywordSuggestionsCount;
+		private int topQueriesCount;
+		private long deadlineMillis;
+
+		private Builder(){
+			this.inFieldsCount = -1;
+			this.popularProductsCount = -1;
+			this.keywordSuggestionsCount = -1;
+			this.topQueriesCount = -1;
+		}
+
+		/**
+		 * Gets autosuggest results for query
+		 * @param query
+		 * @return this
+		 */
+		public Builder autosuggest(String query){
+			this.query = query;
+
+			return this;
+		}
+
+		/**
+		 * Sets number of in_fields to be returned in results
+		 * @param inFieldsCount
+		 * @return this
+		 */
+		public Builder setInFieldsCount(int inFieldsCount) {
+			this.inFieldsCount = inFieldsCount;
+
+			return this;
+		}
+
+		/**
+		 * Sets number of popular products to be returned in results
+		 * @param popularProductsCount
+		 * @return this
+		 */
+		public Builder setPopularProductsCount(int popularProductsCount) {
+			this.popularProductsCount = popularProductsCount;
+
+			return this;
+		}
+
+		/**
+		 * Sets number of keyword suggestions to be returned in results
+		 * @param keywordSuggestionsCount
+		 * @return this
+		 */
+		public Builder setKeywordSuggestionsCount(int keywordSuggestionsCount) {
+			this.keywordSuggestionsCount = keywordSuggestionsCount;
+
+			return this;
+		}
+
+		/**
+		 * Sets number of popular queries to be returned in results
+		 * @param topQueriesCount
+		 * @return this
+		 */
+		public Builder setTopQueriesCount(int topQueriesCount) {
+			this.topQueriesCount = topQueriesCount;
+
+			return this;
+		}
+
+		/**
+		 * Bounds the time taken by the autosuggest call, including retries and parsing of the response.
+		 * Defaults to the deadline configured for the endpoint on {@link com.unbxd.client.http.HttpTransport}, if any.
+		 * @param deadlineMillis
+		 * @return this
+		 */
+		public Builder setDeadline(long deadlineMillis){
+			this.deadlineMillis = deadlineMillis;
+
+			return this;
+		}
+
+		/**
+		 * @return {@link AutoSuggestRequest}
+		 * @throws AutoSuggestException if the query isn't set
+		 */
+		public AutoSuggestRequest build() throws AutoSuggestException {
+			return new AutoSuggestRequest(this);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.unbxd.client.autosuggest;
+
+/**
+ * Query suggestion, from the autosuggest response or from the local {@link SuggestionIndex}
+ */
+public class Suggestion {
+
+	private final String _text;
+	private final AutoSuggestType _type;
+	private final double _score;
+	private final boolean _local;
+
+	Suggestion(String text, AutoSuggestType type, double score, boolean local) {
+		this._text = text;
+		this._type = type;
+		this._score = score;
+		this._local = local;
+	}
+
+	/**
+	 * @return Text of the suggestion, as returned by the API
+	 */
+	public String getText(){
+		return this._text;
+	}
+
+	/**
+	 * @return {@link AutoSuggestType#KEYWORD_SUGGESTION} or {@link AutoSuggestType#TOP_SEARCH_QUERIES}. Popular
+	 * queries downloaded to the index are TOP_SEARCH_QUERIES.
+	 */
+	public AutoSuggestType getType(){
+		return this._type;
+	}
+
+	/**
+	 * @return Local score, higher for suggestions seen more often and ranked higher. 0 for remote suggestions.
+	 */
+	public double getScore(){
+		return this._score;
+	}
+
+	/**
+	 * @return true if the suggestion comes from the local index rather than the response
+	 */
+	public boolean isLocal(){
+		return this._local;
+	}
+
+	@Override
+	public String toString() {
+		return this._text;
+	}
+}
@@ -0,0 +1,442 @@
+package com.unbxd.client.autosuggest;
+
+import com.unbxd.client.autosuggest.response.AutoSuggestResponse;
+import com.unbxd.client.autosuggest.response.AutoSuggestResult;
+import com.unbxd.client.autosuggest.response.AutoSuggestResultSection;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.http.RequestInfo;
+import com.unbxd.client.http.ResponseParser;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local index of query suggestions, answering while the autosuggest request is in flight and when offline.
+ *
+ * The index learns the {@link AutoSuggestType#KEYWORD_SUGGESTION} and {@link AutoSuggestType#TOP_SEARCH_QUERIES}
+ * of the responses {@link AutoSuggestClient} receives once set with
+ * {@link AutoSuggestClient#setSuggestionIndex(SuggestionIndex)}, and optionally a list of popular queries downloaded
+ * periodically, refer {@link #setPopularQueries(HttpTransport, String, long)}. A suggestion scores 1 / (rank + 1)
+ * each time it's returned, so suggestions returned often and ranked high come first.
+ *
+ * Suggestions are held in a radix tree over the start of each of their words, whose nodes keep their
+ * {@link #MAX_SUGGESTIONS} best suggestions. A lookup walks the characters of the prefix and returns the list of
+ * the node it ends at, in microseconds whatever the size of the index. Lookups don't lock, learning is serialized.
+ */
+public class SuggestionIndex {
+
+	private static final Logger LOG = Logger.getLogger(SuggestionIndex.class);
+
+	private static final JsonFactory JSON = new JsonFactory();
+
+	public static final int MAX_SUGGESTIONS = 10;
+
+	private static final Comparator<Entry> BY_SCORE = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			if(e1.score != e2.score)
+				return e1.score > e2.score ? -1 : 1;
+			return e1.key.compareTo(e2.key);
+		}
+	};
+
+	private final int maxEntries;
+	private final Map<String, Entry> entries;
+	private volatile Node root;
+
+	private volatile PopularQueries popularQueries;
+
+	/**
+	 * @param maxEntries Number of suggestions kept, the lowest scored ones are dropped beyond
+	 */
+	public SuggestionIndex(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.entries = new HashMap<String, Entry>();
+		this.root = new Node("", new Node[0], new Entry[0]);
+	}
+
+	/**
+	 * Downloads a list of popular queries to the index every refreshMillis. The list is a JSON array of queries,
+	 * most popular first. It's downloaded in the background lane of the transport, refer
+	 * {@link HttpTransport#executeInBackground(Runnable)}, the first time suggestions are asked for and then once
+	 * it's older than refreshMillis.
+	 *
+	 * @param transport
+	 * @param url
+	 * @param refreshMillis
+	 * @return this
+	 */
+	public SuggestionIndex setPopularQueries(HttpTransport transport, String url, long refreshMillis){
+		this.popularQueries = new PopularQueries(transport, url, refreshMillis);
+		return this;
+	}
+
+	/**
+	 * Learns the suggestions of an autosuggest response
+	 * @param response
+	 */
+	public void learn(AutoSuggestResponse response){
+		if(response == null || response.getResults() == null)
+			return;
+
+		List<String> suggestions = new ArrayList<String>();
+		List<AutoSuggestType> types = new ArrayList<AutoSuggestType>();
+		for(AutoSuggestType type : new AutoSuggestType[]{AutoSuggestType.KEYWORD_SUGGESTION, AutoSuggestType.TOP_SEARCH_QUERIES}){
+			AutoSuggestResultSection section = response.getResults().getResultSections().get(type);
+			if(section == null)
+				continue;
+			for(AutoSuggestResult result : section.getResults()){
+				suggestions.add(result.getSuggestion());
+				types.add(type);
+			}
+		}
+		this.learn(suggestions, types);
+	}
+
+	/**
+	 * Learns popular queries
+	 * @param queries Most popular first
+	 */
+	public void learnPopularQueries(List<String> queries){
+		this.learn(queries, Collections.nCopies(queries.size(), AutoSuggestType.TOP_SEARCH_QUERIES));
+	}
+
+	private synchronized void learn(List<String> suggestions, List<AutoSuggestType> types){
+		Map<AutoSuggestType, Integer> ranks = new HashMap<AutoSuggestType, Integer>();
+		for(int i = 0; i < suggestions.size(); i++){
+			String text = suggestions.get(i);
+			String key = text != null ? normalize(text) : "";
+			if(key.length() == 0)
+				continue;
+
+			AutoSuggestType type = types.get(i);
+			Integer rank = ranks.get(type);
+			rank = rank == null ? 0 : rank + 1;
+			ranks.put(type, rank);
+
+			Entry entry = entries.get(key);
+			if(entry == null){
+				entry = new Entry(text, key, type);
+				this.entries.put(key, entry);
+			}
+			entry.score += 1.0 / (rank + 1);
+
+			// Scores only grow, so offering the entry again along its paths keeps every node's best suggestions right
+			for(int start = 0; start < key.length(); start = key.indexOf(' ', start) + 1){
+				insert(root, key, start, entry);
+				if(key.indexOf(' ', start) == -1)
+					break;
+			}
+		}
+
+		if(entries.size() > maxEntries)
+			this.evict();
+	}
+
+	/**
+	 * Drops the lowest scored tenth of the suggestions and rebuilds the tree without them
+	 */
+	private void evict(){
+		List<Entry> kept = new ArrayList<Entry>(entries.values());
+		Collections.sort(kept, BY_SCORE);
+		kept = kept.subList(0, Math.max(0, maxEntries - maxEntries / 10));
+
+		Node rebuilt = new Node("", new Node[0], new Entry[0]);
+		this.entries.clear();
+		for(Entry entry : kept){
+			this.entries.put(entry.key, entry);
+			for(int start = 0; start < entry.key.length(); start = entry.key.indexOf(' ', start) + 1){
+				insert(rebuilt, entry.key, start, entry);
+				if(entry.key.indexOf(' ', start) == -1)
+					break;
+			}
+		}
+		this.root = rebuilt;
+	}
+
+	private static void insert(Node node, String key, int pos, Entry entry){
+		while(true){
+			node.offer(entry);
+			if(pos == key.length())
+				return;
+
+			Node[] children = node.children;
+			int i = indexOf(children, key.charAt(pos));
+			if(i < 0){
+				Node leaf = new Node(key.substring(pos), new Node[0], new Entry[]{ entry });
+				Node[] updated = new Node[children.length + 1];
+				int at = -i - 1;
+				System.arraycopy(children, 0, updated, 0, at);
+				updated[at] = leaf;
+				System.arraycopy(children, at, updated, at + 1, children.length - at);
+				node.children = updated;
+				return;
+			}
+
+			Node child = children[i];
+			int common = 0;
+			while(common < child.label.length() && pos + common < key.length()
+					&& child.label.charAt(common) == key.charAt(pos + common)){
+				common++;
+			}
+
+			if(common < child.label.length()){
+				// Splits the edge, readers going through the old child see it unchanged
+				Node tail = new Node(child.label.substring(common), child.children, child.top);
+				Node middle = new Node(child.label.substring(0, common), new Node[]{ tail }, child.top);
+				Node[] updated = children.clone();
+				updated[i] = middle;
+				node.children = updated;
+				child = middle;
+			}
+
+			node = child;
+			pos += common;
+		}
+	}
+
+	/**
+	 * @return Index of the child starting with c, or -(insertion point) - 1
+	 */
+	private static int indexOf(Node[] children, char c){
+		int low = 0;
+		int high = children.length - 1;
+		while(low <= high){
+			int mid = (low + high) >>> 1;
+			char label = children[mid].label.charAt(0);
+			if(label < c){
+				low = mid + 1;
+			}else if(label > c){
+				high = mid - 1;
+			}else{
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * @param query What the user typed
+	 * @param count At most {@link #MAX_SUGGESTIONS}
+	 * @return Best local suggestions having a word starting with the query
+	 */
+	public List<Suggestion> suggest(String query, int count){
+		PopularQueries popular = this.popularQueries;
+		if(popular != null)
+			popular.refreshIfDue();
+
+		String prefix = normalize(query);
+		Node node = root;
+		int pos = 0;
+		while(pos < prefix.length()){
+			int i = indexOf(node.children, prefix.charAt(pos));
+			if(i < 0)
+				return Collections.emptyList();
+
+			Node child = node.children[i];
+			int n = Math.min(child.label.length(), prefix.length() - pos);
+			if(!child.label.regionMatches(0, prefix, pos, n))
+				return Collections.emptyList();
+			node = child;
+			pos += n;
+		}
+
+		Entry[] top = node.top;
+		List<Suggestion> suggestions = new ArrayList<Suggestion>(Math.min(count, top.length));
+		for(int i = 0; i < top.length && i < count; i++){
+			suggestions.add(new Suggestion(top[i].text, top[i].type, top[i].score, true));
+		}
+		return suggestions;
+	}
+
+	/**
+	 * Suggestions of the response followed by the local ones it lacks, without duplicates. Suggestions differing
+	 * only in case or spacing are duplicates.
+	 *
+	 * @param query What the user typed
+	 * @param remote Response for the query, null while it's in flight or if it failed
+	 * @param count Number of suggestions wanted
+	 * @return Merged suggestions
+	 */
+	public List<Suggestion> merge(String query, AutoSuggestResponse remote, int count){
+		List<Suggestion> merged = new ArrayList<Suggestion>(count);
+		Set<String> seen = new HashSet<String>();
+
+		if(remote != null && remote.getResults() != null){
+			for(AutoSuggestType type : new AutoSuggestType[]{AutoSuggestType.KEYWORD_SUGGESTION, AutoSuggestType.TOP_SEARCH_QUERIES}){
+				AutoSuggestResultSection section = remote.getResults().getResultSections().get(type);
+				if(section == null)
+					continue;
+				for(AutoSuggestResult result : section.getResults()){
+					String text = result.getSuggestion();
+					if(merged.size() < count && text != null && seen.add(normalize(text)))
+						merged.add(new Suggestion(text, type, 0, false));
+				}
+			}
+		}
+
+		for(Suggestion suggestion : this.suggest(query, MAX_SUGGESTIONS)){
+			if(merged.size() < count && seen.add(normalize(suggestion.getText())))
+				merged.add(suggestion);
+		}
+		return merged;
+	}
+
+	/**
+	 * @return Number of suggestions in the index
+	 */
+	public synchronized int size(){
+		return this.entries.size();
+	}
+
+	static String normalize(String text){
+		StringBuilder sb = new StringBuilder(text.length());
+		boolean space = false;
+		for(int i = 0; i < text.length(); i++){
+			char c = text.charAt(i);
+			if(Character.isWhitespace(c)){
+				space = sb.length() > 0;
+			}else{
+				if(space)
+					sb.append(' ');
+				sb.append(c);
+				space = false;
+			}
+		}
+		return sb.toString().toLowerCase(Locale.ENGLISH);
+	}
+
+	private static class Entry {
+
+		private final String text;
+		private final String key;
+		private final AutoSuggestType type;
+		private volatile double score;
+
+		private Entry(String text, String key, AutoSuggestType type) {
+			this.text = text;
+			this.key = key;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * Node of the tree, for the prefixes ending in its label. Arrays are replaced rather than changed, so readers
+	 * never see them half updated.
+	 */
+	private static class Node {
+
+		private final String label;
+		private volatile Node[] children;
+		private volatile Entry[] top;
+
+		private Node(String label, Node[] children, Entry[] top) {
+			this.label = label;
+			this.children = children;
+			this.top = top;
+		}
+
+		/**
+		 * Keeps the entry if it's among the best of the node
+		 */
+		private void offer(Entry entry){
+			Entry[] current = this.top;
+			int at = -1;
+			for(int i = 0; i < current.length; i++){
+				if(current[i] == entry)
+					at = i;
+			}
+
+			Entry[] updated;
+			if(at != -1){
+				updated = current.clone();
+			}else if(current.length < MAX_SUGGESTIONS){
+				updated = Arrays.copyOf(current, current.length + 1);
+				updated[current.length] = entry;
+			}else if(BY_SCORE.compare(entry, current[current.length - 1]) < 0){
+				updated = current.clone();
+				updated[updated.length - 1] = entry;
+			}else{
+				return;
+			}
+			Arrays.sort(updated, BY_SCORE);
+			this.top = updated;
+		}
+	}
+
+	private class PopularQueries implements Runnable {
+
+		private final HttpTransport transport;
+		private final String url;
+		private final long refreshMillis;
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+		private volatile long refreshedAt;
+
+		private PopularQueries(HttpTransport transport, String url, long refreshMillis) {
+			this.transport = transport;
+			this.url = url;
+			this.refreshMillis = refreshMillis;
+		}
+
+		private void refreshIfDue(){
+			// Refused when the background lane is busy, tried again on a later keystroke
+			if((refreshedAt == 0 || System.currentTimeMillis() - refreshedAt >= refreshMillis) && refreshing.compareAndSet(false, true)
+					&& !transport.executeInBackground(this))
+				refreshing.set(false);
+		}
+
+		@Override
+		public void run() {
+			try{
+				List<String> queries = transport.execute(new RequestInfo(Endpoint.AUTOSUGGEST, "popular-queries"), url, QUERIES_PARSER, null);
+				learnPopularQueries(queries);
+			}catch (IOException e){
+				LOG.error("Couldn't download popular queries: " + e.getMessage());
+			}finally{
+				// Retried at the next refresh after a failure, rather than on every keystroke
+				this.refreshedAt = System.currentTimeMillis();
+				this.refreshing.set(false);
+			}
+		}
+	}
+
+	private static final ResponseParser<List<String>> QUERIES_PARSER = new ResponseParser<List<String>>() {
+		@Override
+		public List<String> parse(InputStream content) throws IOException {
+			JsonParser parser = JSON.createJsonParser(content);
+			try{
+				if(parser.nextToken() != JsonToken.START_ARRAY)
+					throw new IOException("Expected a JSON array of queries");
+
+				List<String> queries = new ArrayList<String>();
+				while(parser.nextToken() != JsonToken.END_ARRAY){
+					if(parser.getCurrentToken() == JsonToken.VALUE_STRING){
+						queries.add(parser.getText());
+					}else{
+						parser.skipChildren();
+					}
+				}
+				return queries;
+			}finally{
+				parser.close();
+			}
+		}
+	};
+}
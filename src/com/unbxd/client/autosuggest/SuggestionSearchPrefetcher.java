@@ -0,0 +1,278 @@
+package com.unbxd.client.autosuggest;
+
+import com.unbxd.client.autosuggest.response.AutoSuggestResponse;
+import com.unbxd.client.autosuggest.response.AutoSuggestResult;
+import com.unbxd.client.autosuggest.response.AutoSuggestResultSection;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.search.SearchClient;
+import com.unbxd.client.search.SearchRequest;
+import com.unbxd.client.search.exceptions.SearchException;
+
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Searches for the top suggestion of every autosuggest response into the response cache, so tapping it shows
+ * results instantly. Set it with {@link AutoSuggestClient#setSearchPrefetcher(SuggestionSearchPrefetcher)}, and
+ * cache searches with {@link HttpTransport#setCacheTtl(Endpoint, long)}, nothing is prefetched otherwise. The
+ * search and autosuggest clients must share their transport, as they do when made by the same context.
+ *
+ * The top suggestion is the first {@link AutoSuggestType#KEYWORD_SUGGESTION} or
+ * {@link AutoSuggestType#TOP_SEARCH_QUERIES}, whichever has the higher score. Its search waits for
+ * {@link #setDelayMillis(long)}, and is cancelled by the next autosuggest call until then, so searches are only
+ * made once the user stops typing. They run one at a time in the transport's background lane, refer
+ * {@link HttpTransport#executeInBackground(Runnable)}. A search due while another runs waits for it, replacing
+ * the one waiting already, which counts as cancelled.
+ *
+ * The thread of a search is lowered to the minimum priority while it runs. That's only a hint: on Android it sets
+ * the nice value of the thread, but doesn't move it to the background scheduling group of the platform, so the
+ * search still competes with the app's threads for the CPU.
+ *
+ * To hit the cache the app must make the search returned by {@link #getRequest(String)}, the same way the
+ * autosuggest call was made: asynchronous calls read responses as text, synchronous ones parse them.
+ */
+public class SuggestionSearchPrefetcher {
+
+	private static final Logger LOG = Logger.getLogger(SuggestionSearchPrefetcher.class);
+
+	private final SearchClient searchClient;
+	private final SearchRequest template;
+
+	private volatile long delayMillis = 200;
+
+	private long generation;
+	private ScheduledFuture<?> pending;
+	private boolean running;
+	private Prefetch queued;
+	private String lastUrl;
+	private long lastFetchedAt;
+
+	private final AtomicLong issued = new AtomicLong();
+	private final AtomicLong cancelled = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	public SuggestionSearchPrefetcher(SearchClient searchClient) {
+		this(searchClient, null);
+	}
+
+	/**
+	 * @param searchClient Client the app searches with
+	 * @param template Page, filters, sorts and query parameters of the searches made on tap, null for the defaults.
+	 *                 Its query is replaced by the suggestion.
+	 */
+	public SuggestionSearchPrefetcher(SearchClient searchClient, SearchRequest template) {
+		if(template != null && template.isBrowse())
+			throw new IllegalArgumentException("Template must be a search");
+		this.searchClient = searchClient;
+		this.template = template;
+	}
+
+	/**
+	 * @param delayMillis Pause after an autosuggest response before searching. Defaults to 200.
+	 * @return this
+	 */
+	public SuggestionSearchPrefetcher setDelayMillis(long delayMillis){
+		this.delayMillis = delayMillis;
+
+		return this;
+	}
+
+	/**
+	 * @param suggestion Text of the suggestion, refer {@link AutoSuggestResult#getSuggestion()}
+	 * @return Search prefetched for the suggestion
+	 * @throws SearchException
+	 */
+	public SearchRequest getRequest(String suggestion) throws SearchException {
+		SearchRequest.Builder builder = template != null ? template.toBuilder() : SearchRequest.newBuilder();
+		return builder.search(suggestion, template != null ? template.getQueryParams() : null).build();
+	}
+
+	/**
+	 * @param response
+	 * @return Text of the top keyword suggestion or top query, null if the response has neither
+	 */
+	public static String getTopSuggestion(AutoSuggestResponse response){
+		if(response == null || response.getResults() == null)
+			return null;
+
+		AutoSuggestResult keyword = first(response.getResults().getKeywordSuggestions());
+		AutoSuggestResult query = first(response.getResults().getTopQueries());
+		if(keyword == null || query != null && score(query) > score(keyword))
+			keyword = query;
+		return keyword != null ? keyword.getSuggestion() : null;
+	}
+
+	private static AutoSuggestResult first(AutoSuggestResultSection section){
+		return section != null && section.getResultsCount() > 0 ? section.getAt(0) : null;
+	}
+
+	private static double score(AutoSuggestResult result){
+		Object score = result.getAttribute("unbxdAutosuggestScore");
+		return score instanceof Number ? ((Number) score).doubleValue() : 0;
+	}
+
+	/**
+	 * Called by the client before every autosuggest call. Cancels the search not started yet.
+	 * @return Generation of the call, to pass with its response
+	 */
+	synchronized long onRequest(){
+		if(pending != null && pending.cancel(false))
+			this.cancelled.incrementAndGet();
+		this.pending = null;
+
+		return ++this.generation;
+	}
+
+	/**
+	 * Called by the client with every autosuggest response
+	 * @param client
+	 * @param response
+	 * @param text true if the call read the response as text, like asynchronous calls do
+	 * @param generation Generation returned by {@link #onRequest()} for the call
+	 */
+	synchronized void onResponse(AutoSuggestClient client, AutoSuggestResponse response, final boolean text, final long generation){
+		// A response overtaken by a later call is stale
+		if(generation != this.generation)
+			return;
+
+		final HttpTransport transport = client.getTransport();
+		final long ttl = transport.getCacheTtl(Endpoint.SEARCH);
+		String suggestion = getTopSuggestion(response);
+		if(ttl <= 0 || suggestion == null)
+			return;
+
+		final SearchRequest request;
+		try{
+			request = this.getRequest(suggestion);
+		}catch (SearchException e){
+			return;
+		}
+
+		this.pending = transport.getScheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				boolean accepted = transport.executeInBackground(new Runnable() {
+					@Override
+					public void run() {
+						prefetch(request, text, generation, ttl);
+					}
+				});
+				if(!accepted)
+					cancelled.incrementAndGet();
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void prefetch(SearchRequest request, boolean text, long generation, long ttl){
+		Prefetch next = new Prefetch(request, text, generation, ttl);
+		synchronized (this){
+			if(generation != this.generation){
+				this.cancelled.incrementAndGet();
+				return;
+			}
+			// Runs after the current search, the newest one only
+			if(running){
+				if(queued != null)
+					this.cancelled.incrementAndGet();
+				this.queued = next;
+				return;
+			}
+			this.running = true;
+		}
+
+		Thread thread = Thread.currentThread();
+		int priority = thread.getPriority();
+		// Only a hint, refer the class. Restored, since the thread is pooled.
+		thread.setPriority(Thread.MIN_PRIORITY);
+		try{
+			while(next != null)
+				next = this.run(next);
+		}finally{
+			thread.setPriority(priority);
+		}
+	}
+
+	/**
+	 * @param prefetch
+	 * @return Search queued meanwhile, null if none, in which case nothing runs any longer
+	 */
+	private Prefetch run(Prefetch prefetch){
+		String url = (prefetch.text ? "text:" : "") + searchClient.getUrl(prefetch.request);
+		boolean skipped;
+		synchronized (this){
+			if(prefetch.generation != this.generation){
+				this.cancelled.incrementAndGet();
+				skipped = true;
+			}else{
+				// Still cached
+				skipped = url.equals(lastUrl) && System.currentTimeMillis() - lastFetchedAt < prefetch.ttl;
+			}
+		}
+
+		boolean fetched = false;
+		if(!skipped){
+			this.issued.incrementAndGet();
+			try{
+				this.searchClient.prefetch(prefetch.request, prefetch.text);
+				fetched = true;
+			}catch (SearchException e){
+				this.failed.incrementAndGet();
+				LOG.debug("Prefetch failed: " + e.getMessage());
+			}
+		}
+
+		synchronized (this){
+			if(fetched){
+				this.lastUrl = url;
+				this.lastFetchedAt = System.currentTimeMillis();
+			}
+			Prefetch next = this.queued;
+			this.queued = null;
+			if(next == null)
+				this.running = false;
+			return next;
+		}
+	}
+
+	/**
+	 * @return Searches made
+	 */
+	public long getIssued(){
+		return this.issued.get();
+	}
+
+	/**
+	 * @return Searches cancelled by a later autosuggest call or a later search waiting for the running one before
+	 * they were made, or refused by the background lane
+	 */
+	public long getCancelled(){
+		return this.cancelled.get();
+	}
+
+	/**
+	 * @return Searches which failed
+	 */
+	public long getFailed(){
+		return this.failed.get();
+	}
+
+	private static class Prefetch {
+
+		private final SearchRequest request;
+		private final boolean text;
+		private final long generation;
+		private final long ttl;
+
+		private Prefetch(SearchRequest request, boolean text, long generation, long ttl) {
+			this.request = request;
+			this.text = text;
+			this.generation = generation;
+			this.ttl = ttl;
+		}
+	}
+}
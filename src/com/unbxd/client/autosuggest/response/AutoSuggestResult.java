@@ -1,5 +1,9 @@
 package com.unbxd.client.autosuggest.response;
 
+import com.unbxd.client.schema.ProductRecord;
+import com.unbxd.client.schema.ProductSchema;
+
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -12,16 +16,18 @@ import java.util.Map;
 public class AutoSuggestResult {
 
 	private Map<String, Object> _attributes;
+	private volatile ProductRecord _record;
 
 	protected AutoSuggestResult(Map<String, Object> params) {
 		this._attributes = params;
 	}
 
 	/**
-	 * @return Attributes of the product
+	 * @return Read only attributes of the product. Nested lists and maps are read only too when decoded by the
+	 * clients, refer {@link com.unbxd.client.http.JsonDecoder}.
 	 */
 	public Map<String, Object> getAttributes(){
-		return this._attributes;
+		return Collections.unmodifiableMap(this._attributes);
 	}
 
 	/**
@@ -39,4 +45,17 @@ public class AutoSuggestResult {
 		return (String) this.getAttribute("autosuggest");
 	}
 
+	/**
+	 * @param schema
+	 * @return Attributes of the product decoded to the fields of the schema. Decoded once, later calls with the
+	 * same schema return the same record.
+	 */
+	public ProductRecord bind(ProductSchema schema){
+		ProductRecord record = this._record;
+		if(record == null || record.getSchema() != schema){
+			record = schema.bind(this._attributes);
+			this._record = record;
+		}
+		return record;
+	}
 }
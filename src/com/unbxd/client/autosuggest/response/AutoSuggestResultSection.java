@@ -3,6 +3,7 @@ package com.unbxd.client.autosuggest.response;
 import com.unbxd.client.autosuggest.AutoSuggestType;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -52,10 +53,10 @@ public class AutoSuggestResultSection {
 	}
 
 	/**
-	 * @return List of Auto suggest results. Refer {@link AutoSuggestResult}
+	 * @return Read only list of Auto suggest results. Refer {@link AutoSuggestResult}
 	 */
 	public List<AutoSuggestResult> getResults(){
-		return this._results;
+		return Collections.unmodifiableList(this._results);
 	}
 
 }
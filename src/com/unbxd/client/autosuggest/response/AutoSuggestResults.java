@@ -2,6 +2,7 @@ package com.unbxd.client.autosuggest.response;
 
 import com.unbxd.client.autosuggest.AutoSuggestType;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,10 +30,10 @@ public class AutoSuggestResults {
 	}
 
 	/**
-	 * @return Get response in sections. Map {@link AutoSuggestType} --> @{@link AutoSuggestResultSection}
+	 * @return Get response in sections. Read only map {@link AutoSuggestType} --> @{@link AutoSuggestResultSection}
 	 */
 	public Map<AutoSuggestType, AutoSuggestResultSection> getResultSections(){
-		return this._resultSections;
+		return Collections.unmodifiableMap(this._resultSections);
 	}
 
 	/**
@@ -0,0 +1,88 @@
+package com.unbxd.client.http;
+
+/**
+ * A parsed response kept by the {@link ResponseCache} along with the validators needed to revalidate it.
+ *
+ * The same instance is returned to every call served from the cache, concurrently too, so it must never be
+ * changed. Response classes only hand out read only views, and the maps and lists of their attributes are
+ * decoded read only, refer {@link JsonDecoder}.
+ */
+public class CachedResponse {
+
+	private final Object value;
+	private final ResponseParser<?> parser;
+	private final String etag;
+	private final String lastModified;
+	private volatile long expiresAtNanos;
+
+	/**
+	 * @param value Parsed response
+	 * @param etag Value of the ETag header, null if absent
+	 * @param lastModified Value of the Last-Modified header, null if absent
+	 * @param freshMillis Time for which the response can be used without asking the server
+	 */
+	public CachedResponse(Object value, String etag, String lastModified, long freshMillis) {
+		this(value, null, etag, lastModified, freshMillis);
+	}
+
+	/**
+	 * @param value Parsed response
+	 * @param parser Parser which produced value
+	 * @param etag Value of the ETag header, null if absent
+	 * @param lastModified Value of the Last-Modified header, null if absent
+	 * @param freshMillis Time for which the response can be used without asking the server
+	 */
+	public CachedResponse(Object value, ResponseParser<?> parser, String etag, String lastModified, long freshMillis) {
+		this.value = value;
+		this.parser = parser;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.refresh(freshMillis);
+	}
+
+	/**
+	 * @return Parsed response
+	 */
+	public Object getValue(){
+		return this.value;
+	}
+
+	/**
+	 * @param parser
+	 * @return true if the value can stand for the result of the parser, that is it was produced by an equal one.
+	 * Responses cached without their parser are assumed to.
+	 */
+	public boolean isParsedBy(ResponseParser<?> parser){
+		return this.parser == null || this.parser.equals(parser);
+	}
+
+	public String getETag(){
+		return this.etag;
+	}
+
+	public String getLastModified(){
+		return this.lastModified;
+	}
+
+	/**
+	 * @return true if the server can be asked whether the response changed
+	 */
+	public boolean hasValidators(){
+		return etag != null || lastModified != null;
+	}
+
+	/**
+	 * @return true if the response can be used without asking the server
+	 */
+	public boolean isFresh(){
+		return expiresAtNanos - System.nanoTime() > 0;
+	}
+
+	/**
+	 * Called when the server confirmed the response didn't change
+	 * @param freshMillis
+	 */
+	public void refresh(long freshMillis){
+		this.expiresAtNanos = System.nanoTime() + freshMillis * 1000000;
+	}
+}
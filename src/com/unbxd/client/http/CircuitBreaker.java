@@ -0,0 +1,185 @@
+package com.unbxd.client.http;
+
+/**
+ * Stops calling an endpoint once too many of the recent calls to it have failed or been slow.
+ *
+ * The breaker looks at the outcome of the last windowSize calls. When either the failure rate or the slow call
+ * rate crosses its threshold the breaker opens and calls fail fast with a {@link CircuitOpenException}.
+ * After openDurationMillis a few probe calls are let through; if they all succeed the breaker closes again,
+ * otherwise it stays open for another openDurationMillis.
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED,
+		OPEN,
+		HALF_OPEN
+	}
+
+	private final double failureRateThreshold;
+	private final long slowCallDurationMillis;
+	private final double slowCallRateThreshold;
+	private final int minimumCalls;
+	private final long openDurationMillis;
+	private final int halfOpenProbes;
+
+	private final boolean[] failed;
+	private final boolean[] slow;
+	private int position;
+	private int recorded;
+	private int failures;
+	private int slowCalls;
+
+	private State state;
+	private long openedAt;
+	private int probesLeft;
+	private int probesSucceeded;
+	private long rejectedCalls;
+
+	public CircuitBreaker() {
+		this(0.5, 3000, 0.8, 20, 10, 10000, 3);
+	}
+
+	/**
+	 * @param failureRateThreshold Fraction of failed calls in the window at which the breaker opens
+	 * @param slowCallDurationMillis Calls taking at least this long are slow
+	 * @param slowCallRateThreshold Fraction of slow calls in the window at which the breaker opens
+	 * @param windowSize Number of recent calls looked at
+	 * @param minimumCalls Calls to record before the rates are trusted
+	 * @param openDurationMillis Time to fail fast before probing the endpoint again
+	 * @param halfOpenProbes Number of probe calls which have to succeed to close the breaker
+	 */
+	public CircuitBreaker(double failureRateThreshold, long slowCallDurationMillis, double slowCallRateThreshold,
+						  int windowSize, int minimumCalls, long openDurationMillis, int halfOpenProbes) {
+		if(windowSize < 1 || halfOpenProbes < 1)
+			throw new IllegalArgumentException("windowSize and halfOpenProbes should be at least 1");
+
+		this.failureRateThreshold = failureRateThreshold;
+		this.slowCallDurationMillis = slowCallDurationMillis;
+		this.slowCallRateThreshold = slowCallRateThreshold;
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.openDurationMillis = openDurationMillis;
+		this.halfOpenProbes = halfOpenProbes;
+
+		this.failed = new boolean[windowSize];
+		this.slow = new boolean[windowSize];
+		this.state = State.CLOSED;
+	}
+
+	private static long now(){
+		return System.nanoTime() / 1000000;
+	}
+
+	/**
+	 * @return true if a call can be made. Every permitted call should be followed by {@link #onResult(boolean, long)}
+	 */
+	public synchronized boolean tryAcquirePermission(){
+		if(state == State.OPEN){
+			if(now() - openedAt < openDurationMillis){
+				rejectedCalls++;
+				return false;
+			}
+
+			this.state = State.HALF_OPEN;
+			this.probesLeft = halfOpenProbes;
+			this.probesSucceeded = 0;
+		}
+
+		if(state == State.HALF_OPEN){
+			if(probesLeft == 0){
+				rejectedCalls++;
+				return false;
+			}
+
+			probesLeft--;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gives back the permission of a call which didn't reach the endpoint, e.g. because no pooled connection was
+	 * free. Its outcome says nothing about the endpoint, a probe slot is handed back if the breaker is half open.
+	 */
+	public synchronized void releasePermission(){
+		if(state == State.HALF_OPEN && probesLeft < halfOpenProbes)
+			probesLeft++;
+	}
+
+	/**
+	 * Records the outcome of a permitted call
+	 * @param failure true if the call failed because of the endpoint
+	 * @param durationMillis Time taken by the call
+	 */
+	public synchronized void onResult(boolean failure, long durationMillis){
+		boolean slowCall = durationMillis >= slowCallDurationMillis;
+
+		if(state == State.HALF_OPEN){
+			if(failure || slowCall)
+				this.open();
+			else if(++probesSucceeded >= halfOpenProbes)
+				this.close();
+			return;
+		}
+
+		if(state == State.OPEN){
+			// Call was permitted before the breaker opened. Its outcome doesn't matter anymore.
+			return;
+		}
+
+		if(recorded == failed.length){
+			if(failed[position]) failures--;
+			if(slow[position]) slowCalls--;
+		}else{
+			recorded++;
+		}
+
+		failed[position] = failure;
+		slow[position] = slowCall;
+		if(failure) failures++;
+		if(slowCall) slowCalls++;
+		position = (position + 1) % failed.length;
+
+		if(recorded >= minimumCalls){
+			if((double) failures / recorded >= failureRateThreshold || (double) slowCalls / recorded >= slowCallRateThreshold)
+				this.open();
+		}
+	}
+
+	private void open(){
+		this.state = State.OPEN;
+		this.openedAt = now();
+	}
+
+	private void close(){
+		this.state = State.CLOSED;
+		this.position = 0;
+		this.recorded = 0;
+		this.failures = 0;
+		this.slowCalls = 0;
+	}
+
+	/**
+	 * @return Current state of the breaker
+	 */
+	public synchronized State getState(){
+		return this.state;
+	}
+
+	/**
+	 * @return Milliseconds before the breaker lets probe calls through, 0 if it isn't open
+	 */
+	public synchronized long getRemainingOpenMillis(){
+		if(state != State.OPEN)
+			return 0;
+
+		return Math.max(0, openDurationMillis - (now() - openedAt));
+	}
+
+	/**
+	 * @return Number of calls which failed fast because the breaker was open
+	 */
+	public synchronized long getRejectedCalls(){
+		return this.rejectedCalls;
+	}
+}
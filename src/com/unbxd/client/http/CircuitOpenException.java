@@ -0,0 +1,33 @@
+package com.unbxd.client.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown without making a call when the {@link CircuitBreaker} of an endpoint is open.
+ * Callers should fall back to cached or default results.
+ */
+public class CircuitOpenException extends IOException {
+
+	private Endpoint endpoint;
+	private long retryAfterMillis;
+
+	public CircuitOpenException(Endpoint endpoint, long retryAfterMillis) {
+		super("Circuit for " + endpoint + " is open, retry after " + retryAfterMillis + "ms");
+		this.endpoint = endpoint;
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * @return Endpoint which is failing fast
+	 */
+	public Endpoint getEndpoint(){
+		return this.endpoint;
+	}
+
+	/**
+	 * @return Milliseconds before calls to the endpoint are attempted again
+	 */
+	public long getRetryAfterMillis(){
+		return this.retryAfterMillis;
+	}
+}
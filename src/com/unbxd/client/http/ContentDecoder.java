@@ -0,0 +1,80 @@
+package com.unbxd.client.http;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Wraps a response body so that it is decompressed while it is being read.
+ */
+public class ContentDecoder {
+
+	/**
+	 * Value of the Accept-Encoding header sent with every request
+	 */
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private ContentDecoder(){}
+
+	/**
+	 * @param content Body as received
+	 * @param contentEncoding Value of the Content-Encoding header, null if absent
+	 * @return Stream of the decompressed body. Must be closed, refer {@link #close(InputStream)}, to release the
+	 * native memory of the inflater.
+	 * @throws IOException
+	 */
+	public static InputStream decode(InputStream content, String contentEncoding) throws IOException {
+		if(contentEncoding == null)
+			return content;
+
+		String encoding = contentEncoding.trim().toLowerCase();
+		if(encoding.equals("gzip") || encoding.equals("x-gzip"))
+			return new GZIPInputStream(content, BUFFER_SIZE);
+
+		if(encoding.equals("deflate"))
+			return inflate(content);
+
+		return content;
+	}
+
+	/**
+	 * "deflate" is supposed to be zlib wrapped but some servers send raw deflate. Look at the header to tell.
+	 */
+	private static InputStream inflate(InputStream content) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(content, BUFFER_SIZE);
+		buffered.mark(2);
+		int first = buffered.read();
+		int second = buffered.read();
+		buffered.reset();
+
+		boolean zlib = first != -1 && second != -1 && (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0;
+		return new InflaterInputStream(buffered, new Inflater(!zlib), BUFFER_SIZE) {
+			@Override
+			public void close() throws IOException {
+				// InflaterInputStream only ends inflaters it created itself
+				try{
+					super.close();
+				}finally{
+					inf.end();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Closes a decoded body, ending its inflater even if closing the underlying stream fails
+	 * @param decoded Stream returned by {@link #decode(InputStream, String)}
+	 */
+	public static void close(InputStream decoded){
+		try{
+			decoded.close();
+		}catch (IOException e){
+			// The connection is released or aborted by the caller either way
+		}
+	}
+}
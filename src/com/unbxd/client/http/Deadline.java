@@ -0,0 +1,46 @@
+package com.unbxd.client.http;
+
+/**
+ * Point in time by which a request has to be answered. Shared by all the attempts, hedges and the parsing
+ * of the request so that together they never take longer than the caller asked for.
+ */
+public class Deadline {
+
+	private final long expiresAtNanos;
+
+	private Deadline(long expiresAtNanos) {
+		this.expiresAtNanos = expiresAtNanos;
+	}
+
+	/**
+	 * @param millis
+	 * @return Deadline expiring these many milliseconds from now
+	 */
+	public static Deadline after(long millis){
+		return new Deadline(System.nanoTime() + millis * 1000000);
+	}
+
+	/**
+	 * @return Milliseconds left, 0 once expired
+	 */
+	public long getRemainingMillis(){
+		return Math.max(0, (expiresAtNanos - System.nanoTime()) / 1000000);
+	}
+
+	/**
+	 * @return true once the deadline has passed
+	 */
+	public boolean isExpired(){
+		return expiresAtNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * @param other
+	 * @return Whichever of the two deadlines expires first. Either can be null.
+	 */
+	public Deadline earliest(Deadline other){
+		if(other == null || expiresAtNanos - other.expiresAtNanos <= 0)
+			return this;
+		return other;
+	}
+}
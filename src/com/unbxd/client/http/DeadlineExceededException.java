@@ -0,0 +1,19 @@
+package com.unbxd.client.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request couldn't be completed before its {@link Deadline}. The cause, if any, is the
+ * failure of the attempt which was running when time ran out.
+ */
+public class DeadlineExceededException extends IOException {
+
+	public DeadlineExceededException() {
+		super("Deadline exceeded");
+	}
+
+	public DeadlineExceededException(Throwable cause) {
+		super("Deadline exceeded");
+		this.initCause(cause);
+	}
+}
@@ -0,0 +1,12 @@
+package com.unbxd.client.http;
+
+/**
+ * Endpoint families served by Unbxd. Transport level policies (retries etc.) can be overridden per endpoint.
+ */
+public enum Endpoint {
+	SEARCH,
+	BROWSE,
+	AUTOSUGGEST,
+	RECOMMENDATIONS,
+	TRACKER
+}
@@ -0,0 +1,91 @@
+package com.unbxd.client.http;
+
+import java.io.IOException;
+
+/**
+ * Follows requests through their life, e.g. to attribute latency in traces.
+ *
+ * Every event carries the {@link RequestInfo} of its request, whose id ties the events of a request together,
+ * and a System.nanoTime() timestamp taken when the event happened. Events of one attempt are delivered in order
+ * but may be delivered after the fact, and events of concurrent attempts or requests interleave.
+ *
+ * Methods do nothing by default, override the ones of interest. They are called on the thread executing the
+ * request and must return quickly and not throw.
+ */
+public abstract class EventListener {
+
+	public static final EventListener NONE = new EventListener() {
+	};
+
+	/**
+	 * @param info
+	 * @param url URL of the request
+	 * @param nanos
+	 */
+	public void urlBuilt(RequestInfo info, String url, long nanos){
+	}
+
+	/**
+	 * The request is waiting for a background thread
+	 */
+	public void enqueued(RequestInfo info, long nanos){
+	}
+
+	/**
+	 * The transport started executing the request
+	 */
+	public void callStarted(RequestInfo info, long nanos){
+	}
+
+	/**
+	 * The request was served from the response cache, without going to the network
+	 */
+	public void cacheHit(RequestInfo info, long nanos){
+	}
+
+	/**
+	 * @param attempt Attempt number, starting at 1. Hedges count as attempts.
+	 * @param reused true if the connection was taken idle from the pool, false if it was opened for this attempt
+	 */
+	public void connectionAcquired(RequestInfo info, int attempt, boolean reused, long nanos){
+	}
+
+	public void requestSent(RequestInfo info, int attempt, long nanos){
+	}
+
+	public void headersReceived(RequestInfo info, int attempt, int statusCode, long nanos){
+	}
+
+	/**
+	 * @param bytes Bytes of the body received from the network, compressed if it was
+	 */
+	public void bodyRead(RequestInfo info, int attempt, long bytes, long nanos){
+	}
+
+	/**
+	 * The body was parsed into the response object
+	 */
+	public void parsed(RequestInfo info, int attempt, long nanos){
+	}
+
+	public void attemptFailed(RequestInfo info, int attempt, IOException e, long nanos){
+	}
+
+	/**
+	 * The transport returned the response
+	 */
+	public void callEnded(RequestInfo info, long nanos){
+	}
+
+	/**
+	 * The transport gave up on the request
+	 */
+	public void callFailed(RequestInfo info, Throwable e, long nanos){
+	}
+
+	/**
+	 * The response, or the error, was handed to the {@link com.unbxd.client.AsyncResponse} of an asynchronous request
+	 */
+	public void delivered(RequestInfo info, long nanos){
+	}
+}
@@ -0,0 +1,47 @@
+package com.unbxd.client.http;
+
+/**
+ * Decides when a second, identical request should be sent for a request which is taking too long.
+ *
+ * The delay is the configured percentile of the latencies observed for the endpoint, bounded by
+ * minDelayMillis and maxDelayMillis. Until minSamples latencies have been observed maxDelayMillis is used.
+ */
+public class HedgePolicy {
+
+	private final double percentile;
+	private final long minDelayMillis;
+	private final long maxDelayMillis;
+	private final int minSamples;
+
+	public HedgePolicy(double percentile) {
+		this(percentile, 20, 1000, 50);
+	}
+
+	/**
+	 * @param percentile Between 0 and 1. 0.95 sends a hedge for the slowest 5% of requests
+	 * @param minDelayMillis Never hedge before this
+	 * @param maxDelayMillis Always hedge after this
+	 * @param minSamples Latencies to observe before trusting the percentile
+	 */
+	public HedgePolicy(double percentile, long minDelayMillis, long maxDelayMillis, int minSamples) {
+		if(percentile <= 0 || percentile > 1)
+			throw new IllegalArgumentException("percentile should be between 0 and 1");
+
+		this.percentile = percentile;
+		this.minDelayMillis = minDelayMillis;
+		this.maxDelayMillis = Math.max(minDelayMillis, maxDelayMillis);
+		this.minSamples = minSamples;
+	}
+
+	/**
+	 * @param latencies Latencies observed for the endpoint
+	 * @return Milliseconds to wait for the first request before sending the hedge
+	 */
+	public long getDelayMillis(LatencyHistogram latencies){
+		if(latencies.getCount() < minSamples)
+			return maxDelayMillis;
+
+		long delay = latencies.getPercentile(percentile);
+		return Math.min(maxDelayMillis, Math.max(minDelayMillis, delay));
+	}
+}
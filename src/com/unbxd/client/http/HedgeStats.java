@@ -0,0 +1,34 @@
+package com.unbxd.client.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of hedged requests for an endpoint.
+ */
+public class HedgeStats {
+
+	private final AtomicLong hedges = new AtomicLong();
+	private final AtomicLong hedgesWon = new AtomicLong();
+
+	protected void onHedge(){
+		this.hedges.incrementAndGet();
+	}
+
+	protected void onHedgeWon(){
+		this.hedgesWon.incrementAndGet();
+	}
+
+	/**
+	 * @return Number of hedges sent
+	 */
+	public long getHedges(){
+		return this.hedges.get();
+	}
+
+	/**
+	 * @return Number of hedges which responded before the request they were hedging
+	 */
+	public long getHedgesWon(){
+		return this.hedgesWon.get();
+	}
+}
@@ -0,0 +1,23 @@
+package com.unbxd.client.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when Unbxd responds with anything but 200 OK. Message is the body of the response.
+ */
+public class HttpStatusException extends IOException {
+
+	private int statusCode;
+
+	public HttpStatusException(int statusCode, String body) {
+		super(body);
+		this.statusCode = statusCode;
+	}
+
+	/**
+	 * @return HTTP status code of the response
+	 */
+	public int getStatusCode(){
+		return this.statusCode;
+	}
+}
@@ -0,0 +1,1064 @@
+package com.unbxd.client.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.params.ConnRouteParams;
+import org.apache.http.conn.params.ConnRoutePNames;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonProcessingException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes GET requests for all the clients over a shared connection pool.
+ *
+ * Failed attempts are retried as per the {@link RetryPolicy} of the endpoint, as long as the
+ * {@link RetryBudget} allows it. Only GETs are issued so every attempt is safe to repeat. Tracker calls
+ * are not retried by default since a repeated beacon would count the event twice.
+ *
+ * Endpoints with a {@link HedgePolicy} send a second request on another pooled connection when the first
+ * one is slower than what the endpoint usually takes. Whichever responds first wins and the other is aborted.
+ * Hedges are paid for from the same {@link RetryBudget} as retries.
+ *
+ * Every endpoint family has its own {@link CircuitBreaker}. While it is open requests fail fast with a
+ * {@link CircuitOpenException} instead of waiting on a degraded endpoint.
+ *
+ * Each attempt is bounded by the {@link Timeouts} of its endpoint. A request can also carry a {@link Deadline},
+ * either its own or the default one of the endpoint, which bounds all its attempts, hedges, backoffs and the
+ * parsing of the response. Running out of time is reported as a {@link DeadlineExceededException}.
+ *
+ * Responses are requested compressed and are decompressed while the parser reads them, so a body is never
+ * held in memory as a whole.
+ *
+ * Parsed responses of cached endpoints are kept in a {@link ResponseCache} along with their ETag and
+ * Last-Modified. Stale ones are revalidated with a conditional GET and reused as is on 304 Not Modified.
+ * Callers served from the cache share one parsed instance, which must be treated as read only.
+ *
+ * Every request is timed phase by phase and accounted for per operation in the {@link MetricsRegistry}.
+ */
+public class HttpTransport {
+
+	private static final Logger LOG = Logger.getLogger(HttpTransport.class);
+
+	// Search, browse and autosuggest share one route. Sized for a bucket fan-out or a batch with hedges in flight
+	// while the user keeps typing, waiting for a connection is local queueing rather than an endpoint failure.
+	private static final int MAX_CONNECTIONS = 32;
+	private static final int MAX_CONNECTIONS_PER_ROUTE = 16;
+
+	/**
+	 * Background requests running at most at once, refer {@link #executeInBackground(Runnable)}
+	 */
+	public static final int MAX_BACKGROUND_REQUESTS = 2;
+
+	/**
+	 * Background requests waiting at most for a thread
+	 */
+	public static final int MAX_QUEUED_BACKGROUND_REQUESTS = 8;
+
+	private static final String CONNECTION_ACQUIRED_AT = "unbxd.connection-acquired-at";
+	private static final String CONNECTION_REUSED = "unbxd.connection-reused";
+	private static final String REQUEST_SENT_AT = "unbxd.request-sent-at";
+	private static final String NOT_SENT = "unbxd.not-sent";
+
+	/**
+	 * Reads responses as text, refer {@link #readString(InputStream)}
+	 */
+	public static final ResponseParser<String> STRING_PARSER = new ResponseParser<String>() {
+		@Override
+		public String parse(InputStream content) throws IOException {
+			return readString(content);
+		}
+	};
+
+	private static HttpTransport instance = null;
+
+	private final DefaultHttpClient client;
+	private final ExecutorService executor;
+	private final ScheduledExecutorService scheduler;
+	private final ThreadPoolExecutor background;
+	private final AtomicLong backgroundRejected;
+	private final Map<Endpoint, RetryPolicy> retryPolicies;
+	private final Map<Endpoint, RetryStats> retryStats;
+	private final Map<Endpoint, HedgePolicy> hedgePolicies;
+	private final Map<Endpoint, HedgeStats> hedgeStats;
+	private final Map<Endpoint, LatencyHistogram> latencies;
+	private final Map<Endpoint, CircuitBreaker> circuitBreakers;
+	private final Map<Endpoint, Timeouts> timeouts;
+	private final Map<Endpoint, Long> deadlines;
+	private final Map<Endpoint, Long> cacheTtls;
+	private final Random random;
+	private final MetricsRegistry metrics;
+	private final StringPool stringPool;
+
+	private volatile RetryPolicy defaultRetryPolicy;
+	private volatile Timeouts defaultTimeouts;
+	private volatile ResponseCache responseCache;
+	private volatile RetryBudget retryBudget;
+	private volatile EventListener eventListener;
+
+	/**
+	 * @return Transport shared by all the clients
+	 */
+	public static synchronized HttpTransport getInstance(){
+		if(instance == null)
+			instance = new HttpTransport();
+		return instance;
+	}
+
+	public HttpTransport() {
+		this.client = createClient();
+		this.executor = Executors.newCachedThreadPool(new TransportThreadFactory("unbxd-transport-"));
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new TransportThreadFactory("unbxd-transport-"));
+		this.background = new ThreadPoolExecutor(MAX_BACKGROUND_REQUESTS, MAX_BACKGROUND_REQUESTS, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(MAX_QUEUED_BACKGROUND_REQUESTS), new TransportThreadFactory("unbxd-background-"));
+		this.background.allowCoreThreadTimeOut(true);
+		this.backgroundRejected = new AtomicLong();
+		this.random = new Random();
+		this.metrics = new MetricsRegistry();
+		this.stringPool = new StringPool(4096);
+		this.eventListener = EventListener.NONE;
+
+		this.defaultRetryPolicy = RetryPolicy.DEFAULT;
+		this.defaultTimeouts = Timeouts.DEFAULT;
+		this.retryBudget = new RetryBudget(0.1, 10);
+
+		this.retryPolicies = new ConcurrentHashMap<Endpoint, RetryPolicy>();
+		this.retryPolicies.put(Endpoint.TRACKER, RetryPolicy.NONE);
+
+		this.hedgePolicies = new ConcurrentHashMap<Endpoint, HedgePolicy>();
+		this.circuitBreakers = new ConcurrentHashMap<Endpoint, CircuitBreaker>();
+		this.timeouts = new ConcurrentHashMap<Endpoint, Timeouts>();
+		this.deadlines = new ConcurrentHashMap<Endpoint, Long>();
+
+		this.responseCache = new ResponseCache(64);
+		this.cacheTtls = new ConcurrentHashMap<Endpoint, Long>();
+		this.cacheTtls.put(Endpoint.BROWSE, 0L);
+		this.cacheTtls.put(Endpoint.RECOMMENDATIONS, 0L);
+
+		this.retryStats = new EnumMap<Endpoint, RetryStats>(Endpoint.class);
+		this.hedgeStats = new EnumMap<Endpoint, HedgeStats>(Endpoint.class);
+		this.latencies = new EnumMap<Endpoint, LatencyHistogram>(Endpoint.class);
+		for(Endpoint endpoint : Endpoint.values()){
+			this.retryStats.put(endpoint, new RetryStats());
+			this.hedgeStats.put(endpoint, new HedgeStats());
+			this.latencies.put(endpoint, new LatencyHistogram());
+			this.circuitBreakers.put(endpoint, new CircuitBreaker());
+		}
+	}
+
+	private static DefaultHttpClient createClient(){
+		SchemeRegistry registry = new SchemeRegistry();
+		registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+		registry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+		HttpParams params = new BasicHttpParams();
+		ConnManagerParams.setMaxTotalConnections(params, MAX_CONNECTIONS);
+		ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(MAX_CONNECTIONS_PER_ROUTE));
+
+		ClientConnectionManager connectionManager = new ThreadSafeClientConnManager(params, registry);
+		DefaultHttpClient client = new DefaultHttpClient(connectionManager, params) {
+			@Override
+			protected HttpRequestExecutor createRequestExecutor() {
+				return new TimingRequestExecutor();
+			}
+		};
+
+		// Retries are decided by the RetryPolicy. Don't let HttpClient retry underneath it.
+		client.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+
+		return client;
+	}
+
+	/**
+	 * Sets the listener following requests through their life. Only one listener can be set,
+	 * compose several listeners into one if needed.
+	 * @param eventListener null to stop following requests
+	 * @return this
+	 */
+	public HttpTransport setEventListener(EventListener eventListener){
+		this.eventListener = eventListener != null ? eventListener : EventListener.NONE;
+
+		return this;
+	}
+
+	/**
+	 * @return Listener following requests through their life, {@link EventListener#NONE} if none is set
+	 */
+	public EventListener getEventListener(){
+		return this.eventListener;
+	}
+
+	/**
+	 * Sets the retry policy for endpoints which don't have one of their own
+	 * @param retryPolicy
+	 * @return this
+	 */
+	public HttpTransport setRetryPolicy(RetryPolicy retryPolicy){
+		this.defaultRetryPolicy = retryPolicy;
+
+		return this;
+	}
+
+	/**
+	 * Overrides the retry policy for an endpoint
+	 * @param endpoint
+	 * @param retryPolicy null to fall back to the default policy
+	 * @return this
+	 */
+	public HttpTransport setRetryPolicy(Endpoint endpoint, RetryPolicy retryPolicy){
+		if(retryPolicy == null)
+			this.retryPolicies.remove(endpoint);
+		else
+			this.retryPolicies.put(endpoint, retryPolicy);
+
+		return this;
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Retry policy in effect for the endpoint
+	 */
+	public RetryPolicy getRetryPolicy(Endpoint endpoint){
+		RetryPolicy retryPolicy = this.retryPolicies.get(endpoint);
+		return retryPolicy != null ? retryPolicy : this.defaultRetryPolicy;
+	}
+
+	/**
+	 * Sets the budget shared by retries of all the endpoints
+	 * @param retryBudget
+	 * @return this
+	 */
+	public HttpTransport setRetryBudget(RetryBudget retryBudget){
+		this.retryBudget = retryBudget;
+
+		return this;
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Attempts made per request for the endpoint. Refer {@link RetryStats}
+	 */
+	public RetryStats getRetryStats(Endpoint endpoint){
+		return this.retryStats.get(endpoint);
+	}
+
+	/**
+	 * Enables hedging for an endpoint. Disabled for all endpoints by default.
+	 * @param endpoint
+	 * @param hedgePolicy null to disable hedging
+	 * @return this
+	 */
+	public HttpTransport setHedgePolicy(Endpoint endpoint, HedgePolicy hedgePolicy){
+		if(hedgePolicy == null)
+			this.hedgePolicies.remove(endpoint);
+		else
+			this.hedgePolicies.put(endpoint, hedgePolicy);
+
+		return this;
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Hedges sent for the endpoint. Refer {@link HedgeStats}
+	 */
+	public HedgeStats getHedgeStats(Endpoint endpoint){
+		return this.hedgeStats.get(endpoint);
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Latencies of successful requests to the endpoint
+	 */
+	public LatencyHistogram getLatencies(Endpoint endpoint){
+		return this.latencies.get(endpoint);
+	}
+
+	/**
+	 * Routes all requests through an HTTP proxy, e.g. a debugging proxy or a local stand-in server
+	 * @param host null to connect directly
+	 * @param port
+	 * @return this
+	 */
+	public HttpTransport setProxy(String host, int port){
+		if(host == null)
+			this.client.getParams().removeParameter(ConnRoutePNames.DEFAULT_PROXY);
+		else
+			ConnRouteParams.setDefaultProxy(this.client.getParams(), new HttpHost(host, port));
+
+		return this;
+	}
+
+	/**
+	 * Releases the pooled connections and the background threads. The transport can't be used afterwards.
+	 */
+	public void shutdown(){
+		this.executor.shutdownNow();
+		this.scheduler.shutdownNow();
+		this.background.shutdownNow();
+		this.client.getConnectionManager().shutdown();
+	}
+
+	/**
+	 * @return Client side metrics of the requests of this transport
+	 */
+	public MetricsRegistry getMetrics(){
+		return this.metrics;
+	}
+
+	/**
+	 * @return Pool of the strings of the responses parsed by the clients of this transport, refer
+	 * {@link JsonResponseParser}
+	 */
+	public StringPool getStringPool(){
+		return this.stringPool;
+	}
+
+	/**
+	 * @return Executor running the transport's background work, for callers fanning out requests on behalf of
+	 * the user. Speculative requests go to {@link #executeInBackground(Runnable)}.
+	 */
+	public ExecutorService getExecutor(){
+		return this.executor;
+	}
+
+	/**
+	 * @return Scheduler of the transport's timers, for callers delaying background work. Tasks must be short,
+	 * requests should be handed over to {@link #getExecutor()} or {@link #executeInBackground(Runnable)}.
+	 */
+	public ScheduledExecutorService getScheduler(){
+		return this.scheduler;
+	}
+
+	/**
+	 * Runs a request nobody waits for, e.g. a prefetch or a refresh, in a lane of its own so it doesn't compete
+	 * with the user's requests for threads and connections. At most {@link #MAX_BACKGROUND_REQUESTS} run at once
+	 * and {@link #MAX_QUEUED_BACKGROUND_REQUESTS} wait, further ones are refused rather than queued.
+	 * @param task
+	 * @return false if the task was refused, the caller should give it up
+	 */
+	public boolean executeInBackground(Runnable task){
+		try{
+			this.background.execute(task);
+			return true;
+		}catch (RejectedExecutionException e){
+			this.backgroundRejected.incrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * @return Background requests refused since the transport was created, refer {@link #executeInBackground(Runnable)}
+	 */
+	public long getBackgroundRejected(){
+		return this.backgroundRejected.get();
+	}
+
+	/**
+	 * Replaces the circuit breaker of an endpoint
+	 * @param endpoint
+	 * @param circuitBreaker
+	 * @return this
+	 */
+	public HttpTransport setCircuitBreaker(Endpoint endpoint, CircuitBreaker circuitBreaker){
+		this.circuitBreakers.put(endpoint, circuitBreaker);
+
+		return this;
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Circuit breaker guarding the endpoint
+	 */
+	public CircuitBreaker getCircuitBreaker(Endpoint endpoint){
+		return this.circuitBreakers.get(endpoint);
+	}
+
+	/**
+	 * Sets the timeouts for endpoints which don't have their own
+	 * @param timeouts
+	 * @return this
+	 */
+	public HttpTransport setTimeouts(Timeouts timeouts){
+		this.defaultTimeouts = timeouts;
+
+		return this;
+	}
+
+	/**
+	 * Overrides the timeouts of an endpoint
+	 * @param endpoint
+	 * @param timeouts null to fall back to the default timeouts
+	 * @return this
+	 */
+	public HttpTransport setTimeouts(Endpoint endpoint, Timeouts timeouts){
+		if(timeouts == null)
+			this.timeouts.remove(endpoint);
+		else
+			this.timeouts.put(endpoint, timeouts);
+
+		return this;
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Timeouts in effect for the endpoint
+	 */
+	public Timeouts getTimeouts(Endpoint endpoint){
+		Timeouts timeouts = this.timeouts.get(endpoint);
+		return timeouts != null ? timeouts : this.defaultTimeouts;
+	}
+
+	/**
+	 * Bounds every request to an endpoint which doesn't carry a deadline of its own
+	 * @param endpoint
+	 * @param deadlineMillis Time allowed per request, 0 for no deadline
+	 * @return this
+	 */
+	public HttpTransport setDeadline(Endpoint endpoint, long deadlineMillis){
+		if(deadlineMillis <= 0)
+			this.deadlines.remove(endpoint);
+		else
+			this.deadlines.put(endpoint, deadlineMillis);
+
+		return this;
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Deadline for a request to the endpoint starting now, null if the endpoint has no default deadline
+	 */
+	public Deadline newDeadline(Endpoint endpoint){
+		Long deadlineMillis = this.deadlines.get(endpoint);
+		return deadlineMillis != null ? Deadline.after(deadlineMillis) : null;
+	}
+
+	/**
+	 * Replaces the cache shared by all the endpoints
+	 * @param responseCache
+	 * @return this
+	 */
+	public HttpTransport setResponseCache(ResponseCache responseCache){
+		this.responseCache = responseCache;
+
+		return this;
+	}
+
+	/**
+	 * @return Cache of parsed responses. Refer {@link ResponseCache}
+	 */
+	public ResponseCache getResponseCache(){
+		return this.responseCache;
+	}
+
+	/**
+	 * Caches the responses of an endpoint. A response stays fresh for as long as the server allows through
+	 * Cache-Control: max-age, or for ttlMillis if the server doesn't say. With a ttl of 0 cached responses are
+	 * always revalidated, which only helps if the endpoint sends an ETag or Last-Modified.
+	 * Browse and recommendations are cached with a ttl of 0 by default.
+	 * @param endpoint
+	 * @param ttlMillis -1 to stop caching the endpoint
+	 * @return this
+	 */
+	public HttpTransport setCacheTtl(Endpoint endpoint, long ttlMillis){
+		if(endpoint == Endpoint.TRACKER)
+			throw new IllegalArgumentException("Tracker calls can't be cached");
+
+		if(ttlMillis < 0)
+			this.cacheTtls.remove(endpoint);
+		else
+			this.cacheTtls.put(endpoint, ttlMillis);
+
+		return this;
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Cache ttl of the endpoint in milliseconds, -1 if its responses aren't cached
+	 */
+	public long getCacheTtl(Endpoint endpoint){
+		Long ttl = this.cacheTtls.get(endpoint);
+		return ttl != null ? ttl : -1;
+	}
+
+	/**
+	 * Executes a GET, retrying it if needed. Bounded by the default deadline of the endpoint, if any.
+	 *
+	 * @param endpoint Endpoint family the url belongs to
+	 * @param url
+	 * @param parser Parser for the body of a successful response
+	 * @return Parsed response
+	 * @throws HttpStatusException If the last attempt didn't respond with 200 OK
+	 * @throws CircuitOpenException If the endpoint is failing fast
+	 * @throws DeadlineExceededException If the request ran out of time
+	 * @throws IOException If the last attempt failed
+	 */
+	public <T> T execute(Endpoint endpoint, String url, ResponseParser<T> parser) throws IOException {
+		return this.execute(endpoint, url, parser, null);
+	}
+
+	/**
+	 * Executes a GET, retrying it if needed.
+	 *
+	 * @param endpoint Endpoint family the url belongs to
+	 * @param url
+	 * @param parser Parser for the body of a successful response
+	 * @param deadline Deadline of the request. null to use the default deadline of the endpoint
+	 * @return Parsed response
+	 * @throws HttpStatusException If the last attempt didn't respond with 200 OK
+	 * @throws CircuitOpenException If the endpoint is failing fast
+	 * @throws DeadlineExceededException If the request ran out of time
+	 * @throws IOException If the last attempt failed
+	 */
+	public <T> T execute(Endpoint endpoint, String url, ResponseParser<T> parser, Deadline deadline) throws IOException {
+		return this.execute(RequestInfo.of(endpoint), url, parser, deadline);
+	}
+
+	/**
+	 * Executes a GET, retrying it if needed, and records its {@link RequestMetrics}.
+	 *
+	 * @param info Endpoint family and operation of the request
+	 * @param url
+	 * @param parser Parser for the body of a successful response
+	 * @param deadline Deadline of the request. null to use the default deadline of the endpoint
+	 * @return Parsed response
+	 * @throws HttpStatusException If the last attempt didn't respond with 200 OK
+	 * @throws CircuitOpenException If the endpoint is failing fast
+	 * @throws DeadlineExceededException If the request ran out of time
+	 * @throws IOException If the last attempt failed
+	 */
+	public <T> T execute(RequestInfo info, String url, ResponseParser<T> parser, Deadline deadline) throws IOException {
+		EventListener eventListener = this.eventListener;
+		RequestMetrics requestMetrics = new RequestMetrics(info);
+		long start = System.nanoTime();
+		if(info.getEnqueuedNanos() != 0)
+			requestMetrics.setPhaseNanos(RequestMetrics.Phase.QUEUE, start - info.getEnqueuedNanos());
+		else
+			eventListener.urlBuilt(info, url, info.getCreatedNanos());
+		eventListener.callStarted(info, start);
+
+		try{
+			T result = this.execute(info, url, parser, deadline, requestMetrics, eventListener);
+			eventListener.callEnded(info, System.nanoTime());
+			return result;
+		}catch (IOException e){
+			requestMetrics.onFailure(e);
+			eventListener.callFailed(info, e, System.nanoTime());
+			throw e;
+		}catch (RuntimeException e){
+			requestMetrics.onFailure(e);
+			eventListener.callFailed(info, e, System.nanoTime());
+			throw e;
+		}finally{
+			long end = System.nanoTime();
+			requestMetrics.setPhaseNanos(RequestMetrics.Phase.TOTAL,
+					end - (info.getEnqueuedNanos() != 0 ? info.getEnqueuedNanos() : start));
+			this.metrics.record(requestMetrics);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T execute(RequestInfo info, String url, ResponseParser<T> parser, Deadline deadline,
+						  RequestMetrics requestMetrics, EventListener eventListener) throws IOException {
+		Endpoint endpoint = info.getEndpoint();
+		if(deadline == null)
+			deadline = this.newDeadline(endpoint);
+
+		Long cacheTtl = this.cacheTtls.get(endpoint);
+		ResponseCache responseCache = cacheTtl != null ? this.responseCache : null;
+		CachedResponse cached = null;
+		if(responseCache != null){
+			cached = responseCache.get(url);
+			// An entry from another parser, e.g. the url read as text by RequestManager, holds another type
+			if(cached != null && !cached.isParsedBy(parser))
+				cached = null;
+			if(cached != null && cached.isFresh()){
+				responseCache.onHit();
+				requestMetrics.setCacheOutcome(RequestMetrics.CacheOutcome.HIT);
+				eventListener.cacheHit(info, System.nanoTime());
+				return (T) cached.getValue();
+			}
+			if(cached != null && !cached.hasValidators())
+				cached = null;
+		}
+
+		Call<T> call = new Call<T>(info, url, parser, this.getTimeouts(endpoint), deadline,
+				responseCache, cached, cacheTtl != null ? cacheTtl : -1, requestMetrics, eventListener);
+
+		RetryPolicy retryPolicy = this.getRetryPolicy(endpoint);
+		HedgePolicy hedgePolicy = this.hedgePolicies.get(endpoint);
+		CircuitBreaker circuitBreaker = this.circuitBreakers.get(endpoint);
+		RetryBudget retryBudget = this.retryBudget;
+		retryBudget.onRequest();
+
+		int attempt = 0;
+		try{
+			while(true){
+				if(deadline != null && deadline.isExpired())
+					throw new DeadlineExceededException();
+
+				if(!circuitBreaker.tryAcquirePermission())
+					throw new CircuitOpenException(endpoint, circuitBreaker.getRemainingOpenMillis());
+
+				attempt++;
+				long start = System.nanoTime();
+				try{
+					T result = hedgePolicy != null
+							? this.executeHedged(call, hedgePolicy, retryBudget)
+							: this.executeOnce(call, new HttpGet(url));
+					long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+					circuitBreaker.onResult(false, elapsed);
+					this.latencies.get(endpoint).record(elapsed);
+
+					return result;
+				}catch (ConnectionPoolTimeoutException e){
+					// All the connections of the route are busy, the endpoint wasn't asked. Retrying would only
+					// queue again, and it mustn't count against the endpoint.
+					circuitBreaker.releasePermission();
+					throw e;
+				}catch (IOException e){
+					circuitBreaker.onResult(isEndpointFailure(e), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+					if(!retryPolicy.shouldRetry(attempt, e))
+						throw e;
+
+					if(!retryBudget.tryAcquire()){
+						this.retryStats.get(endpoint).onBudgetExhausted();
+						throw e;
+					}
+
+					long backoff = retryPolicy.getBackoffMillis(attempt, random);
+					if(deadline != null && backoff >= deadline.getRemainingMillis())
+						throw e;
+
+					LOG.warn("Attempt " + attempt + " for " + endpoint + " failed, retrying in " + backoff + "ms : " + e.getMessage());
+					sleep(backoff);
+				}catch (RuntimeException e){
+					// e.g. a body the parser couldn't map. Like a parse error, it doesn't count against the endpoint,
+					// but the permission must still be accounted for, or a half open breaker would wait for this
+					// probe forever.
+					circuitBreaker.onResult(false, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+					throw e;
+				}
+			}
+		}finally{
+			requestMetrics.setAttempts(attempt);
+			this.retryStats.get(endpoint).onRequestComplete(attempt);
+		}
+	}
+
+	/**
+	 * Failures which say something about the health of the endpoint, as opposed to problems with the request.
+	 */
+	private static boolean isEndpointFailure(IOException e){
+		if(e instanceof HttpStatusException){
+			int statusCode = ((HttpStatusException) e).getStatusCode();
+			return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+		}
+
+		// A response we couldn't parse, or a caller who gave up waiting, doesn't mean the endpoint is unhealthy.
+		// Slowness is still accounted for through the duration of the call.
+		return !(e instanceof JsonProcessingException) && !(e instanceof DeadlineExceededException)
+				&& !Thread.currentThread().isInterrupted();
+	}
+
+	private <T> T executeHedged(Call<T> call, HedgePolicy hedgePolicy, RetryBudget retryBudget) throws IOException {
+		Deadline deadline = call.deadline;
+		long delay = hedgePolicy.getDelayMillis(this.latencies.get(call.info.getEndpoint()));
+		if(deadline != null)
+			delay = Math.min(delay, deadline.getRemainingMillis());
+
+		CompletionService<T> completionService = new ExecutorCompletionService<T>(executor);
+		HttpGet[] requests = new HttpGet[]{new HttpGet(call.url), null};
+		Future<?>[] futures = new Future<?>[2];
+		Future<T> winner = null;
+
+		futures[0] = completionService.submit(attempt(call, requests[0]));
+		try{
+			int pending = 1;
+			Future<T> done = completionService.poll(delay, TimeUnit.MILLISECONDS);
+			if(done == null && (deadline == null || !deadline.isExpired()) && retryBudget.tryAcquire()){
+				requests[1] = new HttpGet(call.url);
+				futures[1] = completionService.submit(attempt(call, requests[1]));
+				this.hedgeStats.get(call.info.getEndpoint()).onHedge();
+				pending++;
+			}
+
+			IOException failure = null;
+			while(pending > 0){
+				if(done == null)
+					done = completionService.take();
+				pending--;
+
+				try{
+					T result = done.get();
+					winner = done;
+					if(done == futures[1])
+						this.hedgeStats.get(call.info.getEndpoint()).onHedgeWon();
+
+					return result;
+				}catch (ExecutionException e){
+					// Keep waiting for the other request, it may still succeed.
+					failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause().getMessage());
+					done = null;
+				}
+			}
+			throw failure;
+		}catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for response");
+		}finally{
+			for(int i = 0; i < futures.length; i++){
+				if(futures[i] != null && futures[i] != winner){
+					futures[i].cancel(true);
+					requests[i].abort();
+				}
+			}
+		}
+	}
+
+	private <T> Callable<T> attempt(final Call<T> call, final HttpGet get){
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return executeOnce(call, get);
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T executeOnce(final Call<T> call, final HttpGet get) throws IOException {
+		Deadline deadline = call.deadline;
+		int connectTimeout = call.timeouts.getConnectTimeoutMillis();
+		int readTimeout = call.timeouts.getReadTimeoutMillis();
+		ScheduledFuture<?> watchdog = null;
+		HttpContext context = new BasicHttpContext();
+
+		if(deadline != null){
+			long remaining = deadline.getRemainingMillis();
+			if(remaining <= 0)
+				throw new DeadlineExceededException();
+
+			connectTimeout = (int) Math.min(connectTimeout, remaining);
+			readTimeout = (int) Math.min(readTimeout, remaining);
+
+			// Socket timeouts bound each read, not the whole response. Abort whatever is still running at the deadline.
+			// Waiting for a pooled connection and connecting are bounded by the connect timeout already, and must
+			// fail with their own exception, the pool timeout in particular. The request just isn't sent then.
+			final AtomicBoolean notSent = new AtomicBoolean(true);
+			context.setAttribute(NOT_SENT, notSent);
+			watchdog = scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if(!notSent.compareAndSet(true, false))
+						get.abort();
+				}
+			}, remaining, TimeUnit.MILLISECONDS);
+		}
+
+		get.setHeader("Accept-Encoding", ContentDecoder.ACCEPT_ENCODING);
+		if(call.cached != null){
+			if(call.cached.getETag() != null)
+				get.setHeader("If-None-Match", call.cached.getETag());
+			if(call.cached.getLastModified() != null)
+				get.setHeader("If-Modified-Since", call.cached.getLastModified());
+		}
+
+		HttpParams params = get.getParams();
+		ConnManagerParams.setTimeout(params, connectTimeout);
+		HttpConnectionParams.setConnectionTimeout(params, connectTimeout);
+		HttpConnectionParams.setSoTimeout(params, readTimeout);
+
+		int attempt = call.attempts.incrementAndGet();
+		boolean consumed = false;
+		boolean connected = false;
+		InputStream decoded = null;
+		long start = System.nanoTime();
+		try{
+			HttpResponse response = client.execute(get, context);
+			long headersAt = System.nanoTime();
+			Long acquiredAt = (Long) context.getAttribute(CONNECTION_ACQUIRED_AT);
+			long connectNanos = acquiredAt != null ? acquiredAt - start : -1;
+			long ttfbNanos = acquiredAt != null ? headersAt - acquiredAt : headersAt - start;
+			HttpEntity entity = response.getEntity();
+
+			int statusCode = response.getStatusLine().getStatusCode();
+			connected = onConnected(call, attempt, context);
+			call.eventListener.headersReceived(call.info, attempt, statusCode, headersAt);
+			if(statusCode == HttpStatus.SC_NOT_MODIFIED && call.cached != null){
+				if(entity != null)
+					entity.consumeContent();
+				consumed = true;
+
+				call.cached.refresh(Math.max(0, freshnessOf(response, call.cacheTtl)));
+				call.responseCache.onRevalidated();
+				call.metrics.onAttemptCompleted(connectNanos, ttfbNanos, 0, 0, 0);
+				call.metrics.setCacheOutcome(RequestMetrics.CacheOutcome.REVALIDATED);
+				return (T) call.cached.getValue();
+			}
+
+			if(statusCode != HttpStatus.SC_OK){
+				if(entity == null)
+					throw new HttpStatusException(statusCode, "");
+				decoded = decode(entity);
+				throw new HttpStatusException(statusCode, readString(decoded));
+			}
+
+			MeteredInputStream content = new MeteredInputStream(entity.getContent());
+			decoded = decode(content, entity);
+			T result = call.parser.parse(decoded);
+			entity.consumeContent();
+			consumed = true;
+			long parsedAt = System.nanoTime();
+
+			long downloadNanos = content.getReadNanos();
+			call.metrics.onAttemptCompleted(connectNanos, ttfbNanos, downloadNanos,
+					parsedAt - headersAt - downloadNanos, content.getBytes());
+			// Parsers may stop short of the end of the body, in which case consumeContent() read the rest.
+			call.eventListener.bodyRead(call.info, attempt, content.getBytes(),
+					content.getEndNanos() != 0 ? content.getEndNanos() : parsedAt);
+			call.eventListener.parsed(call.info, attempt, parsedAt);
+
+			if(call.responseCache != null)
+				this.store(call, response, result);
+
+			return result;
+		}catch (IOException e){
+			// A pool timeout stays one, the endpoint wasn't asked, refer execute()
+			if(deadline != null && deadline.isExpired() && !(e instanceof HttpStatusException)
+					&& !(e instanceof ConnectionPoolTimeoutException) && !(e instanceof DeadlineExceededException))
+				e = new DeadlineExceededException(e);
+			if(!connected)
+				onConnected(call, attempt, context);
+			call.eventListener.attemptFailed(call.info, attempt, e, System.nanoTime());
+			throw e;
+		}finally{
+			if(watchdog != null)
+				watchdog.cancel(false);
+			if(!consumed){
+				// Don't drain whatever is left of a response we are going to discard, drop the connection instead.
+				get.abort();
+			}
+			// Ends the inflater of a compressed body, whose native memory would otherwise wait for finalization
+			if(decoded != null)
+				ContentDecoder.close(decoded);
+		}
+	}
+
+	/**
+	 * Reports the connection and the sending of the request of an attempt, if it got that far.
+	 * @return true
+	 */
+	private static boolean onConnected(Call<?> call, int attempt, HttpContext context){
+		Long acquiredAt = (Long) context.getAttribute(CONNECTION_ACQUIRED_AT);
+		if(acquiredAt != null)
+			call.eventListener.connectionAcquired(call.info, attempt, Boolean.TRUE.equals(context.getAttribute(CONNECTION_REUSED)), acquiredAt);
+
+		Long sentAt = (Long) context.getAttribute(REQUEST_SENT_AT);
+		if(sentAt != null)
+			call.eventListener.requestSent(call.info, attempt, sentAt);
+
+		return true;
+	}
+
+	private void store(Call<?> call, HttpResponse response, Object result){
+		call.responseCache.onMiss();
+		call.metrics.setCacheOutcome(RequestMetrics.CacheOutcome.MISS);
+
+		long freshMillis = freshnessOf(response, call.cacheTtl);
+		String etag = headerValue(response, "ETag");
+		String lastModified = headerValue(response, "Last-Modified");
+
+		if(freshMillis < 0 || (freshMillis == 0 && etag == null && lastModified == null)){
+			// Not allowed to keep it, or it would be of no use.
+			call.responseCache.remove(call.url);
+			return;
+		}
+
+		call.responseCache.put(call.url, new CachedResponse(result, call.parser, etag, lastModified, freshMillis));
+	}
+
+	/**
+	 * @return Milliseconds for which the response can be used without revalidation, -1 if it must not be stored
+	 */
+	private static long freshnessOf(HttpResponse response, long defaultMillis){
+		for(Header header : response.getHeaders("Cache-Control")){
+			for(String directive : header.getValue().split(",")){
+				directive = directive.trim().toLowerCase();
+				if(directive.equals("no-store"))
+					return -1;
+				if(directive.equals("no-cache"))
+					return 0;
+				if(directive.startsWith("max-age=")){
+					try{
+						return Long.parseLong(directive.substring("max-age=".length())) * 1000;
+					}catch (NumberFormatException e){
+						return 0;
+					}
+				}
+			}
+		}
+		return defaultMillis;
+	}
+
+	private static String headerValue(HttpResponse response, String name){
+		Header header = response.getFirstHeader(name);
+		return header != null ? header.getValue() : null;
+	}
+
+	private static InputStream decode(HttpEntity entity) throws IOException {
+		return decode(entity.getContent(), entity);
+	}
+
+	private static InputStream decode(InputStream content, HttpEntity entity) throws IOException {
+		Header contentEncoding = entity.getContentEncoding();
+		return ContentDecoder.decode(content, contentEncoding != null ? contentEncoding.getValue() : null);
+	}
+
+	private static void sleep(long millis) throws InterruptedIOException {
+		try{
+			Thread.sleep(millis);
+		}catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry");
+		}
+	}
+
+	/**
+	 * Reads the content as text
+	 * @param content
+	 * @return Content with line breaks removed
+	 * @throws IOException
+	 */
+	public static String readString(InputStream content) throws IOException {
+		StringBuffer sb = new StringBuffer();
+		BufferedReader rd = new BufferedReader(new InputStreamReader(content));
+		String line = "";
+		while ((line = rd.readLine()) != null) {
+			sb.append(line);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Everything the attempts of a request need to know about it.
+	 */
+	private static class Call<T> {
+
+		private final RequestInfo info;
+		private final String url;
+		private final ResponseParser<T> parser;
+		private final Timeouts timeouts;
+		private final Deadline deadline;
+		private final ResponseCache responseCache;
+		private final CachedResponse cached;
+		private final long cacheTtl;
+		private final RequestMetrics metrics;
+		private final EventListener eventListener;
+		private final AtomicInteger attempts = new AtomicInteger();
+
+		private Call(RequestInfo info, String url, ResponseParser<T> parser, Timeouts timeouts, Deadline deadline,
+					 ResponseCache responseCache, CachedResponse cached, long cacheTtl, RequestMetrics metrics,
+					 EventListener eventListener) {
+			this.info = info;
+			this.url = url;
+			this.parser = parser;
+			this.timeouts = timeouts;
+			this.deadline = deadline;
+			this.responseCache = responseCache;
+			this.cached = cached;
+			this.cacheTtl = cacheTtl;
+			this.metrics = metrics;
+			this.eventListener = eventListener;
+		}
+	}
+
+	/**
+	 * Records in the context when the connection was handed to the request, whether it came from the pool,
+	 * and when the request was written to it. Doesn't send a request whose deadline expired while it was waiting
+	 * for the connection.
+	 */
+	private static class TimingRequestExecutor extends HttpRequestExecutor {
+
+		@Override
+		protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+				throws IOException, HttpException {
+			AtomicBoolean notSent = (AtomicBoolean) context.getAttribute(NOT_SENT);
+			if(notSent != null && !notSent.compareAndSet(true, false))
+				throw new DeadlineExceededException();
+
+			context.setAttribute(CONNECTION_ACQUIRED_AT, System.nanoTime());
+			context.setAttribute(CONNECTION_REUSED, conn.getMetrics().getRequestCount() > 0);
+
+			HttpResponse response = super.doSendRequest(request, conn, context);
+			context.setAttribute(REQUEST_SENT_AT, System.nanoTime());
+			return response;
+		}
+	}
+
+	private static class TransportThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger();
+
+		private TransportThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
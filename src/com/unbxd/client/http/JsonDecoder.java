@@ -0,0 +1,95 @@
+package com.unbxd.client.http;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes response bodies to the maps and lists the response classes are built from, with the same values as
+ * ObjectMapper.readValue(content, Map.class): maps keeping the order of their keys, lists, String, Integer, Long,
+ * BigInteger, Double and Boolean.
+ *
+ * Maps and lists are read only at every level, since a cached response is shared by every caller, refer
+ * {@link CachedResponse}. Attributes handed out by the responses, nested ones included, can't be changed.
+ *
+ * Object keys and string values up to {@link #MAX_POOLED_LENGTH} characters are taken from a {@link StringPool}.
+ * Short values are the repeated ones, like brands, colours, categories and doctypes, while long ones like titles,
+ * descriptions and URLs are mostly unique.
+ */
+public class JsonDecoder {
+
+	public static final int MAX_POOLED_LENGTH = 32;
+
+	private static final JsonFactory JSON = new JsonFactory();
+
+	private JsonDecoder() {
+	}
+
+	/**
+	 * @param content JSON object
+	 * @param pool Pool of keys and short values, null to decode without one
+	 * @return Decoded object
+	 * @throws IOException
+	 */
+	public static Map<String, Object> readMap(InputStream content, StringPool pool) throws IOException {
+		JsonParser parser = JSON.createJsonParser(content);
+		try{
+			if(parser.nextToken() != JsonToken.START_OBJECT)
+				throw new IOException("Expected a JSON object, found " + parser.getCurrentToken());
+			return readObject(parser, pool);
+		}finally{
+			parser.close();
+		}
+	}
+
+	private static Map<String, Object> readObject(JsonParser parser, StringPool pool) throws IOException {
+		Map<String, Object> object = new LinkedHashMap<String, Object>();
+		while(parser.nextToken() == JsonToken.FIELD_NAME){
+			String name = pool != null ? pool.intern(parser.getCurrentName()) : parser.getCurrentName();
+			parser.nextToken();
+			object.put(name, readValue(parser, pool));
+		}
+		return Collections.unmodifiableMap(object);
+	}
+
+	private static List<Object> readArray(JsonParser parser, StringPool pool) throws IOException {
+		List<Object> array = new ArrayList<Object>();
+		while(parser.nextToken() != JsonToken.END_ARRAY){
+			array.add(readValue(parser, pool));
+		}
+		return Collections.unmodifiableList(array);
+	}
+
+	private static Object readValue(JsonParser parser, StringPool pool) throws IOException {
+		switch(parser.getCurrentToken()){
+			case START_OBJECT:
+				return readObject(parser, pool);
+			case START_ARRAY:
+				return readArray(parser, pool);
+			case VALUE_STRING:
+				if(pool != null && parser.getTextLength() <= MAX_POOLED_LENGTH)
+					return pool.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+				return parser.getText();
+			case VALUE_NUMBER_INT:
+				return parser.getNumberValue();
+			case VALUE_NUMBER_FLOAT:
+				return parser.getDoubleValue();
+			case VALUE_TRUE:
+				return Boolean.TRUE;
+			case VALUE_FALSE:
+				return Boolean.FALSE;
+			case VALUE_NULL:
+				return null;
+			default:
+				throw new IOException("Unexpected token " + parser.getCurrentToken());
+		}
+	}
+}
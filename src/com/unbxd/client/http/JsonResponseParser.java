@@ -0,0 +1,45 @@
+package com.unbxd.client.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Parses a JSON object response with {@link JsonDecoder}, taking its strings from the pool of a transport,
+ * refer {@link HttpTransport#getStringPool()}.
+ *
+ * Parsers of the same class with the same pool are equal, so clients sharing a transport also share the
+ * responses it caches for them, refer {@link CachedResponse#isParsedBy(ResponseParser)}.
+ */
+public abstract class JsonResponseParser<T> implements ResponseParser<T> {
+
+	private final StringPool pool;
+
+	/**
+	 * @param pool Pool of the decoded strings, null not to pool them
+	 */
+	protected JsonResponseParser(StringPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public T parse(InputStream content) throws IOException {
+		return this.create(JsonDecoder.readMap(content, pool));
+	}
+
+	/**
+	 * @param params Decoded JSON of the response
+	 * @return Response object
+	 */
+	protected abstract T create(Map<String, Object> params);
+
+	@Override
+	public boolean equals(Object o) {
+		return o != null && o.getClass() == this.getClass() && ((JsonResponseParser<?>) o).pool == this.pool;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.getClass().hashCode() ^ System.identityHashCode(pool);
+	}
+}
@@ -0,0 +1,129 @@
+package com.unbxd.client.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram of client side latencies up to two minutes, in milliseconds unless another unit is given, with buckets
+ * roughly 10% apart. Sub-millisecond phases like parsing are recorded in microseconds, a millisecond histogram
+ * would put them all in its first bucket.
+ *
+ * Once maxSamples latencies have been recorded all the counts are halved, so the histogram follows
+ * the recent behaviour of the network rather than the whole life of the application.
+ */
+public class LatencyHistogram {
+
+	private static final long[] MILLIS_BOUNDS = bucketBounds(TimeUnit.MILLISECONDS);
+	private static final long[] MICROS_BOUNDS = bucketBounds(TimeUnit.MICROSECONDS);
+
+	private static long[] bucketBounds(TimeUnit unit){
+		long max = unit.convert(120, TimeUnit.SECONDS);
+		List<Long> bounds = new ArrayList<Long>();
+		long bound = 1;
+		while(bound < max){
+			bounds.add(bound);
+			bound = Math.max(bound + 1, (long) (bound * 1.1));
+		}
+		bounds.add(Long.MAX_VALUE);
+
+		long[] bucketBounds = new long[bounds.size()];
+		for(int i = 0; i < bucketBounds.length; i++){
+			bucketBounds[i] = bounds.get(i);
+		}
+		return bucketBounds;
+	}
+
+	private final TimeUnit unit;
+	private final long[] bucketBounds;
+	private final int maxSamples;
+	private final long[] counts;
+	private long count;
+
+	public LatencyHistogram() {
+		this(1000);
+	}
+
+	/**
+	 * @param maxSamples Number of samples after which older samples start losing weight
+	 */
+	public LatencyHistogram(int maxSamples) {
+		this(maxSamples, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param maxSamples Number of samples after which older samples start losing weight
+	 * @param unit Unit of the latencies recorded and reported
+	 */
+	public LatencyHistogram(int maxSamples, TimeUnit unit) {
+		this.unit = unit;
+		this.bucketBounds = unit == TimeUnit.MILLISECONDS ? MILLIS_BOUNDS
+				: unit == TimeUnit.MICROSECONDS ? MICROS_BOUNDS : bucketBounds(unit);
+		this.maxSamples = maxSamples;
+		this.counts = new long[bucketBounds.length];
+	}
+
+	/**
+	 * @return Unit of the latencies
+	 */
+	public TimeUnit getUnit(){
+		return this.unit;
+	}
+
+	/**
+	 * @param latency Latency to record, in the unit of the histogram
+	 */
+	public synchronized void record(long latency){
+		if(count >= maxSamples)
+			this.decay();
+
+		this.counts[bucketOf(latency)]++;
+		this.count++;
+	}
+
+	private void decay(){
+		this.count = 0;
+		for(int i = 0; i < counts.length; i++){
+			this.counts[i] >>= 1;
+			this.count += counts[i];
+		}
+	}
+
+	private int bucketOf(long latency){
+		int low = 0;
+		int high = bucketBounds.length - 1;
+		while(low < high){
+			int mid = (low + high) >>> 1;
+			if(bucketBounds[mid] < latency)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * @return Number of samples currently weighing in the histogram
+	 */
+	public synchronized long getCount(){
+		return this.count;
+	}
+
+	/**
+	 * @param percentile Between 0 and 1. 0.95 for p95
+	 * @return Upper bound of the bucket holding the percentile, -1 if nothing has been recorded
+	 */
+	public synchronized long getPercentile(double percentile){
+		if(count == 0)
+			return -1;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile * count));
+		long seen = 0;
+		for(int i = 0; i < counts.length; i++){
+			seen += counts[i];
+			if(seen >= rank)
+				return bucketBounds[i];
+		}
+		return bucketBounds[bucketBounds.length - 1];
+	}
+}
@@ -0,0 +1,67 @@
+package com.unbxd.client.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a stream and the time spent waiting for them.
+ */
+class MeteredInputStream extends FilterInputStream {
+
+	private long bytes;
+	private long readNanos;
+	private long endNanos;
+
+	MeteredInputStream(InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		long start = System.nanoTime();
+		int b = super.read();
+		long end = System.nanoTime();
+		this.readNanos += end - start;
+		if(b != -1)
+			this.bytes++;
+		else if(endNanos == 0)
+			this.endNanos = end;
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		long start = System.nanoTime();
+		int n = super.read(b, off, len);
+		long end = System.nanoTime();
+		this.readNanos += end - start;
+		if(n > 0)
+			this.bytes += n;
+		else if(n == -1 && endNanos == 0)
+			this.endNanos = end;
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		this.bytes += skipped;
+		return skipped;
+	}
+
+	long getBytes(){
+		return bytes;
+	}
+
+	long getReadNanos(){
+		return readNanos;
+	}
+
+	/**
+	 * @return System.nanoTime() when the end of the stream was reached, 0 if it wasn't
+	 */
+	long getEndNanos(){
+		return endNanos;
+	}
+}
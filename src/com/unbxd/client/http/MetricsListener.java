@@ -0,0 +1,13 @@
+package com.unbxd.client.http;
+
+/**
+ * Receives the metrics of every request, e.g. to export them to an application's own telemetry.
+ */
+public interface MetricsListener {
+
+	/**
+	 * Called on the thread which executed the request, once it completed. Should return quickly.
+	 * @param metrics
+	 */
+	void onRequestCompleted(RequestMetrics metrics);
+}
@@ -0,0 +1,80 @@
+package com.unbxd.client.http;
+
+import org.apache.log4j.Logger;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Client side metrics of the requests of a transport, aggregated per operation and forwarded to listeners.
+ */
+public class MetricsRegistry {
+
+	private static final Logger LOG = Logger.getLogger(MetricsRegistry.class);
+
+	private final ConcurrentMap<String, OperationMetrics> operations;
+	private final List<MetricsListener> listeners;
+
+	public MetricsRegistry() {
+		this.operations = new ConcurrentHashMap<String, OperationMetrics>();
+		this.listeners = new CopyOnWriteArrayList<MetricsListener>();
+	}
+
+	/**
+	 * @param listener
+	 * @return this
+	 */
+	public MetricsRegistry addListener(MetricsListener listener){
+		this.listeners.add(listener);
+
+		return this;
+	}
+
+	/**
+	 * @param listener
+	 * @return this
+	 */
+	public MetricsRegistry removeListener(MetricsListener listener){
+		this.listeners.remove(listener);
+
+		return this;
+	}
+
+	/**
+	 * @param operation
+	 * @return Metrics of the operation, null if it wasn't executed yet
+	 */
+	public OperationMetrics getOperation(String operation){
+		return this.operations.get(operation);
+	}
+
+	/**
+	 * @return Map of Operation --> {@link OperationMetrics}
+	 */
+	public Map<String, OperationMetrics> getOperations(){
+		return Collections.unmodifiableMap(this.operations);
+	}
+
+	void record(RequestMetrics metrics){
+		OperationMetrics operation = this.operations.get(metrics.getOperation());
+		if(operation == null){
+			OperationMetrics created = new OperationMetrics(metrics.getOperation());
+			operation = this.operations.putIfAbsent(metrics.getOperation(), created);
+			if(operation == null)
+				operation = created;
+		}
+		operation.record(metrics);
+
+		for(MetricsListener listener : this.listeners){
+			try{
+				listener.onRequestCompleted(metrics);
+			}catch (RuntimeException e){
+				LOG.warn("Metrics listener failed", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.unbxd.client.http;
+
+import com.unbxd.client.http.RequestMetrics.CacheOutcome;
+import com.unbxd.client.http.RequestMetrics.ErrorKind;
+import com.unbxd.client.http.RequestMetrics.Phase;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Aggregated metrics of one operation, e.g. "search" or "recommendations/also-viewed".
+ */
+public class OperationMetrics {
+
+	private final String operation;
+	private final Map<Phase, LatencyHistogram> latencies;
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLongArray cacheOutcomes = new AtomicLongArray(CacheOutcome.values().length);
+	private final AtomicLongArray errors = new AtomicLongArray(ErrorKind.values().length);
+
+	OperationMetrics(String operation) {
+		this.operation = operation;
+		this.latencies = new EnumMap<Phase, LatencyHistogram>(Phase.class);
+		for(Phase phase : Phase.values()){
+			this.latencies.put(phase, new LatencyHistogram(1000, TimeUnit.MICROSECONDS));
+		}
+	}
+
+	void record(RequestMetrics metrics){
+		this.requests.incrementAndGet();
+		this.bytes.addAndGet(metrics.getBytes());
+		this.cacheOutcomes.incrementAndGet(metrics.getCacheOutcome().ordinal());
+		if(metrics.getError() != null)
+			this.errors.incrementAndGet(metrics.getError().ordinal());
+
+		for(Phase phase : Phase.values()){
+			long micros = metrics.getPhaseMicros(phase);
+			if(micros >= 0)
+				this.latencies.get(phase).record(micros);
+		}
+	}
+
+	public String getOperation(){
+		return operation;
+	}
+
+	/**
+	 * @param phase
+	 * @return Latencies of the phase in microseconds
+	 */
+	public LatencyHistogram getLatencies(Phase phase){
+		return latencies.get(phase);
+	}
+
+	/**
+	 * @return Number of completed requests, failed ones included
+	 */
+	public long getRequests(){
+		return requests.get();
+	}
+
+	/**
+	 * @return Bytes received from the network
+	 */
+	public long getBytes(){
+		return bytes.get();
+	}
+
+	/**
+	 * @param outcome
+	 * @return Number of requests with this outcome
+	 */
+	public long getCacheOutcomes(CacheOutcome outcome){
+		return cacheOutcomes.get(outcome.ordinal());
+	}
+
+	/**
+	 * @return Share of cached requests which didn't need a full response, 0 if none was cached
+	 */
+	public double getCacheHitRatio(){
+		long hits = getCacheOutcomes(CacheOutcome.HIT) + getCacheOutcomes(CacheOutcome.REVALIDATED);
+		long total = hits + getCacheOutcomes(CacheOutcome.MISS);
+		return total > 0 ? (double) hits / total : 0;
+	}
+
+	/**
+	 * @param kind
+	 * @return Number of requests which failed this way
+	 */
+	public long getErrors(ErrorKind kind){
+		return errors.get(kind.ordinal());
+	}
+
+	/**
+	 * @return Number of requests which failed
+	 */
+	public long getErrors(){
+		long total = 0;
+		for(int i = 0; i < errors.length(); i++){
+			total += errors.get(i);
+		}
+		return total;
+	}
+}
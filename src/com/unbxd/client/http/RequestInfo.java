@@ -0,0 +1,83 @@
+package com.unbxd.client.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What a request is, for metrics and tracing: the endpoint family it goes to and the operation it performs on it,
+ * e.g. "bucket" on {@link Endpoint#SEARCH} or "recommendations/also-viewed" on {@link Endpoint#RECOMMENDATIONS}.
+ *
+ * Create one per request, right after building its URL. Each gets an id unique within the process.
+ */
+public class RequestInfo {
+
+	private static final AtomicLong ids = new AtomicLong();
+
+	private final long id;
+	private final long createdNanos;
+	private final Endpoint endpoint;
+	private final String operation;
+	private volatile long enqueuedNanos;
+
+	/**
+	 * @param endpoint
+	 * @param operation Name under which the request is accounted for in {@link MetricsRegistry}
+	 */
+	public RequestInfo(Endpoint endpoint, String operation) {
+		this.id = ids.incrementAndGet();
+		this.createdNanos = System.nanoTime();
+		this.endpoint = endpoint;
+		this.operation = operation;
+	}
+
+	/**
+	 * @param endpoint
+	 * @return Info of a request accounted for under the name of its endpoint
+	 */
+	public static RequestInfo of(Endpoint endpoint){
+		return new RequestInfo(endpoint, endpoint.name().toLowerCase());
+	}
+
+	/**
+	 * Marks the request as waiting for a background thread. The wait is reported as {@link RequestMetrics.Phase#QUEUE}.
+	 * @return this
+	 */
+	public RequestInfo markEnqueued(){
+		this.enqueuedNanos = System.nanoTime();
+
+		return this;
+	}
+
+	/**
+	 * @return Id of the request, unique within the process
+	 */
+	public long getId(){
+		return id;
+	}
+
+	/**
+	 * @return System.nanoTime() when the request was created
+	 */
+	public long getCreatedNanos(){
+		return createdNanos;
+	}
+
+	public Endpoint getEndpoint(){
+		return endpoint;
+	}
+
+	public String getOperation(){
+		return operation;
+	}
+
+	/**
+	 * @return System.nanoTime() when the request was enqueued, 0 if it wasn't
+	 */
+	public long getEnqueuedNanos(){
+		return enqueuedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return operation + "#" + id;
+	}
+}
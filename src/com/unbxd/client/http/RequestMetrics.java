@@ -0,0 +1,152 @@
+package com.unbxd.client.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+
+import org.codehaus.jackson.JsonProcessingException;
+
+/**
+ * Measurements of one request, handed to {@link MetricsListener}s once it completes.
+ *
+ * Phases other than {@link Phase#QUEUE} and {@link Phase#TOTAL} are those of the attempt which produced the response.
+ * They aren't measured for requests which failed or were served from the cache without going to the network.
+ */
+public class RequestMetrics {
+
+	public enum Phase {
+		/** Waiting for a background thread */
+		QUEUE,
+		/** Acquiring a pooled connection, connecting if none was idle */
+		CONNECT,
+		/** From sending the request to receiving the response headers */
+		TTFB,
+		/** Reading the body from the network, interleaved with parsing */
+		DOWNLOAD,
+		/** Decompressing and parsing the body, reads excluded */
+		PARSE,
+		/** The whole request including retries, backoffs and queueing */
+		TOTAL
+	}
+
+	public enum CacheOutcome {
+		/** The endpoint isn't cached */
+		NONE,
+		/** Served from the cache without any request */
+		HIT,
+		/** Revalidated with a conditional GET */
+		REVALIDATED,
+		/** Fetched from the network */
+		MISS
+	}
+
+	public enum ErrorKind {
+		/** Responded with a status other than 200 OK */
+		STATUS,
+		/** Ran out of time, either a socket timeout or the deadline */
+		TIMEOUT,
+		/** Failed fast because the circuit breaker of the endpoint was open */
+		CIRCUIT_OPEN,
+		/** The body couldn't be parsed */
+		PARSE,
+		/** Any other I/O failure */
+		NETWORK
+	}
+
+	private final RequestInfo info;
+	private final long[] phaseNanos;
+	private long bytes;
+	private int attempts;
+	private CacheOutcome cacheOutcome;
+	private ErrorKind error;
+
+	RequestMetrics(RequestInfo info) {
+		this.info = info;
+		this.phaseNanos = new long[Phase.values().length];
+		this.cacheOutcome = CacheOutcome.NONE;
+
+		Arrays.fill(phaseNanos, -1);
+	}
+
+	synchronized void setPhaseNanos(Phase phase, long nanos){
+		this.phaseNanos[phase.ordinal()] = Math.max(0, nanos);
+	}
+
+	synchronized void onAttemptCompleted(long connectNanos, long ttfbNanos, long downloadNanos, long parseNanos, long bytes){
+		this.setPhaseNanos(Phase.CONNECT, connectNanos);
+		this.setPhaseNanos(Phase.TTFB, ttfbNanos);
+		this.setPhaseNanos(Phase.DOWNLOAD, downloadNanos);
+		this.setPhaseNanos(Phase.PARSE, parseNanos);
+		this.bytes = bytes;
+	}
+
+	synchronized void setCacheOutcome(CacheOutcome cacheOutcome){
+		this.cacheOutcome = cacheOutcome;
+	}
+
+	synchronized void setAttempts(int attempts){
+		this.attempts = attempts;
+	}
+
+	synchronized void onFailure(Throwable e){
+		this.error = kindOf(e);
+	}
+
+	private static ErrorKind kindOf(Throwable e){
+		if(e instanceof HttpStatusException)
+			return ErrorKind.STATUS;
+		if(e instanceof CircuitOpenException)
+			return ErrorKind.CIRCUIT_OPEN;
+		if(e instanceof DeadlineExceededException || e instanceof InterruptedIOException)
+			return ErrorKind.TIMEOUT;
+		if(e instanceof JsonProcessingException || !(e instanceof IOException))
+			return ErrorKind.PARSE;
+		return ErrorKind.NETWORK;
+	}
+
+	public String getOperation(){
+		return info.getOperation();
+	}
+
+	public Endpoint getEndpoint(){
+		return info.getEndpoint();
+	}
+
+	/**
+	 * @param phase
+	 * @return Duration of the phase in microseconds, -1 if it wasn't measured
+	 */
+	public synchronized long getPhaseMicros(Phase phase){
+		long nanos = phaseNanos[phase.ordinal()];
+		return nanos < 0 ? -1 : nanos / 1000;
+	}
+
+	/**
+	 * @return Bytes of the response body received from the network, compressed if it was
+	 */
+	public synchronized long getBytes(){
+		return bytes;
+	}
+
+	/**
+	 * @return Number of attempts made, 0 if served from the cache or failed fast
+	 */
+	public synchronized int getAttempts(){
+		return attempts;
+	}
+
+	public synchronized CacheOutcome getCacheOutcome(){
+		return cacheOutcome;
+	}
+
+	/**
+	 * @return Kind of failure, null if the request succeeded
+	 */
+	public synchronized ErrorKind getError(){
+		return error;
+	}
+
+	public synchronized boolean isSuccess(){
+		return error == null;
+	}
+}
@@ -0,0 +1,109 @@
+package com.unbxd.client.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of parsed responses, keyed by request url.
+ *
+ * Fresh responses are served without a request. Stale responses with an ETag or Last-Modified are
+ * revalidated with a conditional GET, and a 304 Not Modified refreshes them without parsing anything.
+ * Cached responses are shared by every caller and are read only, refer {@link CachedResponse}.
+ */
+public class ResponseCache {
+
+	private final Map<String, CachedResponse> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong revalidations = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxEntries Number of responses to keep
+	 */
+	public ResponseCache(final int maxEntries) {
+		this.entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true){
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param url
+	 * @return Cached response for the url, null if there is none
+	 */
+	public synchronized CachedResponse get(String url){
+		return this.entries.get(url);
+	}
+
+	/**
+	 * @param url
+	 * @param response
+	 */
+	public synchronized void put(String url, CachedResponse response){
+		this.entries.put(url, response);
+	}
+
+	/**
+	 * @param url
+	 */
+	public synchronized void remove(String url){
+		this.entries.remove(url);
+	}
+
+	public synchronized void clear(){
+		this.entries.clear();
+	}
+
+	/**
+	 * @return Number of cached responses
+	 */
+	public synchronized int size(){
+		return this.entries.size();
+	}
+
+	protected void onHit(){
+		this.hits.incrementAndGet();
+	}
+
+	protected void onRevalidated(){
+		this.revalidations.incrementAndGet();
+	}
+
+	protected void onMiss(){
+		this.misses.incrementAndGet();
+	}
+
+	/**
+	 * @return Requests served from the cache without asking the server
+	 */
+	public long getHits(){
+		return this.hits.get();
+	}
+
+	/**
+	 * @return Requests for which the server answered 304 Not Modified
+	 */
+	public long getRevalidations(){
+		return this.revalidations.get();
+	}
+
+	/**
+	 * @return Requests for which a full response had to be downloaded and parsed
+	 */
+	public long getMisses(){
+		return this.misses.get();
+	}
+
+	/**
+	 * @return Fraction of requests which didn't need a response to be parsed
+	 */
+	public double getHitRatio(){
+		long served = hits.get() + revalidations.get();
+		long total = served + misses.get();
+		return total == 0 ? 0 : (double) served / total;
+	}
+}
@@ -0,0 +1,18 @@
+package com.unbxd.client.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Converts the body of a successful response into a response object.
+ */
+public interface ResponseParser<T> {
+
+	/**
+	 * @param content Body of the response. Closed by the transport once parsing is done.
+	 * @return Parsed response
+	 * @throws IOException
+	 */
+	T parse(InputStream content) throws IOException;
+
+}
@@ -0,0 +1,49 @@
+package com.unbxd.client.http;
+
+/**
+ * Limits retries to a fraction of the requests made so that retries don't amplify an outage.
+ *
+ * Every request deposits retryRatio tokens, every retry withdraws one. The balance is capped at maxTokens,
+ * which is also the burst of retries allowed when no requests have been made yet.
+ */
+public class RetryBudget {
+
+	private final double retryRatio;
+	private final double maxTokens;
+	private double tokens;
+
+	/**
+	 * @param retryRatio Retries allowed per request in the long run. 0.1 means retries are at most 10% of requests
+	 * @param maxTokens Maximum number of retries that can be saved up
+	 */
+	public RetryBudget(double retryRatio, int maxTokens) {
+		this.retryRatio = retryRatio;
+		this.maxTokens = maxTokens;
+		this.tokens = maxTokens;
+	}
+
+	/**
+	 * Should be called once for every request, before its first attempt.
+	 */
+	public synchronized void onRequest(){
+		this.tokens = Math.min(maxTokens, tokens + retryRatio);
+	}
+
+	/**
+	 * @return true if a retry can be made. Withdraws a token in that case.
+	 */
+	public synchronized boolean tryAcquire(){
+		if(tokens < 1)
+			return false;
+
+		tokens--;
+		return true;
+	}
+
+	/**
+	 * @return Number of retries that can be made right now
+	 */
+	public synchronized int getAvailableRetries(){
+		return (int) tokens;
+	}
+}
@@ -0,0 +1,94 @@
+package com.unbxd.client.http;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.codehaus.jackson.JsonProcessingException;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Decides whether a failed GET should be attempted again and how long to wait before doing so.
+ *
+ * Backoff grows exponentially from initialBackoffMillis up to maxBackoffMillis. A jitter of 1.0 means
+ * "full jitter" i.e. the wait is picked uniformly between 0 and the computed backoff, 0.0 disables jitter.
+ */
+public class RetryPolicy {
+
+	public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, 1, 0);
+
+	public static final RetryPolicy DEFAULT = new RetryPolicy(3, 100, 2000, 2, 1.0);
+
+	private final int maxAttempts;
+	private final long initialBackoffMillis;
+	private final long maxBackoffMillis;
+	private final double multiplier;
+	private final double jitter;
+
+	/**
+	 * @param maxAttempts Total number of attempts including the first one. 1 disables retries.
+	 * @param initialBackoffMillis Wait before the first retry
+	 * @param maxBackoffMillis Upper bound of the wait between two attempts
+	 * @param multiplier Factor by which the wait grows after every attempt
+	 * @param jitter Fraction of the wait which is randomized. Between 0 and 1
+	 */
+	public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, double multiplier, double jitter) {
+		if(maxAttempts < 1)
+			throw new IllegalArgumentException("maxAttempts should be at least 1");
+		if(jitter < 0 || jitter > 1)
+			throw new IllegalArgumentException("jitter should be between 0 and 1");
+
+		this.maxAttempts = maxAttempts;
+		this.initialBackoffMillis = initialBackoffMillis;
+		this.maxBackoffMillis = Math.max(initialBackoffMillis, maxBackoffMillis);
+		this.multiplier = multiplier;
+		this.jitter = jitter;
+	}
+
+	/**
+	 * @return Total number of attempts including the first one
+	 */
+	public int getMaxAttempts(){
+		return this.maxAttempts;
+	}
+
+	/**
+	 * @param attempt Number of the attempt which just failed, starting at 1
+	 * @param e Failure of the attempt
+	 * @return true if one more attempt should be made
+	 */
+	public boolean shouldRetry(int attempt, IOException e){
+		if(attempt >= maxAttempts)
+			return false;
+
+		if(e instanceof HttpStatusException)
+			return isRetryableStatus(((HttpStatusException) e).getStatusCode());
+
+		// The server did answer but we couldn't understand it, the handshake failed, the endpoint is failing fast,
+		// no pooled connection was free or we are out of time. Another attempt won't help.
+		return !(e instanceof JsonProcessingException) && !(e instanceof SSLException)
+				&& !(e instanceof CircuitOpenException) && !(e instanceof DeadlineExceededException)
+				&& !(e instanceof ConnectionPoolTimeoutException);
+	}
+
+	/**
+	 * @param statusCode
+	 * @return true if the status indicates a transient failure
+	 */
+	protected boolean isRetryableStatus(int statusCode){
+		return statusCode == 408 || statusCode == 429 || statusCode == 500
+				|| statusCode == 502 || statusCode == 503 || statusCode == 504;
+	}
+
+	/**
+	 * @param attempt Number of the attempt which just failed, starting at 1
+	 * @param random
+	 * @return Milliseconds to wait before the next attempt
+	 */
+	public long getBackoffMillis(int attempt, Random random){
+		double backoff = initialBackoffMillis * Math.pow(multiplier, attempt - 1);
+		backoff = Math.min(backoff, maxBackoffMillis);
+
+		return (long) (backoff * (1 - jitter) + backoff * jitter * random.nextDouble());
+	}
+}
@@ -0,0 +1,74 @@
+package com.unbxd.client.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of attempts made per request for an endpoint.
+ */
+public class RetryStats {
+
+	private static final int MAX_TRACKED_ATTEMPTS = 10;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong attempts = new AtomicLong();
+	private final AtomicLong budgetRejections = new AtomicLong();
+	private final AtomicLongArray attemptsHistogram = new AtomicLongArray(MAX_TRACKED_ATTEMPTS + 1);
+
+	protected void onRequestComplete(int attempts){
+		this.requests.incrementAndGet();
+		this.attempts.addAndGet(attempts);
+		this.attemptsHistogram.incrementAndGet(Math.min(attempts, MAX_TRACKED_ATTEMPTS));
+	}
+
+	protected void onBudgetExhausted(){
+		this.budgetRejections.incrementAndGet();
+	}
+
+	/**
+	 * @return Number of requests completed, successfully or not
+	 */
+	public long getRequests(){
+		return this.requests.get();
+	}
+
+	/**
+	 * @return Number of attempts made across all requests
+	 */
+	public long getAttempts(){
+		return this.attempts.get();
+	}
+
+	/**
+	 * @return Number of retries made across all requests
+	 */
+	public long getRetries(){
+		return this.attempts.get() - this.requests.get();
+	}
+
+	/**
+	 * @return Number of times a retry was skipped because the {@link RetryBudget} was exhausted
+	 */
+	public long getBudgetRejections(){
+		return this.budgetRejections.get();
+	}
+
+	/**
+	 * @return Average number of attempts per request
+	 */
+	public double getAttemptsPerRequest(){
+		long requests = this.requests.get();
+		return requests == 0 ? 0 : (double) this.attempts.get() / requests;
+	}
+
+	/**
+	 * @param attempts
+	 * @return Number of requests which took exactly these many attempts. The last bucket also counts anything above it.
+	 */
+	public long getRequestsWithAttempts(int attempts){
+		if(attempts < 1)
+			return 0;
+
+		return this.attemptsHistogram.get(Math.min(attempts, MAX_TRACKED_ATTEMPTS));
+	}
+}
@@ -0,0 +1,151 @@
+package com.unbxd.client.http;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded pool of strings shared by the response decoders, so the attribute names, facet terms, doctypes and
+ * other values repeated across products and responses are held once instead of once per occurrence.
+ *
+ * The pool is a fixed size table indexed by hash, where a new string replaces the one in its slot. Frequent
+ * values stay in the pool and rare ones cycle through it, so its memory is bounded whatever the responses hold.
+ * Lookups don't lock: concurrent decoders may replace each other's entries, which only costs a miss.
+ *
+ * Each transport has its own pool, refer {@link HttpTransport#getStringPool()}. Hits and misses are counted on
+ * stripes picked by thread, each on its own cache line, and summed when read, so decoders running on several
+ * threads don't contend on the counters.
+ */
+public class StringPool {
+
+	private static final int STRIPES = Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+	// 16 longs apart, hits and misses of a stripe share a cache line of their own
+	private static final int STRIPE_WIDTH = 16;
+
+	private final String[] entries;
+	private final int mask;
+
+	private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+
+	/**
+	 * @param capacity Number of strings held, rounded up to a power of two
+	 */
+	public StringPool(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.entries = new String[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @param value
+	 * @return Pooled string equal to value, value itself if there was none
+	 */
+	public String intern(String value){
+		int slot = slot(value.hashCode());
+		String pooled = entries[slot];
+		if(pooled != null && pooled.equals(value)){
+			this.count(0);
+			return pooled;
+		}
+
+		this.count(1);
+		this.entries[slot] = value;
+		return value;
+	}
+
+	/**
+	 * Looks the characters up without building a string, so a hit doesn't allocate.
+	 *
+	 * @param chars
+	 * @param offset
+	 * @param length
+	 * @return Pooled string equal to the characters, a new one if there was none
+	 */
+	public String intern(char[] chars, int offset, int length){
+		int hash = 0;
+		for(int i = offset; i < offset + length; i++){
+			hash = 31 * hash + chars[i];
+		}
+
+		int slot = slot(hash);
+		String pooled = entries[slot];
+		if(pooled != null && equals(pooled, chars, offset, length)){
+			this.count(0);
+			return pooled;
+		}
+
+		this.count(1);
+		String value = new String(chars, offset, length);
+		this.entries[slot] = value;
+		return value;
+	}
+
+	/**
+	 * @param counter 0 for hits, 1 for misses
+	 */
+	private void count(int counter){
+		int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+		this.counts.incrementAndGet(stripe * STRIPE_WIDTH + counter);
+	}
+
+	private long sum(int counter){
+		long sum = 0;
+		for(int stripe = 0; stripe < STRIPES; stripe++){
+			sum += this.counts.get(stripe * STRIPE_WIDTH + counter);
+		}
+		return sum;
+	}
+
+	private int slot(int hash){
+		// Spreads the high bits, strings differing in their last characters have close hashes
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private static boolean equals(String s, char[] chars, int offset, int length){
+		if(s.length() != length)
+			return false;
+		for(int i = 0; i < length; i++){
+			if(s.charAt(i) != chars[offset + i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Empties the pool. Counters are kept.
+	 */
+	public void clear(){
+		for(int i = 0; i < entries.length; i++){
+			this.entries[i] = null;
+		}
+	}
+
+	/**
+	 * @return Number of strings the pool holds at most
+	 */
+	public int getCapacity(){
+		return this.entries.length;
+	}
+
+	/**
+	 * @return Lookups which found the string in the pool
+	 */
+	public long getHits(){
+		return this.sum(0);
+	}
+
+	/**
+	 * @return Lookups which added the string to the pool
+	 */
+	public long getMisses(){
+		return this.sum(1);
+	}
+
+	/**
+	 * @return Fraction of lookups which returned a pooled string
+	 */
+	public double getHitRatio(){
+		long h = getHits();
+		long total = h + getMisses();
+		return total == 0 ? 0 : (double) h / total;
+	}
+}
@@ -0,0 +1,32 @@
+package com.unbxd.client.http;
+
+/**
+ * Socket level timeouts of a single attempt. A {@link Deadline} on the request shortens them further.
+ */
+public class Timeouts {
+
+	public static final Timeouts DEFAULT = new Timeouts(5000, 15000);
+
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+
+	/**
+	 * @param connectTimeoutMillis Time to wait for a pooled connection and then for the TCP/TLS connection
+	 * @param readTimeoutMillis Time to wait for the next bytes of the response
+	 */
+	public Timeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+		if(connectTimeoutMillis <= 0 || readTimeoutMillis <= 0)
+			throw new IllegalArgumentException("Timeouts should be positive");
+
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	public int getConnectTimeoutMillis(){
+		return this.connectTimeoutMillis;
+	}
+
+	public int getReadTimeoutMillis(){
+		return this.readTimeoutMillis;
+	}
+}
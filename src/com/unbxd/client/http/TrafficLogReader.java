@@ -0,0 +1,114 @@
+package com.unbxd.client.http;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reads the traffic logs written by {@link TrafficRecorder}.
+ */
+public class TrafficLogReader implements Closeable {
+
+	private final DataInputStream in;
+	private final List<String> strings;
+
+	private long lastOffsetMicros;
+
+	/**
+	 * @param in Log. Closed by {@link #close()}.
+	 * @throws IOException If the stream doesn't hold a traffic log
+	 */
+	public TrafficLogReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		this.strings = new ArrayList<String>();
+
+		if(this.in.readInt() != TrafficRecorder.MAGIC)
+			throw new IOException("Not a traffic log");
+	}
+
+	/**
+	 * @return Next request in the order they completed, null at the end of the log
+	 * @throws IOException
+	 */
+	public TrafficRecord next() throws IOException {
+		int first = in.read();
+		if(first == -1)
+			return null;
+
+		try{
+			long offsetMicros = lastOffsetMicros + unZigZag(readVarLong(first));
+			this.lastOffsetMicros = offsetMicros;
+			Endpoint endpoint = Endpoint.values()[in.readUnsignedByte()];
+			int flags = in.readUnsignedByte();
+			String operation = this.readString();
+			String query = this.readString();
+			long durationMicros = readVarLong(in.readUnsignedByte());
+			long bytes = readVarLong(in.readUnsignedByte());
+
+			return new TrafficRecord(offsetMicros, endpoint, operation, query, durationMicros, bytes,
+					(flags & TrafficRecorder.SUCCESS) != 0, (flags & TrafficRecorder.CACHE_HIT) != 0);
+		}catch (EOFException e){
+			// The recording stopped in the middle of an entry
+			return null;
+		}
+	}
+
+	/**
+	 * @return All the requests of the log, in the order they were made
+	 * @throws IOException
+	 */
+	public List<TrafficRecord> readAll() throws IOException {
+		List<TrafficRecord> records = new ArrayList<TrafficRecord>();
+		TrafficRecord record;
+		while((record = this.next()) != null){
+			records.add(record);
+		}
+
+		Collections.sort(records, new Comparator<TrafficRecord>() {
+			@Override
+			public int compare(TrafficRecord r1, TrafficRecord r2) {
+				return r1.getOffsetMicros() < r2.getOffsetMicros() ? -1 : r1.getOffsetMicros() == r2.getOffsetMicros() ? 0 : 1;
+			}
+		});
+		return records;
+	}
+
+	private String readString() throws IOException {
+		int index = (int) readVarLong(in.readUnsignedByte());
+		if(index < strings.size())
+			return strings.get(index);
+		if(index > strings.size())
+			throw new IOException("Corrupted traffic log");
+
+		String s = in.readUTF();
+		strings.add(s);
+		return s;
+	}
+
+	private long readVarLong(int b) throws IOException {
+		long n = 0;
+		int shift = 0;
+		while((b & 0x80) != 0){
+			n |= (long) (b & 0x7F) << shift;
+			shift += 7;
+			b = in.readUnsignedByte();
+		}
+		return n | ((long) b << shift);
+	}
+
+	private static long unZigZag(long n){
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
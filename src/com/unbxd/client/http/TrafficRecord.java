@@ -0,0 +1,85 @@
+package com.unbxd.client.http;
+
+/**
+ * One request of a traffic log written by {@link TrafficRecorder}.
+ */
+public class TrafficRecord {
+
+	private final long offsetMicros;
+	private final Endpoint endpoint;
+	private final String operation;
+	private final String query;
+	private final long durationMicros;
+	private final long bytes;
+	private final boolean success;
+	private final boolean cacheHit;
+
+	TrafficRecord(long offsetMicros, Endpoint endpoint, String operation, String query, long durationMicros, long bytes,
+				  boolean success, boolean cacheHit) {
+		this.offsetMicros = offsetMicros;
+		this.endpoint = endpoint;
+		this.operation = operation;
+		this.query = query;
+		this.durationMicros = durationMicros;
+		this.bytes = bytes;
+		this.success = success;
+		this.cacheHit = cacheHit;
+	}
+
+	/**
+	 * @return Time the request was made at, in microseconds since the recording started
+	 */
+	public long getOffsetMicros(){
+		return offsetMicros;
+	}
+
+	public Endpoint getEndpoint(){
+		return endpoint;
+	}
+
+	/**
+	 * @return Operation the request was accounted for under, see {@link RequestInfo}
+	 */
+	public String getOperation(){
+		return operation;
+	}
+
+	/**
+	 * @return Path and query string of the request relative to the site's base URL, e.g. "search?wt=json&q=shirt",
+	 * with user identifiers replaced by pseudonyms and IPs and cache busters removed
+	 */
+	public String getQuery(){
+		return query;
+	}
+
+	/**
+	 * @return Time the request took, in microseconds
+	 */
+	public long getDurationMicros(){
+		return durationMicros;
+	}
+
+	/**
+	 * @return Bytes of the response body received from the network, 0 if it was served from the cache
+	 */
+	public long getBytes(){
+		return bytes;
+	}
+
+	public boolean isSuccess(){
+		return success;
+	}
+
+	/**
+	 * @return true if the request was served from the response cache
+	 */
+	public boolean isCacheHit(){
+		return cacheHit;
+	}
+
+	@Override
+	public String toString() {
+		return offsetMicros + " " + operation + " " + query + " " + durationMicros + "us " + bytes + "B"
+				+ (cacheHit ? " hit" : "") + (success ? "" : " failed");
+	}
+}
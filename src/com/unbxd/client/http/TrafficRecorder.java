@@ -0,0 +1,309 @@
+package com.unbxd.client.http;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the requests going through a transport to a compact binary log, to be replayed later with
+ * {@link TrafficLogReader}. Set it as the {@link EventListener} of the transport:
+ * transport.setEventListener(new TrafficRecorder(new FileOutputStream(file), salt))
+ *
+ * Each request is recorded with its endpoint, operation, canonical query, timing and response size. The log is
+ * anonymized: API and site keys are left out, user ids are replaced by pseudonyms derived from the salt, and IPs
+ * and cache busters are dropped. Sequences of the same user keep the same pseudonym within a salt.
+ *
+ * What users typed is personal too. Each word of search and autosuggest queries, and of the query of tracker
+ * events, is replaced by a pseudonym, so repeated queries still look the same. Keeping the text as typed takes
+ * {@link #setKeepQueryText(boolean)}.
+ *
+ * The log starts with {@link #MAGIC} followed by one entry per request, in the order requests completed. Strings
+ * are written once and referred to by index afterwards, so repeated queries cost a few bytes.
+ */
+public class TrafficRecorder extends EventListener implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(TrafficRecorder.class);
+
+	static final int MAGIC = 0x55545231; // "UTR1"
+
+	static final int SUCCESS = 1;
+	static final int CACHE_HIT = 2;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final DataOutputStream out;
+	private final String salt;
+	private final long startNanos;
+	private final Map<Long, Pending> pending;
+	private final Map<String, Integer> strings;
+
+	private volatile boolean keepQueryText;
+
+	private long lastOffsetMicros;
+	private boolean closed;
+
+	/**
+	 * @param out Stream the log is written to. Closed by {@link #close()}.
+	 * @param salt Secret mixed into pseudonyms. Logs recorded with different salts can't be linked.
+	 * @throws IOException
+	 */
+	public TrafficRecorder(OutputStream out, String salt) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.salt = salt;
+		this.startNanos = System.nanoTime();
+		this.pending = new ConcurrentHashMap<Long, Pending>();
+		this.strings = new HashMap<String, Integer>();
+
+		this.out.writeInt(MAGIC);
+	}
+
+	/**
+	 * @param keepQueryText true to record queries as typed rather than pseudonyms of their words. Defaults to false.
+	 * @return this
+	 */
+	public TrafficRecorder setKeepQueryText(boolean keepQueryText){
+		this.keepQueryText = keepQueryText;
+
+		return this;
+	}
+
+	@Override
+	public void urlBuilt(RequestInfo info, String url, long nanos) {
+		this.pending.put(info.getId(), new Pending(url));
+	}
+
+	@Override
+	public void cacheHit(RequestInfo info, long nanos) {
+		Pending request = this.pending.get(info.getId());
+		if(request != null)
+			request.cacheHit = true;
+	}
+
+	@Override
+	public void bodyRead(RequestInfo info, int attempt, long bytes, long nanos) {
+		Pending request = this.pending.get(info.getId());
+		if(request != null)
+			request.bytes = bytes;
+	}
+
+	@Override
+	public void callEnded(RequestInfo info, long nanos) {
+		this.record(info, true, nanos);
+	}
+
+	@Override
+	public void callFailed(RequestInfo info, Throwable e, long nanos) {
+		this.record(info, false, nanos);
+	}
+
+	private void record(RequestInfo info, boolean success, long nanos){
+		Pending request = this.pending.remove(info.getId());
+		if(request == null)
+			return;
+
+		String query = anonymize(info.getEndpoint(), request.url, salt, keepQueryText);
+		long offsetMicros = (info.getCreatedNanos() - startNanos) / 1000;
+		long durationMicros = (nanos - info.getCreatedNanos()) / 1000;
+		int flags = (success ? SUCCESS : 0) | (request.cacheHit ? CACHE_HIT : 0);
+
+		synchronized (this){
+			if(closed)
+				return;
+			try{
+				// Requests are written as they complete, so offsets may go backwards.
+				writeVarLong(out, zigZag(offsetMicros - lastOffsetMicros));
+				this.lastOffsetMicros = offsetMicros;
+				out.writeByte(info.getEndpoint().ordinal());
+				out.writeByte(flags);
+				this.writeString(info.getOperation());
+				this.writeString(query);
+				writeVarLong(out, Math.max(0, durationMicros));
+				writeVarLong(out, request.bytes);
+			}catch (IOException e){
+				LOG.error("Couldn't record traffic, stopping", e);
+				this.closed = true;
+			}
+		}
+	}
+
+	private void writeString(String s) throws IOException {
+		Integer index = strings.get(s);
+		if(index != null){
+			writeVarLong(out, index);
+			return;
+		}
+
+		// The next index announces a new string
+		writeVarLong(out, strings.size());
+		out.writeUTF(s);
+		strings.put(s, strings.size());
+	}
+
+	/**
+	 * Writes what was recorded so far
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		if(!closed)
+			out.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if(closed)
+			return;
+		this.closed = true;
+		out.close();
+	}
+
+	/**
+	 * @return Path and query string of the url relative to the site's base URL, without user identifiers, and
+	 * without query text unless kept
+	 */
+	static String anonymize(Endpoint endpoint, String url, String salt, boolean keepQueryText){
+		int pathStart = url.indexOf('/', url.indexOf("://") + 3);
+		if(pathStart == -1)
+			return "";
+		int queryStart = url.indexOf('?', pathStart);
+		String path = queryStart != -1 ? url.substring(pathStart + 1, queryStart) : url.substring(pathStart + 1);
+		String query = queryStart != -1 ? url.substring(queryStart + 1) : null;
+
+		// Leading segments holding the keys: /{apiKey}/{siteKey}/ for search, /v1.0/{apiKey}/{siteKey}/ for recommendations
+		int keySegments = endpoint == Endpoint.RECOMMENDATIONS ? 3 : endpoint == Endpoint.TRACKER ? 0 : 2;
+		for(int i = 0; i < keySegments && path.indexOf('/') != -1; i++){
+			path = path.substring(path.indexOf('/') + 1);
+		}
+
+		StringBuilder sb = new StringBuilder();
+		String uid = null;
+		if(query != null){
+			for(String param : query.split("&")){
+				String name = param.indexOf('=') != -1 ? param.substring(0, param.indexOf('=')) : param;
+				if(name.equals("ip") || name.equals("t") || name.equals("UnbxdKey"))
+					continue;
+
+				sb.append(sb.length() == 0 ? "?" : "&");
+				if(name.equals("uid")){
+					uid = param.substring(name.length() + 1);
+					sb.append("uid=").append(pseudonym(uid, salt));
+				}else if(name.equals("q") && !keepQueryText){
+					String value = param.substring(Math.min(param.length(), name.length() + 1));
+					value = endpoint == Endpoint.TRACKER ? anonymizeBeacon(value, salt) : anonymizeText(value, salt);
+					// A beacon which can't be read is left out rather than recorded as is
+					if(value != null)
+						sb.append("q=").append(value);
+					else
+						sb.setLength(sb.length() - 1);
+				}else{
+					sb.append(param);
+				}
+			}
+		}
+
+		// Widgets about the user have the user id in their path
+		if(uid != null && uid.length() > 0 && path.endsWith("/" + uid))
+			path = path.substring(0, path.length() - uid.length()) + pseudonym(uid, salt);
+
+		return path + sb;
+	}
+
+	/**
+	 * @param value Url encoded query
+	 * @return Url encoded query made of the pseudonyms of its words
+	 */
+	private static String anonymizeText(String value, String salt){
+		try{
+			return URLEncoder.encode(pseudonymizeWords(URLDecoder.decode(value, "UTF-8"), salt), "UTF-8");
+		}catch (IllegalArgumentException e){
+			return pseudonym(value, salt, 'w');
+		}catch (IOException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param value Url encoded JSON of a tracker event
+	 * @return Url encoded JSON of the event with the pseudonyms of the words of its query, null if it can't be read
+	 */
+	private static String anonymizeBeacon(String value, String salt){
+		try{
+			Map<String, Object> beacon = MAPPER.readValue(URLDecoder.decode(value, "UTF-8"), Map.class);
+			if(beacon.get("query") instanceof String)
+				beacon.put("query", pseudonymizeWords((String) beacon.get("query"), salt));
+			return URLEncoder.encode(MAPPER.writeValueAsString(beacon), "UTF-8");
+		}catch (IllegalArgumentException e){
+			return null;
+		}catch (IOException e){
+			return null;
+		}
+	}
+
+	private static String pseudonymizeWords(String text, String salt){
+		StringBuilder sb = new StringBuilder();
+		for(String word : text.trim().split("\\s+")){
+			if(word.length() == 0)
+				continue;
+			if(sb.length() > 0)
+				sb.append(' ');
+			sb.append(pseudonym(word.toLowerCase(), salt, 'w'));
+		}
+		return sb.toString();
+	}
+
+	private static String pseudonym(String value, String salt){
+		return pseudonym(value, salt, 'u');
+	}
+
+	private static String pseudonym(String value, String salt, char prefix){
+		if(value.length() == 0)
+			return value;
+
+		try{
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest((salt + value).getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder().append(prefix);
+			for(int i = 0; i < 6; i++){
+				sb.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+			}
+			return sb.toString();
+		}catch (NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);
+		}catch (IOException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static long zigZag(long n){
+		return (n << 1) ^ (n >> 63);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long n) throws IOException {
+		while((n & ~0x7FL) != 0){
+			out.writeByte((int) ((n & 0x7F) | 0x80));
+			n >>>= 7;
+		}
+		out.writeByte((int) n);
+	}
+
+	private static class Pending {
+
+		private final String url;
+		private volatile long bytes;
+		private volatile boolean cacheHit;
+
+		private Pending(String url) {
+			this.url = url;
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package com.unbxd.client.recommendations;
+
+import com.unbxd.client.recommendations.exceptions.RecommendationsException;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * Immutable recommendations call. Can be shared between threads and executed any number of times with
+ * {@link RecommendationsClient#execute(RecommendationRequest)}. Its canonical query and hash code are computed once.
+ *
+ * Requests without a user id are executed for the user of the client.
+ */
+public final class RecommendationRequest {
+
+    private static final String __encoding = "UTF-8";
+
+    public enum BoxType {
+        ALSO_VIEWED("also-viewed"),
+        ALSO_BOUGHT("also-bought"),
+        RECENTLY_VIEWED("recently-viewed"),
+        RECOMMENDED_FOR_YOU("recommend"),
+        MORE_LIKE_THESE("more-like-these"),
+        TOP_SELLERS("top-sellers"),
+        CATEGORY_TOP_SELLERS("category-top-sellers"),
+        BRAND_TOP_SELLERS("brand-top-sellers"),
+        PDP_TOP_SELLERS("pdp-top-sellers"),
+        CART_RECOMMEND("cart-recommend");
+
+        private final String path;
+
+        BoxType(String path){
+            this.path = path;
+        }
+
+        /**
+         * @return Path of the widget in the API
+         */
+        public String getPath(){
+            return path;
+        }
+    }
+
+    private final BoxType boxType;
+    private final String key;
+    private final String uid;
+    private final String ip;
+    private final long deadlineMillis;
+
+    private final String canonicalQuery;
+    private final int hash;
+
+    private RecommendationRequest(BoxType boxType, String key, String uid, String ip, long deadlineMillis) throws RecommendationsException {
+        this.boxType = boxType;
+        this.key = key;
+        this.uid = uid;
+        this.ip = ip;
+        this.deadlineMillis = deadlineMillis;
+
+        this.canonicalQuery = this.generateQuery();
+        this.hash = this.canonicalQuery.hashCode();
+    }
+
+    private String generateQuery() throws RecommendationsException {
+        try {
+            StringBuilder sb = new StringBuilder();
+            sb.append(boxType.path).append("/");
+
+            // Widgets about the user are keyed by the user id itself
+            String key = this.isUserBox() ? uid : this.key;
+            if(key != null)
+                sb.append(URLEncoder.encode(key, __encoding));
+            sb.append("?format=json");
+
+            if(uid != null)
+                sb.append("&uid=").append(URLEncoder.encode(uid, __encoding));
+
+            if(ip != null)
+                sb.append("&ip=").append(URLEncoder.encode(ip, __encoding));
+
+            return sb.toString();
+        } catch (UnsupportedEncodingException e) {
+            throw new RecommendationsException(e);
+        }
+    }
+
+    private boolean isUserBox(){
+        return boxType == BoxType.RECENTLY_VIEWED || boxType == BoxType.RECOMMENDED_FOR_YOU || boxType == BoxType.CART_RECOMMEND;
+    }
+
+    private static RecommendationRequest of(BoxType boxType, String key, String ip) throws RecommendationsException {
+        if(key == null && (boxType == BoxType.ALSO_VIEWED || boxType == BoxType.ALSO_BOUGHT || boxType == BoxType.MORE_LIKE_THESE
+                || boxType == BoxType.CATEGORY_TOP_SELLERS || boxType == BoxType.BRAND_TOP_SELLERS || boxType == BoxType.PDP_TOP_SELLERS)){
+            throw new RecommendationsException("Couldn't determine which item to recommend for.");
+        }
+        return new RecommendationRequest(boxType, key, null, ip, 0);
+    }
+
+    /**
+     * Recently viewed items for the user : uid
+     */
+    public static RecommendationRequest recentlyViewed() throws RecommendationsException {
+        return of(BoxType.RECENTLY_VIEWED, null, null);
+    }
+
+    /**
+     * Products recommended for user : uid
+     * @param ip IP address if the user for localization of results
+     */
+    public static RecommendationRequest recommendedForYou(String ip) throws RecommendationsException {
+        return of(BoxType.RECOMMENDED_FOR_YOU, null, ip);
+    }
+
+    /**
+     * More products like product : uniqueId
+     * @param uniqueId Unique Id of the product
+     */
+    public static RecommendationRequest moreLikeThis(String uniqueId) throws RecommendationsException {
+        return of(BoxType.MORE_LIKE_THESE, uniqueId, null);
+    }
+
+    /**
+     * Products which were also viewed by users who viewed the product : uniqueId
+     * @param uniqueId Unique Id of the product
+     */
+    public static RecommendationRequest alsoViewed(String uniqueId) throws RecommendationsException {
+        return of(BoxType.ALSO_VIEWED, uniqueId, null);
+    }
+
+    /**
+     * Products which were also bought by users who bought the product : uniqueId
+     * @param uniqueId Unique Id of the product
+     */
+    public static RecommendationRequest alsoBought(String uniqueId) throws RecommendationsException {
+        return of(BoxType.ALSO_BOUGHT, uniqueId, null);
+    }
+
+    /**
+     * Top Selling products
+     * @param ip IP address if the user for localization of results
+     */
+    public static RecommendationRequest topSellers(String ip) throws RecommendationsException {
+        return of(BoxType.TOP_SELLERS, null, ip);
+    }
+
+    /**
+     * Top Selling products within this category
+     * @param category name of the category
+     * @param ip IP address if the user for localization of results
+     */
+    public static RecommendationRequest categoryTopSellers(String category, String ip) throws RecommendationsException {
+        return of(BoxType.CATEGORY_TOP_SELLERS, category, ip);
+    }
+
+    /**
+     * Top Selling products within this brand
+     * @param brand name of the brand
+     * @param ip IP address if the user for localization of results
+     */
+    public static RecommendationRequest brandTopSellers(String brand, String ip) throws RecommendationsException {
+        return of(BoxType.BRAND_TOP_SELLERS, brand, ip);
+    }
+
+    /**
+     * Top Selling products among products similar to this product
+     * @param uniqueId Unique Id of the product
+     * @param ip IP address if the user for localization of results
+     */
+    public static RecommendationRequest pdpTopSellers(String uniqueId, String ip) throws RecommendationsException {
+        return of(BoxType.PDP_TOP_SELLERS, uniqueId, ip);
+    }
+
+    /**
+     * Recommendations based on the products added in cart by the user : uid
+     * @param ip IP address if the user for localization of results
+     */
+    public static RecommendationRequest cartRecommendations(String ip) throws RecommendationsException {
+        return of(BoxType.CART_RECOMMEND, null, ip);
+    }
+
+    /**
+     * @param uid
+     * @return Same call for another user
+     */
+    public RecommendationRequest withUid(String uid) throws RecommendationsException {
+        return new RecommendationRequest(boxType, key, uid, ip, deadlineMillis);
+    }
+
+    /**
+     * Bounds the time taken by the recommendations call, including retries and parsing of the response.
+     * Defaults to the deadline configured for the endpoint on {@link com.unbxd.client.http.HttpTransport}, if any.
+     * @param deadlineMillis
+     * @return Same call with the deadline
+     */
+    public RecommendationRequest withDeadline(long deadlineMillis) throws RecommendationsException {
+        if(deadlineMillis == this.deadlineMillis)
+            return this;
+        return new RecommendationRequest(boxType, key, uid, ip, deadlineMillis);
+    }
+
+    public BoxType getBoxType(){
+        return boxType;
+    }
+
+    /**
+     * @return Unique id, category or brand the widget is about, null for widgets about the user
+     */
+    public String getKey(){
+        return key;
+    }
+
+    /**
+     * @return User id, null for the user of the client
+     */
+    public String getUid(){
+        return uid;
+    }
+
+    public String getIp(){
+        return ip;
+    }
+
+    /**
+     * @return Time allowed for the call, 0 for the default deadline of the endpoint
+     */
+    public long getDeadlineMillis(){
+        return deadlineMillis;
+    }
+
+    /**
+     * @return Path and query string of the call, relative to the site's base URL
+     */
+    public String getCanonicalQuery(){
+        return canonicalQuery;
+    }
+
+    /**
+     * Deadlines don't take part, two requests are equal when they ask for the same recommendations.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof RecommendationRequest))
+            return false;
+
+        RecommendationRequest other = (RecommendationRequest) o;
+        return hash == other.hash && canonicalQuery.equals(other.canonicalQuery);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return canonicalQuery;
+    }
+}
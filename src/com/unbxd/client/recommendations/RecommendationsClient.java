@@ -4,23 +4,21 @@ import android.content.Context;
 
 import com.unbxd.client.AsyncResponse;
 import com.unbxd.client.RequestManager;
+import com.unbxd.client.http.Deadline;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpStatusException;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.http.JsonResponseParser;
+import com.unbxd.client.http.RequestInfo;
+import com.unbxd.client.http.ResponseParser;
 import com.unbxd.client.recommendations.exceptions.RecommendationsException;
 import com.unbxd.client.recommendations.response.RecommendationResponse;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
-import org.codehaus.jackson.map.ObjectMapper;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
 import java.util.Map;
 
 import android.content.SharedPreferences;
@@ -33,55 +31,62 @@ import android.content.SharedPreferences;
  *
  * Client class for calling Recommendation APIs.
  *
+ * {@link #execute(RecommendationRequest)} is thread safe, so one client can serve concurrent {@link RecommendationRequest}s.
+ * The builder style methods below configure a single call on the client itself and must not be used from several threads.
  */
 public class RecommendationsClient {
 
     private static final Logger LOG = Logger.getLogger(RecommendationsClient.class);
 
-    private static final String __encoding = "UTF-8";
-
-    private enum RecommenderBoxType {
-        ALSO_VIEWED,
-        ALSO_BOUGHT,
-        RECENTLY_VIEWED,
-        RECOMMENDED_FOR_YOU,
-        MORE_LIKE_THESE,
-        TOP_SELLERS,
-        CATEGORY_TOP_SELLERS,
-        BRAND_TOP_SELLERS,
-        PDP_TOP_SELLERS,
-        CART_RECOMMEND
-    }
-
-    private String siteKey;
-    private String apiKey;
-    private boolean secure;
+    private final String siteKey;
+    private final String apiKey;
+    private final boolean secure;
+    private final String baseUrl;
+    private final HttpTransport transport;
+    private final ResponseParser<RecommendationResponse> parser;
 
-    private RecommenderBoxType _boxType;
-    private String uid;
-    private String ip;
-    private String uniqueId;
-    private String category;
-    private String brand;
+    private RecommendationRequest request;
+    private RecommendationsException requestException;
     private String myPreferences = "UnbxdCookies";
     private String userIdentifier = "uid";
     private SharedPreferences sharedPreferences;
+    private long deadlineMillis;
 
     public RecommendationsClient(Context context, String siteKey, String apiKey, boolean secure) {
+        this(context, siteKey, apiKey, secure, HttpTransport.getInstance());
+    }
+
+    public RecommendationsClient(Context context, String siteKey, String apiKey, boolean secure, HttpTransport transport) {
+        this.transport = transport;
         this.siteKey = siteKey;
         this.apiKey = apiKey;
         this.secure = secure;
+        this.baseUrl = (secure ? "https://" : "http://") + "apac-recommendations.unbxdapi.com/v1.0/" + apiKey + "/" + siteKey + "/";
+        this.parser = new JsonResponseParser<RecommendationResponse>(transport.getStringPool()) {
+            @Override
+            protected RecommendationResponse create(Map<String, Object> params) {
+                return new RecommendationResponse(params);
+            }
+        };
         this.sharedPreferences = context.getSharedPreferences(myPreferences, Context.MODE_PRIVATE);
-        this.uid = this.getUID();
-        
     }
     
     private String getUID(){
     	return this.sharedPreferences.getString(this.userIdentifier,"");
     }
 
-    private String getRecommendationUrl(){
-        return (secure ? "https://" : "http://") + "apac-recommendations.unbxdapi.com/v1.0/" + apiKey + "/" + siteKey + "/";
+    private RecommendationsClient set(RecommendationRequest request){
+        this.request = request;
+        this.requestException = null;
+
+        return this;
+    }
+
+    private RecommendationsClient set(RecommendationsException e){
+        this.request = null;
+        this.requestException = e;
+
+        return this;
     }
 
     /**
@@ -89,9 +94,11 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getRecentlyViewed(){
-        this._boxType = RecommenderBoxType.RECENTLY_VIEWED;
-
-        return this;
+        try {
+            return this.set(RecommendationRequest.recentlyViewed());
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
     }
 
     /**
@@ -100,10 +107,11 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getRecommendedForYou(String ip){
-        this._boxType = RecommenderBoxType.RECOMMENDED_FOR_YOU;
-        this.ip = ip;
-
-        return this;
+        try {
+            return this.set(RecommendationRequest.recommendedForYou(ip));
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
     }
 
     /**
@@ -112,11 +120,11 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getMoreLikeThis(String uniqueId){
-        this._boxType = RecommenderBoxType.MORE_LIKE_THESE;
-        this.uid = this.getUID();
-        this.uniqueId = uniqueId;
-
-        return this;
+        try {
+            return this.set(RecommendationRequest.moreLikeThis(uniqueId));
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
     }
 
     /**
@@ -125,10 +133,11 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getAlsoViewed(String uniqueId){
-        this._boxType = RecommenderBoxType.ALSO_VIEWED;
-        this.uniqueId = uniqueId;
-
-        return this;
+        try {
+            return this.set(RecommendationRequest.alsoViewed(uniqueId));
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
     }
 
     /**
@@ -137,10 +146,11 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getAlsoBought(String uniqueId){
-        this._boxType = RecommenderBoxType.ALSO_BOUGHT;
-        this.uniqueId = uniqueId;
-
-        return this;
+        try {
+            return this.set(RecommendationRequest.alsoBought(uniqueId));
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
     }
 
     /**
@@ -149,10 +159,11 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getTopSellers(String ip){
-        this._boxType = RecommenderBoxType.TOP_SELLERS;
-        this.ip = ip;
-
-        return this;
+        try {
+            return this.set(RecommendationRequest.topSellers(ip));
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
     }
 
     /**
@@ -162,11 +173,11 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getCategoryTopSellers(String category, String ip){
-        this._boxType = RecommenderBoxType.CATEGORY_TOP_SELLERS;
-        this.ip = ip;
-        this.category = category;
-
-        return this;
+        try {
+            return this.set(RecommendationRequest.categoryTopSellers(category, ip));
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
     }
 
     /**
@@ -176,11 +187,11 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getBrandTopSellers(String brand, String ip){
-        this._boxType = RecommenderBoxType.BRAND_TOP_SELLERS;
-        this.ip = ip;
-        this.brand = brand;
-
-        return this;
+        try {
+            return this.set(RecommendationRequest.brandTopSellers(brand, ip));
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
     }
 
     /**
@@ -190,11 +201,11 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getPDPTopSellers(String uniqueId, String ip){
-        this._boxType = RecommenderBoxType.PDP_TOP_SELLERS;
-        this.ip = ip;
-        this.uniqueId = uniqueId;
-
-        return this;
+        try {
+            return this.set(RecommendationRequest.pdpTopSellers(uniqueId, ip));
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
     }
 
     /**
@@ -203,55 +214,56 @@ public class RecommendationsClient {
      * @return this
      */
     public RecommendationsClient getCartRecommendations(String ip){
-        this._boxType = RecommenderBoxType.CART_RECOMMEND;
-        this.ip = ip;
+        try {
+            return this.set(RecommendationRequest.cartRecommendations(ip));
+        } catch (RecommendationsException e) {
+            return this.set(e);
+        }
+    }
+
+    /**
+     * Bounds the time taken by the recommendations call, including retries and parsing of the response.
+     * Defaults to the deadline configured for the endpoint on {@link HttpTransport}, if any.
+     * @param deadlineMillis
+     * @return this
+     */
+    public RecommendationsClient setDeadline(long deadlineMillis){
+        this.deadlineMillis = deadlineMillis;
 
         return this;
     }
 
-    private String generateUrl() throws RecommendationsException {
-        try {
-            StringBuffer sb = new StringBuffer();
-
-            if(_boxType != null){
-                sb.append(this.getRecommendationUrl());
-
-                if(_boxType.equals(RecommenderBoxType.ALSO_VIEWED)){
-                    sb.append("also-viewed/" + URLEncoder.encode(uniqueId, __encoding) + "?format=json");
-                }else if(_boxType.equals(RecommenderBoxType.ALSO_BOUGHT)){
-                    sb.append("also-bought/" + URLEncoder.encode(uniqueId, __encoding) + "?format=json");
-                }else if(_boxType.equals(RecommenderBoxType.RECENTLY_VIEWED)){
-                    sb.append("recently-viewed/" + URLEncoder.encode(uid, __encoding) + "?format=json");
-                }else if(_boxType.equals(RecommenderBoxType.RECOMMENDED_FOR_YOU)){
-                    sb.append("recommend/" + URLEncoder.encode(uid, __encoding) + "?format=json");
-                }else if(_boxType.equals(RecommenderBoxType.MORE_LIKE_THESE)){
-                    sb.append("more-like-these/" + URLEncoder.encode(uniqueId, __encoding) + "?format=json");
-                }else if(_boxType.equals(RecommenderBoxType.TOP_SELLERS)){
-                    sb.append("top-sellers/" + "?format=json");
-                }else if(_boxType.equals(RecommenderBoxType.CATEGORY_TOP_SELLERS)){
-                    sb.append("category-top-sellers/" + URLEncoder.encode(category, __encoding) + "?format=json");
-                }else if(_boxType.equals(RecommenderBoxType.BRAND_TOP_SELLERS)){
-                    sb.append("brand-top-sellers/" + URLEncoder.encode(brand, __encoding) + "?format=json");
-                }else if(_boxType.equals(RecommenderBoxType.PDP_TOP_SELLERS)){
-                    sb.append("pdp-top-sellers/" + URLEncoder.encode(uniqueId, __encoding) + "?format=json");
-                }else if(_boxType.equals(RecommenderBoxType.CART_RECOMMEND)){
-                    sb.append("cart-recommend/" + URLEncoder.encode(uid, __encoding) + "?format=json");
-                }
-
-                if(uid != null)
-                    sb.append("&uid=" + URLEncoder.encode(uid, __encoding));
-
-                if(ip != null)
-                    sb.append("&ip=" + URLEncoder.encode(ip, __encoding));
-            }else{
-                throw new RecommendationsException("Couldn't determine which recommendation widget to call.");
-            }
+    /**
+     * @return Immutable snapshot of the call configured on this client
+     * @throws RecommendationsException
+     */
+    public RecommendationRequest buildRequest() throws RecommendationsException {
+        if(requestException != null)
+            throw requestException;
+        if(request == null)
+            throw new RecommendationsException("Couldn't determine which recommendation widget to call.");
 
-            return sb.toString();
-        } catch (UnsupportedEncodingException e) {
-            LOG.error("Encoding error", e);
-            throw new RecommendationsException(e);
-        }
+        return request.withDeadline(deadlineMillis);
+    }
+
+    private static RequestInfo getRequestInfo(RecommendationRequest request){
+        return new RequestInfo(Endpoint.RECOMMENDATIONS, "recommendations/" + request.getBoxType().getPath());
+    }
+
+    private static Deadline newDeadline(RecommendationRequest request){
+        return request.getDeadlineMillis() > 0 ? Deadline.after(request.getDeadlineMillis()) : null;
+    }
+
+    /**
+     * @param request
+     * @return URL of the request for this site, for the user of the client if the request has no user id
+     * @throws RecommendationsException
+     */
+    public String getUrl(RecommendationRequest request) throws RecommendationsException {
+        if(request.getUid() == null)
+            request = request.withUid(this.getUID());
+
+        return this.baseUrl + request.getCanonicalQuery();
     }
 
     
@@ -263,13 +275,23 @@ public class RecommendationsClient {
      */
     
     public void execute(AsyncResponse delegate,Context context) throws RecommendationsException{
+    	this.execute(this.buildRequest(), delegate, context);
+    }
+
+    /**
+     * Executes a recommendations call in the background thread by passing callback
+     * @param request
+     * @param delegate
+     * @param context
+     * @throws RecommendationsException
+     */
+    public void execute(RecommendationRequest request, AsyncResponse delegate, Context context) throws RecommendationsException{
     	try{
-    		String url = this.generateUrl();
-    		RequestManager.getResponse(null, url, context, delegate);	
+    		RequestManager.getResponse(this.transport, getRequestInfo(request), this.getUrl(request), newDeadline(request), context, delegate);
     	}catch (Exception e){
     		LOG.error(e.getMessage(),e);
     		throw new RecommendationsException(e);
-    	}   	
+    	}
     }
     
     /**
@@ -278,38 +300,27 @@ public class RecommendationsClient {
      * @throws RecommendationsException
      */
     public RecommendationResponse execute() throws RecommendationsException {
+        return this.execute(this.buildRequest());
+    }
+
+    /**
+     * Executes a recommendations call. Safe to call from several threads.
+     * @param request
+     * @return {@link RecommendationResponse}
+     * @throws RecommendationsException
+     */
+    public RecommendationResponse execute(RecommendationRequest request) throws RecommendationsException {
         try{
-            String url = this.generateUrl();
-
-            DefaultHttpClient client = new DefaultHttpClient();
-            HttpGet get = new HttpGet(url);
-			HttpResponse response = client.execute(get);
-			if(response.getStatusLine().getStatusCode() == 200){
-				Map<String, Object> responseObject = new ObjectMapper().readValue(new InputStreamReader(response.getEntity().getContent()), Map.class);
-				return new RecommendationResponse(responseObject);
-
-			} else {
-				StringBuffer sb = new StringBuffer();
-				BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-				String line = "";
-				while ((line = rd.readLine()) != null) {
-					sb.append(line);
-				}
-
-				String responseText = sb.toString();
-
-				LOG.error(responseText);
-				throw new RecommendationsException(responseText);
-			}
-		} catch (JsonParseException e) {
+            return this.transport.execute(getRequestInfo(request), this.getUrl(request), this.parser, newDeadline(request));
+        } catch (JsonParseException e) {
 			LOG.error(e.getMessage(), e);
 			throw new RecommendationsException(e);
 		} catch (JsonMappingException e) {
 			LOG.error(e.getMessage(), e);
 			throw new RecommendationsException(e);
-		} catch (ClientProtocolException e) {
-			LOG.error(e.getMessage(), e);
-			throw new RecommendationsException(e);
+		} catch (HttpStatusException e) {
+			LOG.error(e.getMessage());
+			throw new RecommendationsException(e.getMessage());
 		} catch (IOException e) {
 			LOG.error(e.getMessage(), e);
 			throw new RecommendationsException(e);
@@ -2,6 +2,8 @@ package com.unbxd.client.recommendations;
 
 import android.content.Context;
 
+import com.unbxd.client.http.HttpTransport;
+
 /**
  * Created with IntelliJ IDEA.
  * User: sourabh
@@ -14,3 +16,8 @@ public class RecommendationsClientFactory {
     public static RecommendationsClient getRecommendationsClient(Context context, String siteKey, String apiKey, boolean secure){
         return new RecommendationsClient(context, siteKey, apiKey, secure);
     }
+
+    public static RecommendationsClient getRecommendationsClient(Context context, String siteKey, String apiKey, boolean secure, HttpTransport transport){
+        return new RecommendationsClient(context, siteKey, apiKey, secure, transport);
+    }
+}
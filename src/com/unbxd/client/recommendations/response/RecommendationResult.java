@@ -1,5 +1,9 @@
 package com.unbxd.client.recommendations.response;
 
+import com.unbxd.client.schema.ProductRecord;
+import com.unbxd.client.schema.ProductSchema;
+
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -13,6 +17,7 @@ public class RecommendationResult {
 
 	private String _uniqueId;
 	private Map<String, Object> _attributes;
+	private volatile ProductRecord _record;
 
 	protected RecommendationResult(Map<String,Object> params) {
 		this._attributes = params;
@@ -20,10 +25,11 @@ public class RecommendationResult {
 	}
 
 	/**
-	 * @return Attributes of the product
+	 * @return Read only attributes of the product. Nested lists and maps are read only too when decoded by the
+	 * clients, refer {@link com.unbxd.client.http.JsonDecoder}.
 	 */
 	public Map<String, Object> getAttributes(){
-		return this._attributes;
+		return Collections.unmodifiableMap(this._attributes);
 	}
 
 	/**
@@ -40,4 +46,18 @@ public class RecommendationResult {
 	public Object getAttribute(String fieldName){
 		return this._attributes.get(fieldName);
 	}
+
+	/**
+	 * @param schema
+	 * @return Attributes of the product decoded to the fields of the schema. Decoded once, later calls with the
+	 * same schema return the same record.
+	 */
+	public ProductRecord bind(ProductSchema schema){
+		ProductRecord record = this._record;
+		if(record == null || record.getSchema() != schema){
+			record = schema.bind(this._attributes);
+			this._record = record;
+		}
+		return record;
+	}
 }
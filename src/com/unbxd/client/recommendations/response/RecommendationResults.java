@@ -1,6 +1,7 @@
 package com.unbxd.client.recommendations.response;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -40,10 +41,10 @@ public class RecommendationResults {
 	}
 
 	/**
-	 * @return List of products. Refer {@link RecommendationResult}
+	 * @return Read only list of products. Refer {@link RecommendationResult}
 	 */
 	public List<RecommendationResult> getResults(){
-		return this._results;
+		return Collections.unmodifiableList(this._results);
 	}
 
 }
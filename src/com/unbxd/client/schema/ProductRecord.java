@@ -0,0 +1,79 @@
+package com.unbxd.client.schema;
+
+/**
+ * Product attributes decoded to the fields of a {@link ProductSchema}. Numbers and flags are held in primitive
+ * arrays and strings in a single reference array, each field at a slot fixed by the schema.
+ *
+ * Values are read with the fields of the schema: price.get(record), title.get(record).
+ */
+public class ProductRecord {
+
+	private final ProductSchema _schema;
+	private final double[] _doubles;
+	private final int[] _ints;
+	private final Object[] _refs;
+	private final long[] _present;
+
+	ProductRecord(ProductSchema schema, int doubles, int ints, int refs, int fields) {
+		this._schema = schema;
+		this._doubles = new double[doubles];
+		this._ints = new int[ints];
+		this._refs = new Object[refs];
+		this._present = new long[(fields + 63) >>> 6];
+	}
+
+	/**
+	 * @return Schema the record was decoded with
+	 */
+	public ProductSchema getSchema(){
+		return this._schema;
+	}
+
+	boolean isPresent(int index){
+		return (_present[index >>> 6] & (1L << index)) != 0;
+	}
+
+	double getDouble(int slot){
+		return _doubles[slot];
+	}
+
+	int getInt(int slot){
+		return _ints[slot];
+	}
+
+	Object getRef(int slot){
+		return _refs[slot];
+	}
+
+	void setDouble(int index, int slot, double value){
+		this._doubles[slot] = value;
+		this.setPresent(index);
+	}
+
+	void setInt(int index, int slot, int value){
+		this._ints[slot] = value;
+		this.setPresent(index);
+	}
+
+	void setRef(int index, int slot, Object value){
+		this._refs[slot] = value;
+		this.setPresent(index);
+	}
+
+	private void setPresent(int index){
+		this._present[index >>> 6] |= 1L << index;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for(ProductSchema.Field field : _schema.getFields()){
+			if(!field.isPresent(this))
+				continue;
+			if(sb.length() > 1)
+				sb.append(", ");
+			sb.append(field.getName()).append('=').append(field.getValue(this));
+		}
+		return sb.append('}').toString();
+	}
+}
@@ -0,0 +1,619 @@
+package com.unbxd.client.schema;
+
+import com.unbxd.client.http.StringPool;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Catalog fields an app reads from products, declared once and decoded to compact {@link ProductRecord}s:
+ *
+ * ProductSchema.Builder builder = ProductSchema.newBuilder();
+ * ProductSchema.StringField title = builder.addString("title");
+ * ProductSchema.DoubleField price = builder.addDouble("price");
+ * ProductSchema.StringListField colors = builder.addStringList("color", true);
+ * ProductSchema schema = builder.build();
+ *
+ * ProductRecord record = searchResult.bind(schema);
+ * double p = price.get(record);
+ *
+ * Fields are accessors with their slot in the record resolved when declared, so reading a value is an array
+ * access without hashing or casting. Values are converted to the declared type when decoding: numbers sent as
+ * strings are parsed, and the first value of a multi-valued attribute is kept for a single-valued field. Values
+ * which can't be converted are left absent.
+ *
+ * Records are decoded from the attributes of {@link com.unbxd.client.search.response.SearchResult},
+ * {@link com.unbxd.client.recommendations.response.RecommendationResult} and
+ * {@link com.unbxd.client.autosuggest.response.AutoSuggestResult}, or straight from a response body with
+ * {@link #readProducts(InputStream)}, skipping the attributes the schema doesn't declare.
+ *
+ * Fields declared as interned share equal values through a {@link StringPool} of the schema, bounded to
+ * {@link #INTERN_CAPACITY} values, so they don't evict the strings of the response decoders.
+ */
+public class ProductSchema {
+
+	private static final JsonFactory JSON = new JsonFactory();
+
+	/**
+	 * Number of interned values held by a schema
+	 */
+	public static final int INTERN_CAPACITY = 1024;
+
+	/**
+	 * Fields holding the products in search, browse, autosuggest and recommendations responses
+	 */
+	private static final List<String> PRODUCT_ARRAYS = Arrays.asList("products", "Recommendations");
+
+	private final List<Field> _fields;
+	private final Map<String, Field> _fieldsByName;
+	private final int _doubles;
+	private final int _ints;
+	private final int _refs;
+	private final StringPool _pool;
+
+	private ProductSchema(Builder builder) {
+		this._fields = Collections.unmodifiableList(new ArrayList<Field>(builder.fields));
+		this._fieldsByName = new HashMap<String, Field>();
+		for(Field field : _fields){
+			field._schema = this;
+			this._fieldsByName.put(field._name, field);
+		}
+		this._doubles = builder.doubles;
+		this._ints = builder.ints;
+		this._refs = builder.refs;
+		this._pool = new StringPool(INTERN_CAPACITY);
+	}
+
+	public static Builder newBuilder(){
+		return new Builder();
+	}
+
+	/**
+	 * @return Fields in the order they were declared
+	 */
+	public List<Field> getFields(){
+		return this._fields;
+	}
+
+	/**
+	 * @param name
+	 * @return Field for the attribute name, null if it isn't declared
+	 */
+	public Field getField(String name){
+		return this._fieldsByName.get(name);
+	}
+
+	/**
+	 * @param attributes Decoded attributes of a product
+	 * @return Record with the declared fields of the product
+	 */
+	public ProductRecord bind(Map<String, Object> attributes){
+		ProductRecord record = this.newRecord();
+		for(Field field : _fields){
+			Object value = attributes.get(field._name);
+			if(value instanceof List && !(field instanceof StringListField)){
+				List<?> values = (List<?>) value;
+				value = values.isEmpty() ? null : values.get(0);
+			}
+			if(value != null)
+				field.bind(record, value);
+		}
+		return record;
+	}
+
+	/**
+	 * @param parser Parser on the START_OBJECT of a product. Left on its END_OBJECT.
+	 * @return Record with the declared fields of the product
+	 * @throws IOException
+	 */
+	public ProductRecord read(JsonParser parser) throws IOException {
+		if(parser.getCurrentToken() != JsonToken.START_OBJECT)
+			throw new IOException("Expected a product object, found " + parser.getCurrentToken());
+
+		ProductRecord record = this.newRecord();
+		while(parser.nextToken() == JsonToken.FIELD_NAME){
+			Field field = this._fieldsByName.get(parser.getCurrentName());
+			JsonToken token = parser.nextToken();
+			if(field == null || token == JsonToken.VALUE_NULL){
+				parser.skipChildren();
+			}else if(token == JsonToken.START_ARRAY){
+				field.readArray(record, parser);
+			}else if(token.isScalarValue()){
+				field.read(record, parser);
+			}else{
+				parser.skipChildren();
+			}
+		}
+		return record;
+	}
+
+	/**
+	 * Decodes the products of a search, browse, autosuggest or recommendations response body without building
+	 * the attribute maps.
+	 *
+	 * @param content Response body
+	 * @return Records of the products, in the order of the response
+	 * @throws IOException
+	 */
+	public List<ProductRecord> readProducts(InputStream content) throws IOException {
+		List<ProductRecord> records = new ArrayList<ProductRecord>();
+		JsonParser parser = JSON.createJsonParser(content);
+		try{
+			JsonToken token;
+			while((token = parser.nextToken()) != null){
+				if(token != JsonToken.FIELD_NAME || !PRODUCT_ARRAYS.contains(parser.getCurrentName()))
+					continue;
+
+				if(parser.nextToken() != JsonToken.START_ARRAY){
+					parser.skipChildren();
+					continue;
+				}
+				while(parser.nextToken() != JsonToken.END_ARRAY){
+					if(parser.getCurrentToken() == JsonToken.START_OBJECT){
+						records.add(this.read(parser));
+					}else{
+						parser.skipChildren();
+					}
+				}
+			}
+		}finally{
+			parser.close();
+		}
+		return records;
+	}
+
+	private ProductRecord newRecord(){
+		return new ProductRecord(this, _doubles, _ints, _refs, _fields.size());
+	}
+
+	/**
+	 * @param parser Parser on a scalar value
+	 * @return Text of the value from the pool of the schema, without building a string when it's pooled
+	 */
+	private String intern(JsonParser parser) throws IOException {
+		return this._pool.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+	}
+
+	private String intern(String value){
+		return this._pool.intern(value);
+	}
+
+	/**
+	 * Declares the fields of a schema. A builder is used for one schema.
+	 */
+	public static class Builder {
+
+		private final List<Field> fields = new ArrayList<Field>();
+		private final Set<String> names = new HashSet<String>();
+		private int doubles;
+		private int ints;
+		private int refs;
+		private boolean built;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param name Attribute name
+		 * @return Field for a numeric attribute, {@link Double#NaN} when absent
+		 */
+		public DoubleField addDouble(String name){
+			return this.add(new DoubleField(name, this.declare(name), doubles++));
+		}
+
+		/**
+		 * @param name Attribute name
+		 * @return Field for an integer attribute, 0 when absent
+		 */
+		public IntField addInt(String name){
+			return this.add(new IntField(name, this.declare(name), ints++));
+		}
+
+		/**
+		 * @param name Attribute name
+		 * @return Field for a boolean attribute, sent as true/false or as a string. false when absent.
+		 */
+		public BooleanField addBoolean(String name){
+			return this.add(new BooleanField(name, this.declare(name), ints++));
+		}
+
+		/**
+		 * @param name Attribute name
+		 * @return Field for a string attribute, null when absent
+		 */
+		public StringField addString(String name){
+			return this.addString(name, false);
+		}
+
+		/**
+		 * @param name Attribute name
+		 * @param intern true to share equal values through the pool of the schema, for attributes with few
+		 *               distinct values like brand or category
+		 * @return Field for a string attribute, null when absent
+		 */
+		public StringField addString(String name, boolean intern){
+			return this.add(new StringField(name, this.declare(name), refs++, intern));
+		}
+
+		/**
+		 * @param name Attribute name
+		 * @param intern true to share equal values through the pool of the schema
+		 * @return Field for a multi-valued attribute, an empty list when absent
+		 */
+		public StringListField addStringList(String name, boolean intern){
+			return this.add(new StringListField(name, this.declare(name), refs++, intern));
+		}
+
+		/**
+		 * @return Index of the new field
+		 */
+		private int declare(String name){
+			if(built)
+				throw new IllegalStateException("Schema is already built");
+			if(!names.add(name))
+				throw new IllegalArgumentException("Field " + name + " is already declared");
+			return fields.size();
+		}
+
+		private <T extends Field> T add(T field){
+			this.fields.add(field);
+			return field;
+		}
+
+		public ProductSchema build(){
+			if(built)
+				throw new IllegalStateException("Schema is already built");
+			this.built = true;
+			return new ProductSchema(this);
+		}
+	}
+
+	/**
+	 * Accessor of a declared attribute
+	 */
+	public abstract static class Field {
+
+		private final String _name;
+		final int _index;
+		final int _slot;
+		ProductSchema _schema;
+
+		private Field(String name, int index, int slot) {
+			this._name = name;
+			this._index = index;
+			this._slot = slot;
+		}
+
+		/**
+		 * @return Attribute name
+		 */
+		public String getName(){
+			return this._name;
+		}
+
+		/**
+		 * @param record
+		 * @return true if the product has a value for the field
+		 */
+		public boolean isPresent(ProductRecord record){
+			return this.check(record).isPresent(_index);
+		}
+
+		/**
+		 * @param record
+		 * @return Value of the field boxed, null when absent
+		 */
+		public abstract Object getValue(ProductRecord record);
+
+		/**
+		 * @param value Decoded attribute value, not null
+		 */
+		abstract void bind(ProductRecord record, Object value);
+
+		/**
+		 * @param parser Parser on a scalar value, not null
+		 */
+		abstract void read(ProductRecord record, JsonParser parser) throws IOException;
+
+		/**
+		 * Single-valued fields keep the first value of an array
+		 *
+		 * @param parser Parser on the START_ARRAY of the value. Left on its END_ARRAY.
+		 */
+		void readArray(ProductRecord record, JsonParser parser) throws IOException {
+			boolean read = false;
+			while(parser.nextToken() != JsonToken.END_ARRAY){
+				JsonToken token = parser.getCurrentToken();
+				if(!read && token.isScalarValue() && token != JsonToken.VALUE_NULL){
+					this.read(record, parser);
+					read = true;
+				}else{
+					parser.skipChildren();
+				}
+			}
+		}
+
+		final ProductRecord check(ProductRecord record){
+			if(record.getSchema() != _schema)
+				throw new IllegalArgumentException("Field " + _name + " doesn't belong to the schema of the record");
+			return record;
+		}
+
+		@Override
+		public String toString() {
+			return this._name;
+		}
+	}
+
+	public static final class DoubleField extends Field {
+
+		private DoubleField(String name, int index, int slot) {
+			super(name, index, slot);
+		}
+
+		/**
+		 * @param record
+		 * @return Value, {@link Double#NaN} when absent
+		 */
+		public double get(ProductRecord record){
+			return this.check(record).isPresent(_index) ? record.getDouble(_slot) : Double.NaN;
+		}
+
+		@Override
+		public Object getValue(ProductRecord record) {
+			return this.isPresent(record) ? Double.valueOf(record.getDouble(_slot)) : null;
+		}
+
+		@Override
+		void bind(ProductRecord record, Object value) {
+			if(value instanceof Number){
+				record.setDouble(_index, _slot, ((Number) value).doubleValue());
+			}else if(value instanceof String){
+				this.parse(record, (String) value);
+			}
+		}
+
+		@Override
+		void read(ProductRecord record, JsonParser parser) throws IOException {
+			JsonToken token = parser.getCurrentToken();
+			if(token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT){
+				record.setDouble(_index, _slot, parser.getDoubleValue());
+			}else if(token == JsonToken.VALUE_STRING){
+				this.parse(record, parser.getText());
+			}
+		}
+
+		private void parse(ProductRecord record, String value){
+			try{
+				record.setDouble(_index, _slot, Double.parseDouble(value.trim()));
+			}catch (NumberFormatException e){
+				// Left absent
+			}
+		}
+	}
+
+	public static final class IntField extends Field {
+
+		private IntField(String name, int index, int slot) {
+			super(name, index, slot);
+		}
+
+		/**
+		 * @param record
+		 * @return Value, 0 when absent
+		 */
+		public int get(ProductRecord record){
+			return this.get(record, 0);
+		}
+
+		/**
+		 * @param record
+		 * @param defaultValue
+		 * @return Value, defaultValue when absent
+		 */
+		public int get(ProductRecord record, int defaultValue){
+			return this.check(record).isPresent(_index) ? record.getInt(_slot) : defaultValue;
+		}
+
+		@Override
+		public Object getValue(ProductRecord record) {
+			return this.isPresent(record) ? Integer.valueOf(record.getInt(_slot)) : null;
+		}
+
+		@Override
+		void bind(ProductRecord record, Object value) {
+			if(value instanceof Number){
+				record.setInt(_index, _slot, ((Number) value).intValue());
+			}else if(value instanceof String){
+				this.parse(record, (String) value);
+			}
+		}
+
+		@Override
+		void read(ProductRecord record, JsonParser parser) throws IOException {
+			JsonToken token = parser.getCurrentToken();
+			if(token == JsonToken.VALUE_NUMBER_INT){
+				record.setInt(_index, _slot, parser.getIntValue());
+			}else if(token == JsonToken.VALUE_NUMBER_FLOAT){
+				record.setInt(_index, _slot, (int) parser.getDoubleValue());
+			}else if(token == JsonToken.VALUE_STRING){
+				this.parse(record, parser.getText());
+			}
+		}
+
+		private void parse(ProductRecord record, String value){
+			try{
+				record.setInt(_index, _slot, (int) Double.parseDouble(value.trim()));
+			}catch (NumberFormatException e){
+				// Left absent
+			}
+		}
+	}
+
+	public static final class BooleanField extends Field {
+
+		private BooleanField(String name, int index, int slot) {
+			super(name, index, slot);
+		}
+
+		/**
+		 * @param record
+		 * @return Value, false when absent
+		 */
+		public boolean get(ProductRecord record){
+			return this.check(record).isPresent(_index) && record.getInt(_slot) != 0;
+		}
+
+		@Override
+		public Object getValue(ProductRecord record) {
+			return this.isPresent(record) ? Boolean.valueOf(record.getInt(_slot) != 0) : null;
+		}
+
+		@Override
+		void bind(ProductRecord record, Object value) {
+			if(value instanceof Boolean){
+				record.setInt(_index, _slot, (Boolean) value ? 1 : 0);
+			}else if(value instanceof Number){
+				record.setInt(_index, _slot, ((Number) value).doubleValue() != 0 ? 1 : 0);
+			}else if(value instanceof String){
+				this.parse(record, (String) value);
+			}
+		}
+
+		@Override
+		void read(ProductRecord record, JsonParser parser) throws IOException {
+			JsonToken token = parser.getCurrentToken();
+			if(token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE){
+				record.setInt(_index, _slot, token == JsonToken.VALUE_TRUE ? 1 : 0);
+			}else if(token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT){
+				record.setInt(_index, _slot, parser.getDoubleValue() != 0 ? 1 : 0);
+			}else if(token == JsonToken.VALUE_STRING){
+				this.parse(record, parser.getText());
+			}
+		}
+
+		private void parse(ProductRecord record, String value){
+			value = value.trim();
+			if(value.equalsIgnoreCase("true") || value.equals("1")){
+				record.setInt(_index, _slot, 1);
+			}else if(value.equalsIgnoreCase("false") || value.equals("0")){
+				record.setInt(_index, _slot, 0);
+			}
+		}
+	}
+
+	public static final class StringField extends Field {
+
+		private final boolean _intern;
+
+		private StringField(String name, int index, int slot, boolean intern) {
+			super(name, index, slot);
+			this._intern = intern;
+		}
+
+		/**
+		 * @param record
+		 * @return Value, null when absent
+		 */
+		public String get(ProductRecord record){
+			return (String) this.check(record).getRef(_slot);
+		}
+
+		@Override
+		public Object getValue(ProductRecord record) {
+			return this.get(record);
+		}
+
+		@Override
+		void bind(ProductRecord record, Object value) {
+			String s = value.toString();
+			record.setRef(_index, _slot, _intern ? _schema.intern(s) : s);
+		}
+
+		@Override
+		void read(ProductRecord record, JsonParser parser) throws IOException {
+			record.setRef(_index, _slot, _intern ? _schema.intern(parser) : parser.getText());
+		}
+	}
+
+	public static final class StringListField extends Field {
+
+		private final boolean _intern;
+
+		private StringListField(String name, int index, int slot, boolean intern) {
+			super(name, index, slot);
+			this._intern = intern;
+		}
+
+		/**
+		 * @param record
+		 * @return Values, an empty list when absent
+		 */
+		@SuppressWarnings("unchecked")
+		public List<String> get(ProductRecord record){
+			List<String> values = (List<String>) this.check(record).getRef(_slot);
+			return values != null ? values : Collections.<String>emptyList();
+		}
+
+		@Override
+		public Object getValue(ProductRecord record) {
+			return this.isPresent(record) ? this.get(record) : null;
+		}
+
+		@Override
+		void bind(ProductRecord record, Object value) {
+			if(!(value instanceof List)){
+				this.set(record, new String[]{ this.value(value.toString()) });
+				return;
+			}
+
+			List<?> list = (List<?>) value;
+			String[] values = new String[list.size()];
+			int n = 0;
+			for(Object element : list){
+				if(element != null)
+					values[n++] = this.value(element.toString());
+			}
+			this.set(record, n == values.length ? values : Arrays.copyOf(values, n));
+		}
+
+		@Override
+		void read(ProductRecord record, JsonParser parser) throws IOException {
+			this.set(record, new String[]{ _intern ? _schema.intern(parser) : parser.getText() });
+		}
+
+		@Override
+		void readArray(ProductRecord record, JsonParser parser) throws IOException {
+			List<String> values = new ArrayList<String>();
+			while(parser.nextToken() != JsonToken.END_ARRAY){
+				JsonToken token = parser.getCurrentToken();
+				if(token.isScalarValue() && token != JsonToken.VALUE_NULL){
+					values.add(_intern ? _schema.intern(parser) : parser.getText());
+				}else{
+					parser.skipChildren();
+				}
+			}
+			this.set(record, values.toArray(new String[values.size()]));
+		}
+
+		private String value(String s){
+			return _intern ? _schema.intern(s) : s;
+		}
+
+		private void set(ProductRecord record, String[] values){
+			record.setRef(_index, _slot, Collections.unmodifiableList(Arrays.asList(values)));
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.unbxd.client.search;
+
+import com.unbxd.client.http.Deadline;
+import com.unbxd.client.search.exceptions.SearchException;
+import com.unbxd.client.search.response.BucketResult;
+import com.unbxd.client.search.response.BucketResults;
+import com.unbxd.client.search.response.SearchResponse;
+
+import org.apache.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads a bucketed search one bucket at a time instead of in one large response.
+ *
+ * The bucket list is fetched first, without products. The products of every bucket are then fetched by
+ * a search filtered on the bucket value, a few buckets at a time, and handed to the {@link BucketListener}
+ * as soon as they arrive. The deadline set on the client bounds the whole fan-out.
+ */
+public class BucketFanOut {
+
+	private static final Logger LOG = Logger.getLogger(BucketFanOut.class);
+
+	public static final int DEFAULT_PARALLELISM = 4;
+
+	/**
+	 * Receives buckets as they load. Called from background threads.
+	 */
+	public interface BucketListener {
+
+		/**
+		 * @param buckets Buckets with their product counts, products not loaded yet
+		 */
+		void onBucketsListed(BucketResults buckets);
+
+		/**
+		 * @param value
+		 * @param bucket Bucket with its products
+		 */
+		void onBucketLoaded(String value, BucketResult bucket);
+
+		/**
+		 * @param value
+		 * @param e
+		 */
+		void onBucketFailed(String value, SearchException e);
+	}
+
+	private final SearchClient client;
+	private final SearchRequest request;
+	private int parallelism;
+	private BucketListener listener;
+
+	/**
+	 * @param client Client with the bucket call set. Refer {@link SearchClient#bucket(String, String, java.util.Map)}
+	 */
+	public BucketFanOut(SearchClient client){
+		this(client, null);
+	}
+
+	/**
+	 * @param client Client of the site
+	 * @param request Bucket call, refer {@link SearchRequest.Builder#bucket(String, String, java.util.Map)}
+	 */
+	public BucketFanOut(SearchClient client, SearchRequest request){
+		this.client = client;
+		this.request = request;
+		this.parallelism = DEFAULT_PARALLELISM;
+	}
+
+	/**
+	 * @param parallelism Maximum number of buckets loaded at the same time
+	 * @return this
+	 */
+	public BucketFanOut setParallelism(int parallelism){
+		if(parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1");
+
+		this.parallelism = parallelism;
+
+		return this;
+	}
+
+	/**
+	 * @param listener
+	 * @return this
+	 */
+	public BucketFanOut setListener(BucketListener listener){
+		this.listener = listener;
+
+		return this;
+	}
+
+	/**
+	 * Lists the buckets and loads all of them. Blocks until every bucket either loaded or failed.
+	 *
+	 * @return {@link BucketResults}. Buckets which failed to load keep no products.
+	 * @throws SearchException if the bucket list can't be fetched
+	 */
+	public BucketResults execute() throws SearchException {
+		final SearchRequest request = this.request != null ? this.request : client.buildRequest();
+		if(request.getBucketField() == null){
+			throw new SearchException("Bucket field is not set");
+		}
+
+		final Deadline deadline = SearchClient.newDeadline(request);
+		SearchResponse listing = client.execute(request.toBuilder().setPage(1, 0).build(), deadline);
+
+		if(listing.getBuckets() == null){
+			throw new SearchException("Response has no buckets");
+		}
+		// The listing may be cached, buckets are loaded into a copy of it
+		final BucketResults buckets = listing.getBuckets().copy();
+		if(listener != null){
+			listener.onBucketsListed(buckets);
+		}
+
+		final List<String> values = buckets.getBucketValues();
+		final AtomicInteger next = new AtomicInteger();
+		int workers = Math.min(parallelism, values.size());
+		final CountDownLatch done = new CountDownLatch(workers);
+
+		Executor executor = client.getTransport().getExecutor();
+		for(int i = 0; i < workers; i++){
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try{
+						int index;
+						while((index = next.getAndIncrement()) < values.size()){
+							load(request, buckets, values.get(index), deadline);
+						}
+					}finally{
+						done.countDown();
+					}
+				}
+			});
+		}
+
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SearchException(e);
+		}
+
+		return buckets;
+	}
+
+	private void load(SearchRequest request, BucketResults buckets, String value, Deadline deadline){
+		try{
+			SearchRequest bucketRequest = request.toBuilder()
+					.bucket(request.getQuery(), null, request.getQueryParams())
+					.addFilter(request.getBucketField(), value)
+					.build();
+
+			BucketResult bucket = buckets.load(value, client.execute(bucketRequest, deadline));
+			if(listener != null){
+				listener.onBucketLoaded(value, bucket);
+			}
+		}catch (SearchException e){
+			LOG.error("Failed to load bucket " + value, e);
+			if(listener != null){
+				listener.onBucketFailed(value, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.unbxd.client.search;
+
+import com.unbxd.client.http.Deadline;
+import com.unbxd.client.http.DeadlineExceededException;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.search.exceptions.SearchException;
+import com.unbxd.client.search.response.SearchResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs several independent searches concurrently, e.g. one per carousel of a landing page.
+ *
+ * All searches share the pooled connections of their clients' {@link HttpTransport}. A deadline set on the batch bounds
+ * all of them, on top of any deadline of their own. A failed or late search doesn't fail the batch, its
+ * {@link Result} carries the exception instead.
+ */
+public class SearchBatch {
+
+	/**
+	 * Outcome of one search of the batch
+	 */
+	public static class Result {
+		private final SearchResponse response;
+		private final SearchException exception;
+
+		private Result(SearchResponse response, SearchException exception){
+			this.response = response;
+			this.exception = exception;
+		}
+
+		/**
+		 * @return true if the search succeeded
+		 */
+		public boolean isSuccess(){
+			return exception == null;
+		}
+
+		/**
+		 * @return {@link SearchResponse}, null if the search failed
+		 */
+		public SearchResponse getResponse(){
+			return response;
+		}
+
+		/**
+		 * @return Reason of the failure, null if the search succeeded
+		 */
+		public SearchException getException(){
+			return exception;
+		}
+	}
+
+	private final List<SearchClient> clients;
+	private final List<SearchRequest> requests;
+	private long deadlineMillis;
+
+	public SearchBatch(){
+		this.clients = new ArrayList<SearchClient>();
+		this.requests = new ArrayList<SearchRequest>();
+	}
+
+	/**
+	 * Adds the search configured on a client to the batch. The call is captured when the batch is executed.
+	 * @param client
+	 * @return this
+	 */
+	public SearchBatch add(SearchClient client){
+		return this.add(client, null);
+	}
+
+	/**
+	 * Adds a search to the batch
+	 * @param client Client of the site
+	 * @param request
+	 * @return this
+	 */
+	public SearchBatch add(SearchClient client, SearchRequest request){
+		this.clients.add(client);
+		this.requests.add(request);
+
+		return this;
+	}
+
+	/**
+	 * Bounds the time taken by the whole batch
+	 * @param deadlineMillis
+	 * @return this
+	 */
+	public SearchBatch setDeadline(long deadlineMillis){
+		this.deadlineMillis = deadlineMillis;
+
+		return this;
+	}
+
+	/**
+	 * Executes all the searches and waits for them, at most until the deadline of the batch.
+	 *
+	 * @return One {@link Result} per search, in the order they were added
+	 */
+	public List<Result> execute(){
+		final Deadline deadline = deadlineMillis > 0 ? Deadline.after(deadlineMillis) : null;
+		List<Future<SearchResponse>> futures = new ArrayList<Future<SearchResponse>>(clients.size());
+		List<Result> results = new ArrayList<Result>(clients.size());
+		for(int i = 0; i < clients.size(); i++){
+			final SearchClient client = clients.get(i);
+			final SearchRequest request;
+			try{
+				request = requests.get(i) != null ? requests.get(i) : client.buildRequest();
+			}catch (SearchException e){
+				futures.add(null);
+				results.add(new Result(null, e));
+				continue;
+			}
+
+			futures.add(client.getTransport().getExecutor().submit(new Callable<SearchResponse>() {
+				@Override
+				public SearchResponse call() throws Exception {
+					Deadline own = SearchClient.newDeadline(request);
+					return client.execute(request, deadline != null ? deadline.earliest(own) : own);
+				}
+			}));
+			results.add(null);
+		}
+
+		for(int i = 0; i < futures.size(); i++){
+			if(futures.get(i) != null)
+				results.set(i, this.await(futures.get(i), deadline));
+		}
+		return Collections.unmodifiableList(results);
+	}
+
+	private Result await(Future<SearchResponse> future, Deadline deadline){
+		try{
+			SearchResponse response = deadline != null
+					? future.get(deadline.getRemainingMillis(), TimeUnit.MILLISECONDS)
+					: future.get();
+			return new Result(response, null);
+		}catch (ExecutionException e){
+			Throwable cause = e.getCause();
+			return new Result(null, cause instanceof SearchException ? (SearchException) cause : new SearchException(cause));
+		}catch (TimeoutException e){
+			future.cancel(true);
+			return new Result(null, new SearchException(new DeadlineExceededException(e)));
+		}catch (InterruptedException e){
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			return new Result(null, new SearchException(e));
+		}
+	}
+}
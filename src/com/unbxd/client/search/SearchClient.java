@@ -4,21 +4,20 @@ import android.content.Context;
 
 import com.unbxd.client.AsyncResponse;
 import com.unbxd.client.RequestManager;
+import com.unbxd.client.http.Deadline;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpStatusException;
+import com.unbxd.client.http.HttpTransport;
+import com.unbxd.client.http.JsonResponseParser;
+import com.unbxd.client.http.RequestInfo;
+import com.unbxd.client.http.ResponseParser;
 import com.unbxd.client.search.exceptions.SearchException;
 import com.unbxd.client.search.response.SearchResponse;
 
-import org.apache.commons.lang.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
-import org.codehaus.jackson.map.ObjectMapper;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.util.*;
+import java.util.List;
+import java.util.Map;
 
 
 
@@ -31,6 +30,10 @@ import java.util.*;
  * Time: 10:55 AM
  *
  * Client class for calling Search APIs
+ *
+ * A client is meant to live as long as the site configuration. {@link #execute(SearchRequest)} is thread safe,
+ * so one client can serve concurrent {@link SearchRequest}s. The builder style methods below configure a single
+ * call on the client itself and are kept for convenience, they must not be used from several threads.
  */
 public class SearchClient {
 
@@ -41,40 +44,34 @@ public class SearchClient {
 		DESC
 	}
 
-	private static final String __encoding = "UTF-8";
-
-	private String siteKey;
-	private String apiKey;
-	private boolean secure;
+	private final String siteKey;
+	private final String apiKey;
+	private final boolean secure;
+	private final String baseUrl;
+	private final HttpTransport transport;
+	private final ResponseParser<SearchResponse> parser;
 
-	private String query;
-	private Map<String, String> queryParams;
-	private String bucketField;
-	private List<String> categoryIds;
-	private Map<String, List<String>> filters;
-	private Map<String, SortDir> sorts;
-	private int pageNo;
-	private int pageSize;
+	private final SearchRequest.Builder builder;
 
 
 	protected SearchClient(String siteKey, String apiKey, boolean secure) {
+		this(siteKey, apiKey, secure, HttpTransport.getInstance());
+	}
+
+	protected SearchClient(String siteKey, String apiKey, boolean secure, HttpTransport transport) {
+		this.transport = transport;
 		this.siteKey = siteKey;
 		this.apiKey = apiKey;
 		this.secure = secure;
+		this.baseUrl = (secure ? "https://" : "http://") + "search.unbxdapi.com/" + apiKey + "/" + siteKey + "/";
+		this.parser = new JsonResponseParser<SearchResponse>(transport.getStringPool()) {
+			@Override
+			protected SearchResponse create(Map<String, Object> params) {
+				return new SearchResponse(params);
+			}
+		};
 
-		this.filters = new HashMap<String, List<String>>();
-		this.sorts = new LinkedHashMap<String, SortDir>(); // The map needs to be insertion ordered.
-
-		this.pageNo = 1;
-		this.pageSize = 10;
-	}
-
-	private String getSearchUrl(){
-		return (secure ? "https://" : "http://") + "search.unbxdapi.com/" + apiKey + "/" + siteKey + "/search?wt=json";
-	}
-
-	private String getBrowseUrl(){
-		return (secure ? "https://" : "http://") + "search.unbxdapi.com/" + apiKey + "/" + siteKey + "/browse?wt=json";
+		this.builder = SearchRequest.newBuilder();
 	}
 
 	/**
@@ -84,8 +81,7 @@ public class SearchClient {
 	 * @return this
 	 */
 	public SearchClient search(String query, Map<String, String> queryParams){
-		this.query = query;
-		this.queryParams = queryParams;
+		this.builder.search(query, queryParams);
 
 		return this;
 	}
@@ -98,9 +94,7 @@ public class SearchClient {
 	 * @return this
 	 */
 	public SearchClient bucket(String query, String bucketField, Map<String, String> queryParams){
-		this.query = query;
-		this.queryParams = queryParams;
-		this.bucketField = bucketField;
+		this.builder.bucket(query, bucketField, queryParams);
 
 		return this;
 	}
@@ -112,8 +106,7 @@ public class SearchClient {
 	 * @return this
 	 */
 	public SearchClient browse(String nodeId, Map<String, String> queryParams){
-		this.categoryIds = Arrays.asList(nodeId);
-		this.queryParams = queryParams;
+		this.builder.browse(nodeId, queryParams);
 
 		return this;
 	}
@@ -126,8 +119,7 @@ public class SearchClient {
 	 * @return this
 	 */
 	public SearchClient browse(List<String> nodeIds, Map<String, String> queryParams){
-		this.categoryIds = nodeIds;
-		this.queryParams = queryParams;
+		this.builder.browse(nodeIds, queryParams);
 
 		return this;
 	}
@@ -140,11 +132,30 @@ public class SearchClient {
 	 * @return this
 	 */
 	public SearchClient addFilter(String fieldName, String... values){
-		this.filters.put(fieldName, Arrays.asList(values));
+		this.builder.addFilter(fieldName, values);
 
 		return this;
 	}
 
+	/**
+	 * Removes the filter on a field
+	 * @param fieldName
+	 * @return this
+	 */
+	public SearchClient removeFilter(String fieldName){
+		this.builder.removeFilter(fieldName);
+
+		return this;
+	}
+
+	/**
+	 * @param fieldName
+	 * @return Values the field is filtered on, null if it isn't
+	 */
+	List<String> getFilter(String fieldName){
+		return this.builder.getFilter(fieldName);
+	}
+
 	/**
 	 * Sorts the results on a field
 	 * @param field
@@ -152,7 +163,7 @@ public class SearchClient {
 	 * @return this
 	 */
 	public SearchClient addSort(String field, SortDir sortDir){
-		this.sorts.put(field, sortDir);
+		this.builder.addSort(field, sortDir);
 
 		return this;
 	}
@@ -175,62 +186,51 @@ public class SearchClient {
 	 * @return this
 	 */
 	public SearchClient setPage(int pageNo, int pageSize){
-		this.pageNo = pageNo;
-		this.pageSize = pageSize;
+		this.builder.setPage(pageNo, pageSize);
 
 		return this;
 	}
 
-	private String generateUrl() throws SearchException {
-		if(query != null && categoryIds != null){
-			throw new SearchException("Can't set query and node id at the same time");
-		}
-
-		try {
-			StringBuffer sb = new StringBuffer();
-
-			if(query != null){
-				sb.append(this.getSearchUrl());
-				sb.append("&q=" + URLEncoder.encode(query, __encoding));
+	/**
+	 * Bounds the time taken by the search, including retries and parsing of the response.
+	 * Defaults to the deadline configured for the endpoint on {@link HttpTransport}, if any.
+	 * @param deadlineMillis
+	 * @return this
+	 */
+	public SearchClient setDeadline(long deadlineMillis){
+		this.builder.setDeadline(deadlineMillis);
 
-				if(bucketField != null){
-					sb.append("&bucket.field=" + URLEncoder.encode(bucketField, __encoding));
-				}
-			}else if(categoryIds != null && categoryIds.size() > 0){
-				sb.append(this.getBrowseUrl());
-				sb.append("&category-id=" + URLEncoder.encode(StringUtils.join(categoryIds, ","), __encoding));
-			}
+		return this;
+	}
 
-			if(queryParams != null && queryParams.size() > 0){
-				for(String key : queryParams.keySet()){
-					sb.append("&" + key + "=" + URLEncoder.encode(queryParams.get(key), __encoding));
-				}
-			}
+	/**
+	 * @return Immutable snapshot of the call configured on this client
+	 * @throws SearchException
+	 */
+	public SearchRequest buildRequest() throws SearchException {
+		return this.builder.build();
+	}
 
-			if(filters != null && filters.size() > 0){
-				for(String key : filters.keySet()){
-					for(String value : filters.get(key)){
-						sb.append("&filter=" + URLEncoder.encode(key + ":\"" + value + "\"", __encoding));
-					}
-				}
-			}
+	HttpTransport getTransport(){
+		return transport;
+	}
 
-			if(sorts != null && sorts.size() > 0){
-				List<String> sorts = new ArrayList<String>();
-				for(String key : this.sorts.keySet()){
-					sorts.add(key + " " + this.sorts.get(key).name().toLowerCase());
-				}
-				sb.append("&sort=" + URLEncoder.encode(StringUtils.join(sorts, ","), __encoding));
-			}
+	static Deadline newDeadline(SearchRequest request){
+		return request.getDeadlineMillis() > 0 ? Deadline.after(request.getDeadlineMillis()) : null;
+	}
 
-			sb.append("&pageNumber=" + pageNo);
-			sb.append("&rows=" + pageSize);
+	private static RequestInfo getRequestInfo(SearchRequest request){
+		if(request.isBrowse())
+			return new RequestInfo(Endpoint.BROWSE, "browse");
+		return new RequestInfo(Endpoint.SEARCH, request.getBucketField() != null ? "bucket" : "search");
+	}
 
-			return sb.toString();
-		} catch (UnsupportedEncodingException e) {
-			LOG.error("Encoding error", e);
-			throw new SearchException(e);
-		}
+	/**
+	 * @param request
+	 * @return URL of the request for this site
+	 */
+	public String getUrl(SearchRequest request){
+		return this.baseUrl + request.getCanonicalQuery();
 	}
 
 
@@ -241,13 +241,23 @@ public class SearchClient {
 	 */
 
 	public void execute(AsyncResponse delegate,Context context) throws SearchException{
+		this.execute(this.buildRequest(), delegate, context);
+	}
+
+	/**
+	 * Executes a search in the background thread by passing callback
+	 * @param request
+	 * @param delegate
+	 * @param context
+	 * @throws SearchException
+	 */
+	public void execute(SearchRequest request, AsyncResponse delegate, Context context) throws SearchException{
 		try{
-			String url = this.generateUrl();
-			RequestManager.getResponse(null, url, context, delegate);	
+			RequestManager.getResponse(this.transport, getRequestInfo(request), this.getUrl(request), newDeadline(request), context, delegate);
 		}catch (Exception e){
 			LOG.error(e.getMessage(),e);
 			throw new SearchException(e);
-		}   	
+		}
 	}
 
 
@@ -258,28 +268,51 @@ public class SearchClient {
 	 * @throws SearchException
 	 */
 	public SearchResponse execute() throws SearchException {
-		try{
-			String url = this.generateUrl();
-
-			DefaultHttpClient client = new DefaultHttpClient();
-			HttpGet get = new HttpGet(url);
-			HttpResponse response = client.execute(get);
-			if(response.getStatusLine().getStatusCode() == 200){
-				Map<String, Object> responseObject = new ObjectMapper().readValue(new InputStreamReader(response.getEntity().getContent()), Map.class);
-				return new SearchResponse(responseObject);
-			}else{
-				StringBuffer sb = new StringBuffer();
-				BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-				String line = "";
-				while ((line = rd.readLine()) != null) {
-					sb.append(line);
-				}
+		return this.execute(this.buildRequest());
+	}
 
-				String responseText = sb.toString();
+	/**
+	 * Executes a search. Safe to call from several threads.
+	 *
+	 * @param request
+	 * @return {@link SearchResponse}
+	 * @throws SearchException
+	 */
+	public SearchResponse execute(SearchRequest request) throws SearchException {
+		return this.execute(request, newDeadline(request));
+	}
 
-				LOG.error(responseText);
-				throw new SearchException(responseText);
+	/**
+	 * Fetches a search into the response cache ahead of its call, e.g. for a suggestion the user is likely to tap.
+	 * Needs {@link HttpTransport#setCacheTtl(Endpoint, long)} for the endpoint, and is reported as the
+	 * search-prefetch or browse-prefetch operation.
+	 *
+	 * @param request Request the app will execute
+	 * @param text true to cache the response for asynchronous calls, which read it as text, for synchronous calls otherwise
+	 * @throws SearchException
+	 */
+	public void prefetch(SearchRequest request, boolean text) throws SearchException {
+		Endpoint endpoint = getRequestInfo(request).getEndpoint();
+		RequestInfo info = new RequestInfo(endpoint, request.isBrowse() ? "browse-prefetch" : "search-prefetch");
+		try{
+			if(text){
+				this.transport.execute(info, this.getUrl(request), HttpTransport.STRING_PARSER, newDeadline(request));
+			}else{
+				this.transport.execute(info, this.getUrl(request), this.parser, newDeadline(request));
 			}
+		} catch (HttpStatusException e) {
+			throw new SearchException(e.getMessage());
+		} catch (Exception e) {
+			throw new SearchException(e);
+		}
+	}
+
+	SearchResponse execute(SearchRequest request, Deadline deadline) throws SearchException {
+		try{
+			return this.transport.execute(getRequestInfo(request), this.getUrl(request), this.parser, deadline);
+		} catch (HttpStatusException e) {
+			LOG.error(e.getMessage());
+			throw new SearchException(e.getMessage());
 		} catch (Exception e) {
 			LOG.error(e.getMessage(), e);
 			throw new SearchException(e);
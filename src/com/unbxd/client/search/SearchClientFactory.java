@@ -1,5 +1,7 @@
 package com.unbxd.client.search;
 
+import com.unbxd.client.http.HttpTransport;
+
 /**
  * Created with IntelliJ IDEA.
  * User: sourabh
@@ -12,4 +14,8 @@ public class SearchClientFactory {
 	public static SearchClient getSearchClient(String siteKey, String apiKey, boolean secure){
 		return new SearchClient(siteKey, apiKey, secure);
 	}
+
+	public static SearchClient getSearchClient(String siteKey, String apiKey, boolean secure, HttpTransport transport){
+		return new SearchClient(siteKey, apiKey, secure, transport);
+	}
 }
@@ -0,0 +1,138 @@
+package com.unbxd.client.search;
+
+import com.unbxd.client.search.exceptions.SearchException;
+import com.unbxd.client.search.response.SearchResponse;
+import com.unbxd.client.search.response.SearchResponseDiff;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Refines a search or browse call one filter at a time.
+ *
+ * The session remembers the last response and, on every refinement, diffs the new response against it.
+ * It keeps a copy of the new response in which facets, stats and products which didn't change are those of the
+ * previous one, refer {@link SearchResponseDiff#share()}, so UIs can update only what the returned diff reports.
+ * Responses returned by the client are left as they are, they may be cached.
+ *
+ * Like {@link SearchClient}, a session isn't meant to be used from multiple threads at once.
+ */
+public class SearchRefinementSession {
+
+	private final SearchClient client;
+	private final Map<String, Set<String>> selectedFilters;
+
+	private SearchResponse response;
+	private boolean dirty;
+
+	/**
+	 * @param client Client with the search or browse call already set. Filters added to it before are kept, and
+	 *               are toggled like the values selected through the session.
+	 */
+	public SearchRefinementSession(SearchClient client){
+		this.client = client;
+		this.selectedFilters = new LinkedHashMap<String, Set<String>>();
+		this.dirty = true;
+	}
+
+	/**
+	 * Selects the value of a field if it isn't selected, deselects it otherwise.
+	 * Values of the same field are ORed and different fields are ANDed.
+	 * @param fieldName
+	 * @param value
+	 * @return this
+	 */
+	public SearchRefinementSession toggleFilter(String fieldName, String value){
+		Set<String> values = selectedFilters.get(fieldName);
+		if(values == null){
+			// Starts from the values the client is already filtered on
+			List<String> filter = client.getFilter(fieldName);
+			values = filter != null ? new LinkedHashSet<String>(filter) : new LinkedHashSet<String>();
+			selectedFilters.put(fieldName, values);
+		}
+
+		if(!values.remove(value)){
+			values.add(value);
+		}
+		this.apply(fieldName);
+
+		return this;
+	}
+
+	/**
+	 * Deselects all values of a field
+	 * @param fieldName
+	 * @return this
+	 */
+	public SearchRefinementSession clearFilter(String fieldName){
+		if(selectedFilters.remove(fieldName) != null | client.getFilter(fieldName) != null){
+			client.removeFilter(fieldName);
+			this.dirty = true;
+		}
+
+		return this;
+	}
+
+	private void apply(String fieldName){
+		Set<String> values = selectedFilters.get(fieldName);
+		if(values.isEmpty()){
+			selectedFilters.remove(fieldName);
+			client.removeFilter(fieldName);
+		}else{
+			client.addFilter(fieldName, values.toArray(new String[values.size()]));
+		}
+		this.dirty = true;
+	}
+
+	/**
+	 * @param fieldName
+	 * @param value
+	 * @return true if the value of the field is selected
+	 */
+	public boolean isSelected(String fieldName, String value){
+		Set<String> values = selectedFilters.get(fieldName);
+		if(values == null){
+			List<String> filter = client.getFilter(fieldName);
+			return filter != null && filter.contains(value);
+		}
+		return values.contains(value);
+	}
+
+	/**
+	 * @return Map of Field --> Selected values, for the fields toggled through the session
+	 */
+	public Map<String, Set<String>> getSelectedFilters(){
+		return Collections.unmodifiableMap(selectedFilters);
+	}
+
+	/**
+	 * Runs the refined call, unless nothing changed since the last one.
+	 *
+	 * @return Difference with the previous response. Everything is reported as added on the first call.
+	 * @throws SearchException
+	 */
+	public SearchResponseDiff execute() throws SearchException {
+		if(!dirty && response != null){
+			return SearchResponseDiff.compute(response, response);
+		}
+
+		SearchResponse current = client.execute();
+		SearchResponseDiff diff = SearchResponseDiff.compute(response, current);
+
+		this.response = diff.share();
+		this.dirty = false;
+
+		return diff;
+	}
+
+	/**
+	 * @return Last response, sharing what didn't change with the one before. Null if the session wasn't executed yet.
+	 */
+	public SearchResponse getResponse(){
+		return response;
+	}
+}
@@ -0,0 +1,386 @@
+package com.unbxd.client.search;
+
+import com.unbxd.client.search.SearchClient.SortDir;
+import com.unbxd.client.search.exceptions.SearchException;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable search or browse call. Can be shared between threads and executed any number of times with
+ * {@link SearchClient#execute(SearchRequest)}.
+ *
+ * Its canonical query is computed once: query parameters and filters are sorted, so two requests asking
+ * for the same results have the same query, hash code and cache entry whatever the order they were built in.
+ */
+public final class SearchRequest {
+
+	private static final String __encoding = "UTF-8";
+
+	private final String query;
+	private final String bucketField;
+	private final List<String> categoryIds;
+	private final Map<String, String> queryParams;
+	private final Map<String, List<String>> filters;
+	private final Map<String, SortDir> sorts;
+	private final int pageNo;
+	private final int pageSize;
+	private final long deadlineMillis;
+
+	private final String canonicalQuery;
+	private final int hash;
+
+	private SearchRequest(Builder builder) throws SearchException {
+		if(builder.query != null && builder.categoryIds != null){
+			throw new SearchException("Can't set query and node id at the same time");
+		}
+		if(builder.query == null && (builder.categoryIds == null || builder.categoryIds.isEmpty())){
+			throw new SearchException("Either query or node id has to be set");
+		}
+
+		this.query = builder.query;
+		this.bucketField = builder.bucketField;
+		this.categoryIds = builder.categoryIds != null ? Collections.unmodifiableList(new ArrayList<String>(builder.categoryIds)) : null;
+		this.queryParams = builder.queryParams != null ? Collections.unmodifiableMap(new TreeMap<String, String>(builder.queryParams))
+				: Collections.<String, String>emptyMap();
+
+		Map<String, List<String>> filters = new TreeMap<String, List<String>>();
+		for(Map.Entry<String, List<String>> filter : builder.filters.entrySet()){
+			List<String> values = new ArrayList<String>(filter.getValue());
+			Collections.sort(values); // Values are ORed, their order doesn't matter
+			filters.put(filter.getKey(), Collections.unmodifiableList(values));
+		}
+		this.filters = Collections.unmodifiableMap(filters);
+		this.sorts = Collections.unmodifiableMap(new LinkedHashMap<String, SortDir>(builder.sorts));
+
+		this.pageNo = builder.pageNo;
+		this.pageSize = builder.pageSize;
+		this.deadlineMillis = builder.deadlineMillis;
+
+		this.canonicalQuery = this.generateQuery();
+		this.hash = this.canonicalQuery.hashCode();
+	}
+
+	private String generateQuery() throws SearchException {
+		try {
+			StringBuilder sb = new StringBuilder();
+
+			if(query != null){
+				sb.append("search?wt=json");
+				sb.append("&q=").append(URLEncoder.encode(query, __encoding));
+
+				if(bucketField != null){
+					sb.append("&bucket.field=").append(URLEncoder.encode(bucketField, __encoding));
+				}
+			}else{
+				sb.append("browse?wt=json");
+				sb.append("&category-id=").append(URLEncoder.encode(StringUtils.join(categoryIds, ","), __encoding));
+			}
+
+			for(Map.Entry<String, String> param : queryParams.entrySet()){
+				sb.append("&").append(param.getKey()).append("=").append(URLEncoder.encode(param.getValue(), __encoding));
+			}
+
+			for(Map.Entry<String, List<String>> filter : filters.entrySet()){
+				for(String value : filter.getValue()){
+					sb.append("&filter=").append(URLEncoder.encode(filter.getKey() + ":\"" + value + "\"", __encoding));
+				}
+			}
+
+			if(!sorts.isEmpty()){
+				List<String> sorts = new ArrayList<String>();
+				for(Map.Entry<String, SortDir> sort : this.sorts.entrySet()){
+					sorts.add(sort.getKey() + " " + sort.getValue().name().toLowerCase());
+				}
+				sb.append("&sort=").append(URLEncoder.encode(StringUtils.join(sorts, ","), __encoding));
+			}
+
+			sb.append("&pageNumber=").append(pageNo);
+			sb.append("&rows=").append(pageSize);
+
+			return sb.toString();
+		} catch (UnsupportedEncodingException e) {
+			throw new SearchException(e);
+		}
+	}
+
+	/**
+	 * @return New builder with default values
+	 */
+	public static Builder newBuilder(){
+		return new Builder();
+	}
+
+	/**
+	 * @return New builder initialised with the values of this request
+	 */
+	public Builder toBuilder(){
+		Builder builder = new Builder();
+		builder.query = query;
+		builder.bucketField = bucketField;
+		builder.categoryIds = categoryIds;
+		builder.queryParams = queryParams;
+		builder.filters.putAll(filters);
+		builder.sorts.putAll(sorts);
+		builder.pageNo = pageNo;
+		builder.pageSize = pageSize;
+		builder.deadlineMillis = deadlineMillis;
+
+		return builder;
+	}
+
+	/**
+	 * @return true for a browse call, false for a search
+	 */
+	public boolean isBrowse(){
+		return query == null;
+	}
+
+	public String getQuery(){
+		return query;
+	}
+
+	public String getBucketField(){
+		return bucketField;
+	}
+
+	public List<String> getCategoryIds(){
+		return categoryIds;
+	}
+
+	public Map<String, String> getQueryParams(){
+		return queryParams;
+	}
+
+	/**
+	 * @return Map of Field --> Values, both sorted
+	 */
+	public Map<String, List<String>> getFilters(){
+		return filters;
+	}
+
+	/**
+	 * @return Map of Field --> {@link SortDir}, in the order the sorts apply
+	 */
+	public Map<String, SortDir> getSorts(){
+		return sorts;
+	}
+
+	public int getPageNo(){
+		return pageNo;
+	}
+
+	public int getPageSize(){
+		return pageSize;
+	}
+
+	/**
+	 * @return Time allowed for the call, 0 for the default deadline of the endpoint
+	 */
+	public long getDeadlineMillis(){
+		return deadlineMillis;
+	}
+
+	/**
+	 * @return Path and query string of the call, relative to the site's base URL
+	 */
+	public String getCanonicalQuery(){
+		return canonicalQuery;
+	}
+
+	/**
+	 * Deadlines don't take part, two requests are equal when they ask for the same results.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if(this == o)
+			return true;
+		if(!(o instanceof SearchRequest))
+			return false;
+
+		SearchRequest other = (SearchRequest) o;
+		return hash == other.hash && canonicalQuery.equals(other.canonicalQuery);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return canonicalQuery;
+	}
+
+	/**
+	 * Builds {@link SearchRequest}. Not thread safe.
+	 */
+	public static class Builder {
+
+		private String query;
+		private String bucketField;
+		private List<String> categoryIds;
+		private Map<String, String> queryParams;
+		private Map<String, List<String>> filters;
+		private Map<String, SortDir> sorts;
+		private int pageNo;
+		private int pageSize;
+		private long deadlineMillis;
+
+		private Builder(){
+			this.filters = new HashMap<String, List<String>>();
+			this.sorts = new LinkedHashMap<String, SortDir>(); // The map needs to be insertion ordered.
+
+			this.pageNo = 1;
+			this.pageSize = 10;
+		}
+
+		/**
+		 * Searches for a query and appends the query parameters in the call.
+		 * @param query
+		 * @param queryParams
+		 * @return this
+		 */
+		public Builder search(String query, Map<String, String> queryParams){
+			this.query = query;
+			this.queryParams = queryParams;
+
+			return this;
+		}
+
+		/**
+		 * Searches for a query, appends the query parameters in the call and responds with bucketed results.
+		 * @param query
+		 * @param bucketField Field on which buckets have to created.
+		 * @param queryParams
+		 * @return this
+		 */
+		public Builder bucket(String query, String bucketField, Map<String, String> queryParams){
+			this.query = query;
+			this.queryParams = queryParams;
+			this.bucketField = bucketField;
+
+			return this;
+		}
+
+		/**
+		 * Calls for browse query and fetches results for given nodeId
+		 * @param nodeId
+		 * @param queryParams
+		 * @return this
+		 */
+		public Builder browse(String nodeId, Map<String, String> queryParams){
+			return this.browse(Arrays.asList(nodeId), queryParams);
+		}
+
+		/**
+		 * Calls for browse query and fetches results for given nodeIds.
+		 * Has to be used when one node has multiple parents. All the node ids will be ANDed
+		 * @param nodeIds
+		 * @param queryParams
+		 * @return this
+		 */
+		public Builder browse(List<String> nodeIds, Map<String, String> queryParams){
+			this.categoryIds = nodeIds;
+			this.queryParams = queryParams;
+
+			return this;
+		}
+
+		/**
+		 * Filters the results
+		 * Values in the same fields are ORed and different fields are ANDed
+		 * @param fieldName
+		 * @param values
+		 * @return this
+		 */
+		public Builder addFilter(String fieldName, String... values){
+			this.filters.put(fieldName, Arrays.asList(values));
+
+			return this;
+		}
+
+		/**
+		 * Removes the filter on a field
+		 * @param fieldName
+		 * @return this
+		 */
+		public Builder removeFilter(String fieldName){
+			this.filters.remove(fieldName);
+
+			return this;
+		}
+
+		/**
+		 * @param fieldName
+		 * @return Values the field is filtered on, null if it isn't
+		 */
+		List<String> getFilter(String fieldName){
+			return this.filters.get(fieldName);
+		}
+
+		/**
+		 * Sorts the results on a field
+		 * @param field
+		 * @param sortDir
+		 * @return this
+		 */
+		public Builder addSort(String field, SortDir sortDir){
+			this.sorts.put(field, sortDir);
+
+			return this;
+		}
+
+		/**
+		 * Sorts the results on a field in descending
+		 * @param field
+		 * @return this
+		 */
+		public Builder addSort(String field){
+			return this.addSort(field, SortDir.DESC);
+		}
+
+		/**
+		 *
+		 * @param pageNo
+		 * @param pageSize
+		 * @return this
+		 */
+		public Builder setPage(int pageNo, int pageSize){
+			this.pageNo = pageNo;
+			this.pageSize = pageSize;
+
+			return this;
+		}
+
+		/**
+		 * Bounds the time taken by the search, including retries and parsing of the response.
+		 * Defaults to the deadline configured for the endpoint on {@link com.unbxd.client.http.HttpTransport}, if any.
+		 * @param deadlineMillis
+		 * @return this
+		 */
+		public Builder setDeadline(long deadlineMillis){
+			this.deadlineMillis = deadlineMillis;
+
+			return this;
+		}
+
+		/**
+		 * @return {@link SearchRequest}
+		 * @throws SearchException if both or none of query and node ids are set
+		 */
+		public SearchRequest build() throws SearchException {
+			return new SearchRequest(this);
+		}
+	}
+}
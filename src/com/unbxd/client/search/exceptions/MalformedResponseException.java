@@ -0,0 +1,19 @@
+package com.unbxd.client.search.exceptions;
+
+/**
+ * Thrown by the getters of a {@link com.unbxd.client.search.response.SearchResponse} when a section built on first
+ * access doesn't have the expected structure. The cause is the failure met reading it.
+ *
+ * Unchecked, since sections are read long after the call which returned the response. The top level structure is
+ * checked when the response is parsed, a call fails with a {@link SearchException} if it's wrong.
+ */
+public class MalformedResponseException extends RuntimeException {
+
+	/**
+	 * @param section Name of the section in the response, e.g. "facets"
+	 * @param cause
+	 */
+	public MalformedResponseException(String section, Throwable cause) {
+		super("Malformed " + section + " in the response", cause);
+	}
+}
@@ -1,5 +1,6 @@
 package com.unbxd.client.search.response;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -13,11 +14,17 @@ import java.util.Map;
 public class BucketResult {
 
 	private int _totalResultsCount;
-	private SearchResults _results;
+	private List<Map<String, Object>> _products;
+	private volatile SearchResults _results;
 
 	protected BucketResult(Map<String, Object> params){
 		this._totalResultsCount = (Integer) params.get("numberOfProducts");
-		this._results = new SearchResults((List<Map<String, Object>>) params.get("products"));
+		this._products = (List<Map<String, Object>>) params.get("products");
+	}
+
+	protected BucketResult(SearchResponse response){
+		this._totalResultsCount = response.getTotalResultsCount();
+		this._results = response.getResults();
 	}
 
 	/**
@@ -31,7 +38,17 @@ public class BucketResult {
 	 * @return Results in this bucket. Refer {@link SearchResults}
 	 */
 	public SearchResults getResults(){
-		return this._results;
+		SearchResults results = this._results;
+		if(results == null){
+			synchronized (this) {
+				if(this._results == null){
+					this._results = new SearchResults(this._products != null ? this._products : Collections.<Map<String, Object>>emptyList());
+					this._products = null;
+				}
+				results = this._results;
+			}
+		}
+		return results;
 	}
 
 }
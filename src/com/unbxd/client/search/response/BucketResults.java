@@ -1,9 +1,14 @@
 package com.unbxd.client.search.response;
 
+import com.unbxd.client.search.exceptions.MalformedResponseException;
+
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created with IntelliJ IDEA.
@@ -15,23 +20,78 @@ import java.util.Map;
 public class BucketResults {
 
 	private int _numberOfBuckets;
+	private Map<String, Object> _params;
+	private List<String> _values;
+	private ConcurrentMap<String, BucketResult> _bucketsMap;
 	private List<BucketResult> _buckets;
-	private Map<String, BucketResult> _bucketsMap;
 
 	protected BucketResults(Map<String, Object> params){
 		this._numberOfBuckets = (Integer) params.get("numberOfBuckets");
+		this._params = params;
 
-		this._buckets = new ArrayList<BucketResult>();
-		this._bucketsMap = new HashMap<String, BucketResult>();
+		this._values = new ArrayList<String>();
 		for(String bucketKey : params.keySet()){
 			if(bucketKey.equals("totalProducts") || bucketKey.equals("numberOfBuckets")){
 				continue;
 			}
-
-			BucketResult bucket = new BucketResult((Map<String, Object>) params.get(bucketKey));
-			this._buckets.add(bucket);
-			this._bucketsMap.put(bucketKey, bucket);
+			this._values.add(bucketKey);
 		}
+
+		this._bucketsMap = new ConcurrentHashMap<String, BucketResult>();
+		this._buckets = new AbstractList<BucketResult>() {
+			@Override
+			public BucketResult get(int index) {
+				return getBucket(_values.get(index));
+			}
+
+			@Override
+			public int size() {
+				return _values.size();
+			}
+		};
+	}
+
+	private BucketResults(BucketResults listing){
+		this._numberOfBuckets = listing._numberOfBuckets;
+		this._params = listing._params;
+		this._values = listing._values;
+		this._bucketsMap = new ConcurrentHashMap<String, BucketResult>();
+		this._buckets = new AbstractList<BucketResult>() {
+			@Override
+			public BucketResult get(int index) {
+				return getBucket(_values.get(index));
+			}
+
+			@Override
+			public int size() {
+				return _values.size();
+			}
+		};
+	}
+
+	/**
+	 * @return Buckets of the same listing, to load into without changing this response, which may be cached
+	 * and shared
+	 */
+	public BucketResults copy(){
+		return new BucketResults(this);
+	}
+
+	/**
+	 * Replaces the content of a bucket with the response of a search restricted to it.
+	 * Used when buckets are loaded separately, refer {@link com.unbxd.client.search.BucketFanOut}.
+	 * Load into a {@link #copy()} of the buckets of a response.
+	 * @param value
+	 * @param response
+	 * @return New {@link BucketResult}, null if there is no such bucket
+	 */
+	public BucketResult load(String value, SearchResponse response){
+		if(!(this._params.get(value) instanceof Map))
+			return null;
+
+		BucketResult bucket = new BucketResult(response);
+		this._bucketsMap.put(value, bucket);
+		return bucket;
 	}
 
 	/**
@@ -46,11 +106,33 @@ public class BucketResults {
 	 * @return Bucket for the field value
 	 */
 	public BucketResult getBucket(String value){
-		return this._bucketsMap.get(value);
+		BucketResult bucket = this._bucketsMap.get(value);
+		if(bucket == null){
+			Object params = this._params.get(value);
+			if(!(params instanceof Map))
+				return null;
+
+			try{
+				bucket = new BucketResult((Map<String, Object>) params);
+			}catch (RuntimeException e){
+				throw new MalformedResponseException("buckets", e);
+			}
+			BucketResult current = this._bucketsMap.putIfAbsent(value, bucket);
+			if(current != null)
+				bucket = current;
+		}
+		return bucket;
+	}
+
+	/**
+	 * @return Field values of the buckets, in response order
+	 */
+	public List<String> getBucketValues(){
+		return Collections.unmodifiableList(this._values);
 	}
 
 	/**
-	 * @return List of {@link BucketResult}
+	 * @return List of {@link BucketResult}, built as they are accessed
 	 */
 	public List<BucketResult> getBuckets(){
 		return this._buckets;
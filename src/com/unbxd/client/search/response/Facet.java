@@ -1,6 +1,7 @@
 package com.unbxd.client.search.response;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -15,7 +16,9 @@ public class Facet {
 
 	protected String name;
 	protected String _type;
-	protected List<FacetEntry> _facetEntries;
+	protected String[] _terms;
+	protected int[] _counts;
+	private List<FacetEntry> _facetEntries;
 
 	protected Facet(String facetName, Map<String, Object> params){
 		this.name = facetName;
@@ -43,25 +46,72 @@ public class Facet {
 		return this._type;
 	}
 
+	/**
+	 * Stores the alternating term, count list of the response as parallel arrays
+	 * @param values
+	 */
 	protected void generateEntries(List<Object> values){
-		this._facetEntries = new ArrayList<FacetEntry>();
-
-		String term = null;
+		int size = values.size() / 2;
+		this._terms = new String[size];
+		this._counts = new int[size];
 
-		for(int i = 0; i < values.size(); i++){
-			if(i % 2 == 0){
-				term = (String) values.get(i);
-			}else{
-				int count = (Integer)values.get(i);
-				this._facetEntries.add(new FacetEntry(term, count));
-			}
+		for(int i = 0; i < size; i++){
+			this._terms[i] = (String) values.get(2 * i);
+			this._counts[i] = ((Number) values.get(2 * i + 1)).intValue();
 		}
 	}
 
 	/**
-	 * @return List of {@link FacetEntry}
+	 * @param other
+	 * @return true if the other facet has the same type and the same entries in the same order
+	 */
+	protected boolean hasSameEntries(Facet other){
+		return other != null && other.getClass() == this.getClass()
+				&& (_type == null ? other._type == null : _type.equals(other._type))
+				&& Arrays.equals(_terms, other._terms) && Arrays.equals(_counts, other._counts);
+	}
+
+	/**
+	 * @return Number of entries in the facet
+	 */
+	public int getEntriesCount(){
+		return this._terms.length;
+	}
+
+	/**
+	 * @param i
+	 * @return Term of the i-th entry
+	 */
+	public String getTerm(int i){
+		return this._terms[i];
+	}
+
+	/**
+	 * @param i
+	 * @return Count of the i-th entry
+	 */
+	public int getCount(int i){
+		return this._counts[i];
+	}
+
+	/**
+	 * @return List of {@link FacetEntry}. Entries are created as they are accessed,
+	 * prefer {@link #getTerm(int)} and {@link #getCount(int)} when iterating over large facets.
 	 */
 	 public List<FacetEntry> getEntries(){
+		 if(this._facetEntries == null){
+			 this._facetEntries = new AbstractList<FacetEntry>() {
+				 @Override
+				 public FacetEntry get(int i) {
+					 return new FacetEntry(_terms[i], _counts[i]);
+				 }
+
+				 @Override
+				 public int size() {
+					 return _terms.length;
+				 }
+			 };
+		 }
 		 return this._facetEntries;
 	 }
 
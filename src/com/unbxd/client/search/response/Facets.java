@@ -1,6 +1,7 @@
 package com.unbxd.client.search.response;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,17 +33,34 @@ public class Facets {
 	}
 
 	/**
-	 * @return List of {@link Facet}
+	 * Copy of facets with some of them replaced by equivalent ones, refer {@link SearchResponseDiff#share()}
+	 * @param facets
+	 * @param shared Map of field --> Facet to put in place of the one with the same name
+	 */
+	protected Facets(Facets facets, Map<String, Facet> shared){
+		this._facets = new ArrayList<Facet>(facets._facets.size());
+		this._facetsMap = new HashMap<String, Facet>();
+
+		for(Facet facet : facets._facets){
+			if(shared.containsKey(facet.getName()))
+				facet = shared.get(facet.getName());
+			this._facets.add(facet);
+			this._facetsMap.put(facet.getName(), facet);
+		}
+	}
+
+	/**
+	 * @return Read only list of {@link Facet}
 	 */
 	public List<Facet> getFacets(){
-		return this._facets;
+		return Collections.unmodifiableList(this._facets);
 	}
 
 	/**
-	 * @return Map of field --> {@link Facet}
+	 * @return Read only map of field --> {@link Facet}
 	 */
 	public Map<String, Facet> getFacetsAsMap(){
-		return this._facetsMap;
+		return Collections.unmodifiableMap(this._facetsMap);
 	}
 
 	/**
@@ -1,6 +1,8 @@
 package com.unbxd.client.search.response;
 
-import java.util.ArrayList;
+import com.unbxd.client.search.exceptions.MalformedResponseException;
+
+import java.util.AbstractList;
 import java.util.List;
 import java.util.Map;
 
@@ -14,7 +16,8 @@ import java.util.Map;
 public class RangeFacet extends Facet{
 
 	private double _gap;
-	protected List<RangeFacetEntry> _rangeFacetEntries;
+	private double[] _from;
+	private List<RangeFacetEntry> _rangeFacetEntries;
 
 	protected RangeFacet(String facetName, Map<String, Object> params) {
 		super(facetName, params);
@@ -22,19 +25,69 @@ public class RangeFacet extends Facet{
 		this._gap = ((Number) ((Map<String, Object>)params.get("values")).get("gap")).doubleValue();
 	}
 
-	@Override
-	protected void generateEntries(List<Object> values) {
-		super.generateEntries(values);
-
-		this._rangeFacetEntries = new ArrayList<RangeFacetEntry>();
-		for(FacetEntry entry : _facetEntries){
-			double from = Double.parseDouble(entry.getTerm());
-			double to = from + _gap;
-			this._rangeFacetEntries.add(new RangeFacetEntry(from, to, entry.getCount()));
+	/**
+	 * Terms are the lower bounds of the ranges. They are only parsed when a range is first asked for.
+	 */
+	private double[] from(){
+		if(this._from == null){
+			double[] from = new double[_terms.length];
+			try{
+				for(int i = 0; i < from.length; i++){
+					from[i] = Double.parseDouble(_terms[i]);
+				}
+			}catch (NumberFormatException e){
+				throw new MalformedResponseException("facets", e);
+			}
+			this._from = from;
 		}
+		return this._from;
+	}
+
+	/**
+	 * @param i
+	 * @return Lower bound of the i-th range
+	 */
+	public double getFrom(int i){
+		return this.from()[i];
 	}
 
+	/**
+	 * @param i
+	 * @return Upper bound of the i-th range
+	 */
+	public double getTo(int i){
+		return this.from()[i] + _gap;
+	}
+
+	/**
+	 * @return Width of the ranges
+	 */
+	public double getGap(){
+		return this._gap;
+	}
+
+	@Override
+	protected boolean hasSameEntries(Facet other) {
+		return super.hasSameEntries(other) && ((RangeFacet) other)._gap == this._gap;
+	}
+
+	/**
+	 * @return List of {@link RangeFacetEntry}. Entries are created as they are accessed.
+	 */
 	public List<RangeFacetEntry> getRangeEntries(){
+		if(this._rangeFacetEntries == null){
+			this._rangeFacetEntries = new AbstractList<RangeFacetEntry>() {
+				@Override
+				public RangeFacetEntry get(int i) {
+					return new RangeFacetEntry(getFrom(i), getTo(i), _counts[i]);
+				}
+
+				@Override
+				public int size() {
+					return _terms.length;
+				}
+			};
+		}
 		return this._rangeFacetEntries;
 	}
 
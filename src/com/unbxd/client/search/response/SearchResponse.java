@@ -1,6 +1,9 @@
 package com.unbxd.client.search.response;
 
+import com.unbxd.client.search.exceptions.MalformedResponseException;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -10,6 +13,10 @@ import java.util.Map;
  * Date: 08/07/14
  * Time: 10:59 AM
  * To change this template use File | Settings | File Templates.
+ *
+ * Sections are built from the decoded JSON on first access, so callers only pay for the ones they read, and the
+ * JSON of a section is released once it's built. The type of every section is checked when the response is
+ * created, a section whose content turns out malformed when built throws a {@link MalformedResponseException}.
  */
 public class SearchResponse {
 
@@ -18,13 +25,32 @@ public class SearchResponse {
 	private String _message;
 	private int _queryTime;
 	private int _totalResultsCount;
-	private SearchResults _results;
-	private BucketResults _buckets;
-	private Facets _facets;
-	private Stats _stats;
-	private List<String> _spellCorrections;
 
+	private List<Map<String, Object>> _productsParams;
+	private Map<String, Object> _bucketsParams;
+	private Map<String, Object> _facetsParams;
+	private Map<String, Object> _statsParams;
+	private List<Map<String, Object>> _didYouMeanParams;
+
+	private volatile SearchResults _results;
+	private volatile BucketResults _buckets;
+	private volatile Facets _facets;
+	private volatile Stats _stats;
+	private volatile List<String> _spellCorrections;
+
+	/**
+	 * @param params Decoded JSON of the response
+	 * @throws MalformedResponseException if the metadata or the type of a section is wrong
+	 */
 	public SearchResponse(Map<String, Object> params){
+		try{
+			this.read(params);
+		}catch (RuntimeException e){
+			throw new MalformedResponseException("structure", e);
+		}
+	}
+
+	private void read(Map<String, Object> params){
 		if(params.containsKey("error")){
 			Map<String, Object> error = (Map<String, Object>) params.get("error");
 			this._errorCode = (Integer) error.get("code");
@@ -40,33 +66,46 @@ public class SearchResponse {
 			if(params.containsKey("response")){
 				Map<String, Object> response = (Map<String, Object>) params.get("response");
 				this._totalResultsCount = (Integer) response.get("numberOfProducts");
-				this._results = new SearchResults((List<Map<String, Object>>) response.get("products"));
+				this._productsParams = checked(response.get("products"), List.class);
 			}
 
 			if(params.containsKey("buckets")){
-				Map<String, Object> response = (Map<String, Object>) params.get("buckets");
+				Map<String, Object> response = checked(params.get("buckets"), Map.class);
 				this._totalResultsCount = (Integer) response.get("totalProducts");
-				this._buckets = new BucketResults(response);
+				this._bucketsParams = response;
 			}
 
-			if(params.containsKey("facets")){
-				Map<String, Object> facets = (Map<String, Object>) params.get("facets");
-				this._facets = new Facets(facets);
-			}
+			this._facetsParams = checked(params.get("facets"), Map.class);
+			this._statsParams = checked(params.get("stats"), Map.class);
+			this._didYouMeanParams = checked(params.get("didYouMean"), List.class);
+		}
+	}
 
-			if(params.containsKey("stats")){
-				Map<String, Object> stats = (Map<String, Object>) params.get("stats");
-				this._stats = new Stats(stats);
-			}
+	private static <T> T checked(Object section, Class<?> type){
+		if(section != null && !type.isInstance(section))
+			throw new ClassCastException(section.getClass().getName() + " isn't a " + type.getName());
+		return (T) section;
+	}
 
-			if(params.containsKey("didYouMean")){
-				this._spellCorrections = new ArrayList<String>();
-				List<Map<String, Object>> dym = (List<Map<String, Object>>) params.get("didYouMean");
-				for(Map<String, Object> suggestion : dym){
-					_spellCorrections.add((String) suggestion.get("suggestion"));
-				}
-			}
-		}
+	/**
+	 * Copy of a response with its results, facets and stats replaced, refer {@link SearchResponseDiff#share()}
+	 * @param response
+	 * @param results
+	 * @param facets
+	 * @param stats
+	 */
+	SearchResponse(SearchResponse response, SearchResults results, Facets facets, Stats stats){
+		this._statusCode = response._statusCode;
+		this._errorCode = response._errorCode;
+		this._message = response._message;
+		this._queryTime = response._queryTime;
+		this._totalResultsCount = response._totalResultsCount;
+
+		this._results = results;
+		this._facets = facets;
+		this._stats = stats;
+		this._buckets = response.getBuckets();
+		this._spellCorrections = response.getSpellCorrections();
 	}
 
 	/**
@@ -106,36 +145,111 @@ public class SearchResponse {
 
 	/**
 	 * @return Results. Refer {@link SearchResults}
+	 * @throws MalformedResponseException
 	 */
 	public SearchResults getResults(){
-		return this._results;
+		SearchResults results = this._results;
+		if(results == null){
+			synchronized (this) {
+				if(this._results == null && this._productsParams != null){
+					this._results = new SearchResults(this._productsParams);
+					this._productsParams = null;
+				}
+				results = this._results;
+			}
+		}
+		return results;
 	}
 
 	/**
 	 * @return Facets. Refer {@link Facets}
+	 * @throws MalformedResponseException
 	 */
 	public Facets getFacets(){
-		return this._facets;
+		Facets facets = this._facets;
+		if(facets == null){
+			synchronized (this) {
+				if(this._facets == null && this._facetsParams != null){
+					try{
+						this._facets = new Facets(this._facetsParams);
+					}catch (RuntimeException e){
+						throw new MalformedResponseException("facets", e);
+					}
+					this._facetsParams = null;
+				}
+				facets = this._facets;
+			}
+		}
+		return facets;
 	}
 
 	/**
 	 * @return Stats. Refer {@link Stats}
+	 * @throws MalformedResponseException
 	 */
 	public Stats getStats(){
-		return this._stats;
+		Stats stats = this._stats;
+		if(stats == null){
+			synchronized (this) {
+				if(this._stats == null && this._statsParams != null){
+					try{
+						this._stats = new Stats(this._statsParams);
+					}catch (RuntimeException e){
+						throw new MalformedResponseException("stats", e);
+					}
+					this._statsParams = null;
+				}
+				stats = this._stats;
+			}
+		}
+		return stats;
 	}
 
 	/**
-	 * @return List of spell corrections in the order of relevance
+	 * @return Read only list of spell corrections in the order of relevance
+	 * @throws MalformedResponseException
 	 */
 	public List<String> getSpellCorrections(){
-		return this._spellCorrections;
+		List<String> spellCorrections = this._spellCorrections;
+		if(spellCorrections == null){
+			synchronized (this) {
+				if(this._spellCorrections == null && this._didYouMeanParams != null){
+					List<String> suggestions = new ArrayList<String>();
+					try{
+						for(Map<String, Object> suggestion : this._didYouMeanParams){
+							suggestions.add((String) suggestion.get("suggestion"));
+						}
+					}catch (RuntimeException e){
+						throw new MalformedResponseException("didYouMean", e);
+					}
+					this._spellCorrections = Collections.unmodifiableList(suggestions);
+					this._didYouMeanParams = null;
+				}
+				spellCorrections = this._spellCorrections;
+			}
+		}
+		return spellCorrections;
 	}
 
 	/**
 	 * @return Bucketed Response. Refer {@link BucketResults}
+	 * @throws MalformedResponseException
 	 */
 	public BucketResults getBuckets(){
-		return this._buckets;
+		BucketResults buckets = this._buckets;
+		if(buckets == null){
+			synchronized (this) {
+				if(this._buckets == null && this._bucketsParams != null){
+					try{
+						this._buckets = new BucketResults(this._bucketsParams);
+					}catch (RuntimeException e){
+						throw new MalformedResponseException("buckets", e);
+					}
+					this._bucketsParams = null;
+				}
+				buckets = this._buckets;
+			}
+		}
+		return buckets;
 	}
 }
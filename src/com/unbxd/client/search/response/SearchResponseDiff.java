@@ -0,0 +1,185 @@
+package com.unbxd.client.search.response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference between two consecutive responses of the same search, typically before and after a filter was toggled.
+ *
+ * Neither response is changed, both may be cached and shared. {@link #share()} builds a copy of the newer response
+ * which shares whatever didn't change with the older one, so views bound to it can be kept as they are.
+ */
+public class SearchResponseDiff {
+
+	private SearchResponse _current;
+	private SearchResult[] _sharedResults;
+	private Map<String, Facet> _sharedFacets;
+	private Stats _sharedStats;
+
+	private SearchResultsDiff _resultsDiff;
+	private List<SearchResult> _addedResults;
+	private List<SearchResult> _removedResults;
+	private List<String> _changedFacets;
+	private List<String> _addedFacets;
+	private List<String> _removedFacets;
+	private boolean _statsChanged;
+	private boolean _totalResultsCountChanged;
+
+	private SearchResponseDiff(){
+		this._addedResults = new ArrayList<SearchResult>();
+		this._removedResults = new ArrayList<SearchResult>();
+		this._changedFacets = new ArrayList<String>();
+		this._addedFacets = new ArrayList<String>();
+		this._removedFacets = new ArrayList<String>();
+		this._sharedFacets = new HashMap<String, Facet>();
+	}
+
+	/**
+	 * Computes the difference between two responses
+	 * @param previous Older response, null if there is none
+	 * @param current Newer response
+	 * @return {@link SearchResponseDiff}
+	 */
+	public static SearchResponseDiff compute(SearchResponse previous, SearchResponse current){
+		SearchResponseDiff diff = new SearchResponseDiff();
+		diff._current = current;
+
+		diff._totalResultsCountChanged = previous == null || previous.getTotalResultsCount() != current.getTotalResultsCount();
+		diff.diffResults(previous != null ? previous.getResults() : null, current.getResults());
+		diff.diffFacets(previous != null ? previous.getFacets() : null, current.getFacets());
+
+		Stats previousStats = previous != null ? previous.getStats() : null;
+		if(previousStats != null && previousStats.hasSameValues(current.getStats())){
+			diff._sharedStats = previousStats;
+		}else{
+			diff._statsChanged = previousStats != null || current.getStats() != null;
+		}
+
+		return diff;
+	}
+
+	private void diffResults(SearchResults previous, SearchResults current){
+		this._resultsDiff = SearchResultsDiff.compute(previous, current);
+
+		for(int i : _resultsDiff.getRemovedPositions()){
+			this._removedResults.add(previous.getAt(i));
+		}
+
+		if(current == null)
+			return;
+
+		for(int j : _resultsDiff.getInsertedPositions()){
+			this._addedResults.add(current.getAt(j));
+		}
+
+		List<SearchResult> results = current.getResults();
+		this._sharedResults = new SearchResult[results.size()];
+		for(int j = 0; j < results.size(); j++){
+			int i = _resultsDiff.getPreviousPosition(j);
+			if(i != -1 && previous.getAt(i).hasSameAttributes(results.get(j)))
+				this._sharedResults[j] = previous.getAt(i);
+		}
+	}
+
+	private void diffFacets(Facets previous, Facets current){
+		if(current != null){
+			for(Facet facet : current.getFacets()){
+				Facet old = previous != null ? previous.getFacet(facet.getName()) : null;
+				if(old == null)
+					this._addedFacets.add(facet.getName());
+				else if(old.hasSameEntries(facet))
+					this._sharedFacets.put(facet.getName(), old);
+				else
+					this._changedFacets.add(facet.getName());
+			}
+		}
+
+		if(previous != null){
+			for(Facet facet : previous.getFacets()){
+				if(current == null || current.getFacet(facet.getName()) == null)
+					this._removedFacets.add(facet.getName());
+			}
+		}
+	}
+
+	/**
+	 * @return Copy of the newer response in which unchanged facets, stats and products are the instances of the
+	 * older response
+	 */
+	public SearchResponse share(){
+		SearchResults results = _current.getResults();
+		Facets facets = _current.getFacets();
+		Stats stats = _current.getStats();
+		return new SearchResponse(_current,
+				results != null ? new SearchResults(results, _sharedResults) : null,
+				facets != null ? new Facets(facets, _sharedFacets) : null,
+				_sharedStats != null ? _sharedStats : stats);
+	}
+
+	/**
+	 * @return Position level difference between the products of both responses, for list adapters
+	 */
+	public SearchResultsDiff getResultsDiff(){
+		return this._resultsDiff;
+	}
+
+	/**
+	 * @return Products in the newer response which weren't in the older one
+	 */
+	public List<SearchResult> getAddedResults(){
+		return Collections.unmodifiableList(this._addedResults);
+	}
+
+	/**
+	 * @return Products of the older response which aren't in the newer one
+	 */
+	public List<SearchResult> getRemovedResults(){
+		return Collections.unmodifiableList(this._removedResults);
+	}
+
+	/**
+	 * @return Names of facets present in both responses whose entries changed
+	 */
+	public List<String> getChangedFacets(){
+		return Collections.unmodifiableList(this._changedFacets);
+	}
+
+	/**
+	 * @return Names of facets only present in the newer response
+	 */
+	public List<String> getAddedFacets(){
+		return Collections.unmodifiableList(this._addedFacets);
+	}
+
+	/**
+	 * @return Names of facets only present in the older response
+	 */
+	public List<String> getRemovedFacets(){
+		return Collections.unmodifiableList(this._removedFacets);
+	}
+
+	/**
+	 * @return true if the stats changed
+	 */
+	public boolean isStatsChanged(){
+		return this._statsChanged;
+	}
+
+	/**
+	 * @return true if the total number of results changed
+	 */
+	public boolean isTotalResultsCountChanged(){
+		return this._totalResultsCountChanged;
+	}
+
+	/**
+	 * @return true if nothing changed
+	 */
+	public boolean isEmpty(){
+		return _resultsDiff.isEmpty() && _addedResults.isEmpty() && _removedResults.isEmpty() && _changedFacets.isEmpty()
+				&& _addedFacets.isEmpty() && _removedFacets.isEmpty() && !_statsChanged && !_totalResultsCountChanged;
+	}
+}
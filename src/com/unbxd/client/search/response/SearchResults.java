@@ -1,8 +1,11 @@
 package com.unbxd.client.search.response;
 
-import java.util.ArrayList;
+import com.unbxd.client.search.exceptions.MalformedResponseException;
+
+import java.util.AbstractList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Created with IntelliJ IDEA.
@@ -10,19 +13,62 @@ import java.util.Map;
  * Date: 08/07/14
  * Time: 11:00 AM
  * To change this template use File | Settings | File Templates.
+ *
+ * Results are wrapped on first access, so pages of which only the first rows are shown don't pay for the others.
+ * A product which can't be read throws a {@link MalformedResponseException} when it's accessed.
  */
 public class SearchResults {
 
 	private int _resultsCount;
+	private List<Map<String, Object>> _products;
+	private AtomicReferenceArray<SearchResult> _wrappers;
 	private List<SearchResult> _results;
 
 	protected SearchResults(List<Map<String, Object>> products){
 		this._resultsCount = products.size();
+		this._products = products;
+		this._wrappers = new AtomicReferenceArray<SearchResult>(products.size());
+
+		this._results = new AbstractList<SearchResult>() {
+			@Override
+			public SearchResult get(int index) {
+				if(index < 0 || index >= _resultsCount)
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _resultsCount);
+				return wrap(index);
+			}
+
+			@Override
+			public int size() {
+				return _resultsCount;
+			}
+		};
+	}
+
+	/**
+	 * Copy of results with some of them replaced by equivalent ones, refer {@link SearchResponseDiff#share()}
+	 * @param results
+	 * @param shared Result to put in place of the i-th one, null to keep it
+	 */
+	protected SearchResults(SearchResults results, SearchResult[] shared){
+		this(results._products);
+		for(int i = 0; i < shared.length; i++){
+			if(shared[i] != null)
+				this._wrappers.set(i, shared[i]);
+		}
+	}
 
-		this._results = new ArrayList<SearchResult>();
-		for(Map<String, Object> product : products){
-			this._results.add(new SearchResult(product));
+	private SearchResult wrap(int i){
+		SearchResult result = this._wrappers.get(i);
+		if(result == null){
+			try{
+				// Concurrent readers of a shared response agree on the first wrapper
+				this._wrappers.compareAndSet(i, null, new SearchResult(this._products.get(i)));
+			}catch (ClassCastException e){
+				throw new MalformedResponseException("products", e);
+			}
+			result = this._wrappers.get(i);
 		}
+		return result;
 	}
 
 	/**
@@ -36,11 +82,11 @@ public class SearchResults {
 		if(i >= _resultsCount)
 			return null;
 
-		return this._results.get(i);
+		return this.wrap(i);
 	}
 
 	/**
-	 * @return List of products. Refer {@link SearchResult}
+	 * @return Read only list of products. Refer {@link SearchResult}
 	 */
 	public List<SearchResult> getResults(){
 		return _results;
@@ -0,0 +1,199 @@
+package com.unbxd.client.search.response;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference between two lists of products, keyed by {@link SearchResult#getUniqueId()}.
+ *
+ * Meant for list adapters after a re-sort or a refresh: only rows which were inserted, removed, moved or whose
+ * attributes changed need to be updated. Removed positions refer to the previous list, all other positions to the
+ * current one. Moves are kept to the minimum, the products whose relative order didn't change stay in place.
+ */
+public class SearchResultsDiff {
+
+	/**
+	 * Product moved from a position of the previous list to a position of the current list
+	 */
+	public static class Move {
+		private final int _fromPosition;
+		private final int _toPosition;
+
+		private Move(int fromPosition, int toPosition){
+			this._fromPosition = fromPosition;
+			this._toPosition = toPosition;
+		}
+
+		/**
+		 * @return Position in the previous list
+		 */
+		public int getFromPosition(){
+			return _fromPosition;
+		}
+
+		/**
+		 * @return Position in the current list
+		 */
+		public int getToPosition(){
+			return _toPosition;
+		}
+	}
+
+	private final int[] _previousPositions;
+	private final int[] _currentPositions;
+	private final List<Integer> _insertedPositions;
+	private final List<Integer> _removedPositions;
+	private final List<Integer> _changedPositions;
+	private final List<Move> _moves;
+
+	private SearchResultsDiff(List<SearchResult> previous, List<SearchResult> current){
+		this._previousPositions = new int[current.size()];
+		this._currentPositions = new int[previous.size()];
+		this._insertedPositions = new ArrayList<Integer>();
+		this._removedPositions = new ArrayList<Integer>();
+		this._changedPositions = new ArrayList<Integer>();
+		this._moves = new ArrayList<Move>();
+
+		Arrays.fill(_previousPositions, -1);
+		Arrays.fill(_currentPositions, -1);
+
+		Map<String, Integer> previousIndex = new HashMap<String, Integer>(previous.size() * 2);
+		for(int i = previous.size() - 1; i >= 0; i--){
+			previousIndex.put(previous.get(i).getUniqueId(), i);
+		}
+
+		// Matched previous positions, in the order of the current list
+		int[] matched = new int[current.size()];
+		int matchedCount = 0;
+
+		for(int j = 0; j < current.size(); j++){
+			SearchResult result = current.get(j);
+			Integer i = previousIndex.get(result.getUniqueId());
+
+			// A repeated id only matches once
+			if(i == null || _currentPositions[i] != -1){
+				_insertedPositions.add(j);
+				continue;
+			}
+
+			_previousPositions[j] = i;
+			_currentPositions[i] = j;
+			matched[matchedCount++] = i;
+
+			if(!previous.get(i).hasSameAttributes(result))
+				_changedPositions.add(j);
+		}
+
+		for(int i = 0; i < previous.size(); i++){
+			if(_currentPositions[i] == -1)
+				_removedPositions.add(i);
+		}
+
+		boolean[] stays = longestIncreasing(matched, matchedCount, previous.size());
+		for(int j = 0; j < current.size(); j++){
+			int i = _previousPositions[j];
+			if(i != -1 && !stays[i])
+				_moves.add(new Move(i, j));
+		}
+	}
+
+	/**
+	 * Finds the longest increasing subsequence of previous positions, those are the products which don't need to move.
+	 * @return Flags indexed by previous position
+	 */
+	private static boolean[] longestIncreasing(int[] sequence, int length, int previousSize){
+		int[] tails = new int[length];
+		int[] predecessors = new int[length];
+		int size = 0;
+
+		for(int k = 0; k < length; k++){
+			int low = 0;
+			int high = size;
+			while(low < high){
+				int mid = (low + high) >>> 1;
+				if(sequence[tails[mid]] < sequence[k])
+					low = mid + 1;
+				else
+					high = mid;
+			}
+
+			predecessors[k] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = k;
+			if(low == size)
+				size++;
+		}
+
+		boolean[] stays = new boolean[previousSize];
+		for(int k = size > 0 ? tails[size - 1] : -1; k != -1; k = predecessors[k]){
+			stays[sequence[k]] = true;
+		}
+		return stays;
+	}
+
+	/**
+	 * Computes the difference between two lists of products.
+	 * @param previous Older results, null if there are none
+	 * @param current Newer results, null if there are none
+	 * @return {@link SearchResultsDiff}
+	 */
+	public static SearchResultsDiff compute(SearchResults previous, SearchResults current){
+		List<SearchResult> empty = Collections.emptyList();
+		return new SearchResultsDiff(previous != null ? previous.getResults() : empty,
+				current != null ? current.getResults() : empty);
+	}
+
+	/**
+	 * @return Positions in the current list of products which weren't in the previous list, ascending
+	 */
+	public List<Integer> getInsertedPositions(){
+		return Collections.unmodifiableList(_insertedPositions);
+	}
+
+	/**
+	 * @return Positions in the previous list of products which aren't in the current list, ascending
+	 */
+	public List<Integer> getRemovedPositions(){
+		return Collections.unmodifiableList(_removedPositions);
+	}
+
+	/**
+	 * @return Positions in the current list of products present in both lists whose attributes changed, ascending
+	 */
+	public List<Integer> getChangedPositions(){
+		return Collections.unmodifiableList(_changedPositions);
+	}
+
+	/**
+	 * @return List of {@link Move}, by ascending position in the current list
+	 */
+	public List<Move> getMoves(){
+		return Collections.unmodifiableList(_moves);
+	}
+
+	/**
+	 * @param currentPosition
+	 * @return Position of the same product in the previous list, -1 if it was inserted
+	 */
+	public int getPreviousPosition(int currentPosition){
+		return _previousPositions[currentPosition];
+	}
+
+	/**
+	 * @param previousPosition
+	 * @return Position of the same product in the current list, -1 if it was removed
+	 */
+	public int getCurrentPosition(int previousPosition){
+		return _currentPositions[previousPosition];
+	}
+
+	/**
+	 * @return true if both lists hold the same products, in the same order, with the same attributes
+	 */
+	public boolean isEmpty(){
+		return _insertedPositions.isEmpty() && _removedPositions.isEmpty() && _changedPositions.isEmpty() && _moves.isEmpty();
+	}
+}
@@ -25,6 +25,15 @@ public class Stat {
 		this._mean = ((Number)params.get("mean")).doubleValue();
 	}
 
+	/**
+	 * @param other
+	 * @return true if the other stat has the same values
+	 */
+	protected boolean hasSameValues(Stat other){
+		return other != null && _min == other._min && _max == other._max && _count == other._count
+				&& _sum == other._sum && _mean == other._mean;
+	}
+
 	public int getCount(){
 		return this._count;
 	}
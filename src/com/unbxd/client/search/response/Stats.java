@@ -1,5 +1,6 @@
 package com.unbxd.client.search.response;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,10 +24,25 @@ public class Stats {
 	}
 
 	/**
-	 * @return Map of Field --> {@link Stat}
+	 * @param other
+	 * @return true if the other stats have the same fields with the same values
+	 */
+	protected boolean hasSameValues(Stats other){
+		if(other == null || other._stats.size() != this._stats.size())
+			return false;
+
+		for(Map.Entry<String, Stat> entry : this._stats.entrySet()){
+			if(!entry.getValue().hasSameValues(other._stats.get(entry.getKey())))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return Read only map of Field --> {@link Stat}
 	 */
 	public Map<String, Stat> getStats(){
-		return this._stats;
+		return Collections.unmodifiableMap(this._stats);
 	}
 
 	/**
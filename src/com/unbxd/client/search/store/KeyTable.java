@@ -0,0 +1,48 @@
+package com.unbxd.client.search.store;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Attribute names of the products in a {@link ResultStore}, stored once and referred to by id in the slabs.
+ * Names are only added, by the writer, and read by any thread.
+ */
+class KeyTable {
+
+	private final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private volatile String[] names = new String[64];
+	private int size;
+
+	/**
+	 * @param name
+	 * @return Id of the name, added if it wasn't known. Called by the writer only.
+	 */
+	int id(String name){
+		Integer id = ids.get(name);
+		if(id != null)
+			return id;
+
+		String[] current = this.names;
+		if(size == current.length)
+			current = Arrays.copyOf(current, size * 2);
+		current[size] = name;
+		// Published before the id, so a reader finding the id finds the name
+		this.names = current;
+		this.ids.put(name, size);
+		return size++;
+	}
+
+	/**
+	 * @param name
+	 * @return Id of the name, -1 if no product has it
+	 */
+	int find(String name){
+		Integer id = ids.get(name);
+		return id != null ? id : -1;
+	}
+
+	String name(int id){
+		return this.names[id];
+	}
+}
@@ -0,0 +1,309 @@
+package com.unbxd.client.search.store;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary layout of the products in a {@link ResultStore}.
+ *
+ * A product is the number of its attributes followed by each attribute as the varint id of its name in the
+ * store's {@link KeyTable} and a tagged value. Integers are zig-zag varints, doubles 8 bytes, strings the varint
+ * length of their UTF-8 bytes followed by the bytes, lists and maps their varint size followed by their elements.
+ *
+ * Values are read with absolute gets, so readers share a slab without touching its position.
+ */
+class ProductCodec {
+
+	static final int NULL = 0;
+	static final int FALSE = 1;
+	static final int TRUE = 2;
+	static final int INT = 3;
+	static final int LONG = 4;
+	static final int DOUBLE = 5;
+	static final int STRING = 6;
+	static final int BIG_INTEGER = 7;
+	static final int BIG_DECIMAL = 8;
+	static final int LIST = 9;
+	static final int MAP = 10;
+
+	private ProductCodec() {
+	}
+
+	/**
+	 * Growable buffer products are encoded to before they are copied to a slab
+	 */
+	static class Output {
+
+		private byte[] bytes = new byte[1024];
+		private int length;
+
+		int length(){
+			return this.length;
+		}
+
+		void reset(){
+			this.length = 0;
+		}
+
+		void copyTo(ByteBuffer slab, int offset){
+			ByteBuffer target = slab.duplicate();
+			target.position(offset);
+			target.put(bytes, 0, length);
+		}
+
+		void writeByte(int b){
+			this.ensure(1);
+			this.bytes[length++] = (byte) b;
+		}
+
+		void writeInt(int n){
+			this.ensure(4);
+			this.putInt(length, n);
+			this.length += 4;
+		}
+
+		/**
+		 * Overwrites 4 bytes written earlier
+		 */
+		void putInt(int at, int n){
+			this.bytes[at] = (byte) (n >>> 24);
+			this.bytes[at + 1] = (byte) (n >>> 16);
+			this.bytes[at + 2] = (byte) (n >>> 8);
+			this.bytes[at + 3] = (byte) n;
+		}
+
+		void writeVarLong(long n){
+			this.ensure(10);
+			while((n & ~0x7FL) != 0){
+				this.bytes[length++] = (byte) ((n & 0x7F) | 0x80);
+				n >>>= 7;
+			}
+			this.bytes[length++] = (byte) n;
+		}
+
+		void writeLong(long n){
+			this.ensure(8);
+			for(int shift = 56; shift >= 0; shift -= 8){
+				this.bytes[length++] = (byte) (n >>> shift);
+			}
+		}
+
+		void writeString(String s){
+			byte[] utf8 = utf8(s);
+			this.writeVarLong(utf8.length);
+			this.ensure(utf8.length);
+			System.arraycopy(utf8, 0, bytes, length, utf8.length);
+			this.length += utf8.length;
+		}
+
+		private void ensure(int n){
+			if(length + n > bytes.length)
+				this.bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + n));
+		}
+	}
+
+	static void writeProduct(Output out, Map<String, Object> product, KeyTable keys){
+		out.writeVarLong(product.size());
+		for(Map.Entry<String, Object> attribute : product.entrySet()){
+			out.writeVarLong(keys.id(attribute.getKey()));
+			writeValue(out, attribute.getValue(), keys);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void writeValue(Output out, Object value, KeyTable keys){
+		if(value == null){
+			out.writeByte(NULL);
+		}else if(value instanceof String){
+			out.writeByte(STRING);
+			out.writeString((String) value);
+		}else if(value instanceof Integer || value instanceof Short || value instanceof Byte){
+			out.writeByte(INT);
+			out.writeVarLong(zigZag(((Number) value).intValue()));
+		}else if(value instanceof Long){
+			out.writeByte(LONG);
+			out.writeVarLong(zigZag((Long) value));
+		}else if(value instanceof Double || value instanceof Float){
+			out.writeByte(DOUBLE);
+			out.writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+		}else if(value instanceof Boolean){
+			out.writeByte((Boolean) value ? TRUE : FALSE);
+		}else if(value instanceof BigInteger){
+			out.writeByte(BIG_INTEGER);
+			out.writeString(value.toString());
+		}else if(value instanceof BigDecimal){
+			out.writeByte(BIG_DECIMAL);
+			out.writeString(value.toString());
+		}else if(value instanceof List){
+			List<Object> list = (List<Object>) value;
+			out.writeByte(LIST);
+			out.writeVarLong(list.size());
+			for(Object element : list){
+				writeValue(out, element, keys);
+			}
+		}else if(value instanceof Map){
+			out.writeByte(MAP);
+			writeProduct(out, (Map<String, Object>) value, keys);
+		}else{
+			throw new IllegalArgumentException("Can't store " + value.getClass().getName() + " values");
+		}
+	}
+
+	/**
+	 * Cursor over a product in a slab
+	 */
+	static class Input {
+
+		private final ByteBuffer slab;
+		private int position;
+
+		Input(ByteBuffer slab, int position) {
+			this.slab = slab;
+			this.position = position;
+		}
+
+		int readVarInt(){
+			return (int) this.readVarLong();
+		}
+
+		long readVarLong(){
+			long n = 0;
+			int shift = 0;
+			byte b;
+			do{
+				b = slab.get(position++);
+				n |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			}while((b & 0x80) != 0);
+			return n;
+		}
+
+		String readString(){
+			int length = this.readVarInt();
+			char[] chars = new char[length];
+			int n = 0;
+			int end = position + length;
+			while(position < end){
+				int b = slab.get(position++) & 0xFF;
+				if(b < 0x80){
+					chars[n++] = (char) b;
+				}else if(b < 0xE0){
+					chars[n++] = (char) (((b & 0x1F) << 6) | (slab.get(position++) & 0x3F));
+				}else if(b < 0xF0){
+					chars[n++] = (char) (((b & 0x0F) << 12) | ((slab.get(position++) & 0x3F) << 6) | (slab.get(position++) & 0x3F));
+				}else{
+					int codePoint = ((b & 0x07) << 18) | ((slab.get(position++) & 0x3F) << 12)
+							| ((slab.get(position++) & 0x3F) << 6) | (slab.get(position++) & 0x3F);
+					n += Character.toChars(codePoint, chars, n);
+				}
+			}
+			return new String(chars, 0, n);
+		}
+
+		Object readValue(KeyTable keys){
+			int tag = slab.get(position++);
+			switch(tag){
+				case NULL:
+					return null;
+				case FALSE:
+					return Boolean.FALSE;
+				case TRUE:
+					return Boolean.TRUE;
+				case INT:
+					return (int) unZigZag(this.readVarLong());
+				case LONG:
+					return unZigZag(this.readVarLong());
+				case DOUBLE:
+					long bits = 0;
+					for(int i = 0; i < 8; i++){
+						bits = (bits << 8) | (slab.get(position++) & 0xFF);
+					}
+					return Double.longBitsToDouble(bits);
+				case STRING:
+					return this.readString();
+				case BIG_INTEGER:
+					return new BigInteger(this.readString());
+				case BIG_DECIMAL:
+					return new BigDecimal(this.readString());
+				case LIST:
+					int size = this.readVarInt();
+					List<Object> list = new ArrayList<Object>(size);
+					for(int i = 0; i < size; i++){
+						list.add(this.readValue(keys));
+					}
+					return list;
+				case MAP:
+					return this.readMap(keys);
+				default:
+					throw new IllegalStateException("Corrupted product, unknown tag " + tag);
+			}
+		}
+
+		Map<String, Object> readMap(KeyTable keys){
+			int size = this.readVarInt();
+			Map<String, Object> map = new LinkedHashMap<String, Object>(size * 4 / 3 + 1);
+			for(int i = 0; i < size; i++){
+				String key = keys.name(this.readVarInt());
+				map.put(key, this.readValue(keys));
+			}
+			return map;
+		}
+
+		void skipValue(){
+			int tag = slab.get(position++);
+			switch(tag){
+				case INT:
+				case LONG:
+					this.readVarLong();
+					break;
+				case DOUBLE:
+					this.position += 8;
+					break;
+				case STRING:
+				case BIG_INTEGER:
+				case BIG_DECIMAL:
+					int length = this.readVarInt();
+					this.position += length;
+					break;
+				case LIST:
+					int size = this.readVarInt();
+					for(int i = 0; i < size; i++){
+						this.skipValue();
+					}
+					break;
+				case MAP:
+					int entries = this.readVarInt();
+					for(int i = 0; i < entries; i++){
+						this.readVarLong();
+						this.skipValue();
+					}
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	private static byte[] utf8(String s){
+		try{
+			return s.getBytes("UTF-8");
+		}catch (UnsupportedEncodingException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static long zigZag(long n){
+		return (n << 1) ^ (n >> 63);
+	}
+
+	private static long unZigZag(long n){
+		return (n >>> 1) ^ -(n & 1);
+	}
+}
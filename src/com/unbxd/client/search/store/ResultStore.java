@@ -0,0 +1,196 @@
+package com.unbxd.client.search.store;
+
+import com.unbxd.client.search.response.SearchResult;
+import com.unbxd.client.search.response.SearchResults;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap store of result pages, for apps caching many pages of products. Products are serialized to direct
+ * {@link ByteBuffer} slabs in a compact binary layout (refer {@link ProductCodec}) instead of being held as maps,
+ * so thousands of cached pages add almost nothing for the garbage collector to trace.
+ *
+ * A page is written at the end of the current slab: the number of products, the offset of each product, then the
+ * products. Pages don't span slabs, a page larger than the slab size gets a slab of its own. Once the slabs exceed
+ * the store's limit the oldest slab is dropped with all its pages, so a replaced or removed page holds its space
+ * until its slab goes.
+ *
+ * Pages are read as {@link StoredResults}, lists of {@link SearchResult}s which decode attributes on access.
+ */
+public class ResultStore {
+
+	private final int slabSize;
+	private final long maxBytes;
+
+	private final KeyTable keys = new KeyTable();
+	private final Map<String, Page> pages = new HashMap<String, Page>();
+	private final LinkedList<Slab> slabs = new LinkedList<Slab>();
+	private final ProductCodec.Output out = new ProductCodec.Output();
+	private long allocatedBytes;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param slabSize Bytes allocated at once, e.g. 1 MB
+	 * @param maxBytes Bytes held at most, the oldest pages are evicted beyond
+	 */
+	public ResultStore(int slabSize, long maxBytes) {
+		if(slabSize <= 0 || maxBytes < slabSize)
+			throw new IllegalArgumentException("Slab size must be positive and at most maxBytes");
+		this.slabSize = slabSize;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param key Key of the page, e.g. the request url
+	 * @param results Results to store
+	 * @return Stored page
+	 */
+	public StoredResults put(String key, SearchResults results){
+		return this.put(key, results.getResults());
+	}
+
+	/**
+	 * @param key Key of the page, e.g. the request url
+	 * @param results Results to store
+	 * @return Stored page
+	 * @throws IllegalArgumentException If an attribute value isn't one of the types responses are decoded to
+	 */
+	public synchronized StoredResults put(String key, List<SearchResult> results){
+		out.reset();
+		out.writeInt(results.size());
+		for(int i = 0; i < results.size(); i++){
+			out.writeInt(0);
+		}
+		for(int i = 0; i < results.size(); i++){
+			out.putInt(4 + 4 * i, out.length());
+			ProductCodec.writeProduct(out, results.get(i).getAttributes(), keys);
+		}
+
+		int length = out.length();
+		Slab slab = slabs.isEmpty() ? null : slabs.getLast();
+		if(slab == null || slab.buffer.capacity() - slab.used < length)
+			slab = this.allocate(Math.max(slabSize, length));
+
+		int offset = slab.used;
+		out.copyTo(slab.buffer, offset);
+		slab.used += length;
+		slab.keys.add(key);
+
+		Page page = new Page(slab, new StoredResults(slab.buffer, offset, length, keys));
+		this.pages.put(key, page);
+		return page.results;
+	}
+
+	private Slab allocate(int capacity){
+		Slab slab = new Slab(ByteBuffer.allocateDirect(capacity));
+		this.slabs.addLast(slab);
+		this.allocatedBytes += capacity;
+
+		while(allocatedBytes > maxBytes && slabs.size() > 1){
+			Slab oldest = slabs.removeFirst();
+			this.allocatedBytes -= oldest.buffer.capacity();
+			for(String key : oldest.keys){
+				Page page = pages.get(key);
+				// Pages put again since live in a later slab
+				if(page != null && page.slab == oldest){
+					this.pages.remove(key);
+					this.evictions.incrementAndGet();
+				}
+			}
+		}
+		return slab;
+	}
+
+	/**
+	 * @param key
+	 * @return Stored page, null if there is none
+	 */
+	public synchronized StoredResults get(String key){
+		Page page = pages.get(key);
+		if(page == null){
+			this.misses.incrementAndGet();
+			return null;
+		}
+		this.hits.incrementAndGet();
+		return page.results;
+	}
+
+	public synchronized void remove(String key){
+		this.pages.remove(key);
+	}
+
+	/**
+	 * Drops all pages and slabs
+	 */
+	public synchronized void clear(){
+		this.pages.clear();
+		this.slabs.clear();
+		this.allocatedBytes = 0;
+	}
+
+	/**
+	 * @return Number of stored pages
+	 */
+	public synchronized int size(){
+		return this.pages.size();
+	}
+
+	/**
+	 * @return Off-heap bytes held by the slabs
+	 */
+	public synchronized long getAllocatedBytes(){
+		return this.allocatedBytes;
+	}
+
+	/**
+	 * @return Lookups which found a page
+	 */
+	public long getHits(){
+		return this.hits.get();
+	}
+
+	/**
+	 * @return Lookups which didn't
+	 */
+	public long getMisses(){
+		return this.misses.get();
+	}
+
+	/**
+	 * @return Pages dropped with their slab
+	 */
+	public long getEvictions(){
+		return this.evictions.get();
+	}
+
+	private static class Slab {
+
+		private final ByteBuffer buffer;
+		private final List<String> keys = new ArrayList<String>();
+		private int used;
+
+		private Slab(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+	}
+
+	private static class Page {
+
+		private final Slab slab;
+		private final StoredResults results;
+
+		private Page(Slab slab, StoredResults results) {
+			this.slab = slab;
+			this.results = results;
+		}
+	}
+}
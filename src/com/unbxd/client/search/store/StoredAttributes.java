@@ -0,0 +1,67 @@
+package com.unbxd.client.search.store;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read only attributes of a product in a slab. {@link #get(Object)} decodes the one attribute asked for, iterating
+ * decodes the whole product once.
+ */
+class StoredAttributes extends AbstractMap<String, Object> {
+
+	private final ByteBuffer slab;
+	private final int offset;
+	private final KeyTable keys;
+
+	private Map<String, Object> decoded;
+
+	StoredAttributes(ByteBuffer slab, int offset, KeyTable keys) {
+		this.slab = slab;
+		this.offset = offset;
+		this.keys = keys;
+	}
+
+	@Override
+	public Object get(Object key) {
+		ProductCodec.Input in = this.find(key);
+		return in != null ? in.readValue(keys) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.find(key) != null;
+	}
+
+	/**
+	 * @return Input on the value of the attribute, null if the product doesn't have it
+	 */
+	private ProductCodec.Input find(Object key){
+		int id = key instanceof String ? keys.find((String) key) : -1;
+		if(id == -1)
+			return null;
+
+		ProductCodec.Input in = new ProductCodec.Input(slab, offset);
+		int size = in.readVarInt();
+		for(int i = 0; i < size; i++){
+			if(in.readVarInt() == id)
+				return in;
+			in.skipValue();
+		}
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return new ProductCodec.Input(slab, offset).readVarInt();
+	}
+
+	@Override
+	public synchronized Set<Entry<String, Object>> entrySet() {
+		if(decoded == null)
+			this.decoded = Collections.unmodifiableMap(new ProductCodec.Input(slab, offset).readMap(keys));
+		return this.decoded.entrySet();
+	}
+}
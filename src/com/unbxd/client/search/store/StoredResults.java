@@ -0,0 +1,50 @@
+package com.unbxd.client.search.store;
+
+import com.unbxd.client.search.response.SearchResult;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+
+/**
+ * Read only page of results in a {@link ResultStore}. Results are views on the slab holding the page and decode
+ * attributes as they are read, so a page costs a few objects on the heap whatever its size.
+ *
+ * A page stays readable after it is evicted from the store, its slab is released once no page refers to it.
+ */
+public class StoredResults extends AbstractList<SearchResult> {
+
+	private final ByteBuffer slab;
+	private final int offset;
+	private final int length;
+	private final int count;
+	private final KeyTable keys;
+
+	StoredResults(ByteBuffer slab, int offset, int length, KeyTable keys) {
+		this.slab = slab;
+		this.offset = offset;
+		this.length = length;
+		this.count = slab.getInt(offset);
+		this.keys = keys;
+	}
+
+	@Override
+	public SearchResult get(int index) {
+		if(index < 0 || index >= count)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+
+		int product = offset + slab.getInt(offset + 4 + 4 * index);
+		return new StoredSearchResult(new StoredAttributes(slab, product, keys));
+	}
+
+	@Override
+	public int size() {
+		return this.count;
+	}
+
+	/**
+	 * @return Bytes the page takes in its slab
+	 */
+	public int getSizeInBytes(){
+		return this.length;
+	}
+}
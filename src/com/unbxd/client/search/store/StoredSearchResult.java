@@ -0,0 +1,13 @@
+package com.unbxd.client.search.store;
+
+import com.unbxd.client.search.response.SearchResult;
+
+/**
+ * {@link SearchResult} reading its attributes from a slab of a {@link ResultStore}
+ */
+class StoredSearchResult extends SearchResult {
+
+	StoredSearchResult(StoredAttributes attributes) {
+		super(attributes);
+	}
+}
@@ -10,6 +10,8 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.log4j.Logger;
 
 import com.unbxd.client.RequestManager;
+import com.unbxd.client.http.Endpoint;
+import com.unbxd.client.http.HttpTransport;
 import com.unbxd.client.unbxdanalytics.exception.*;
 
 import android.content.Context;
@@ -59,8 +61,14 @@ public class UnbxdAnalytics{
 
 	private SharedPreferences sharedPreferences;
 	private Context applicationContext;
+	private HttpTransport transport;
 
 	protected UnbxdAnalytics(Context context,String siteKey,String apikey,boolean secure){
+		this(context, siteKey, apikey, secure, HttpTransport.getInstance());
+	}
+
+	protected UnbxdAnalytics(Context context,String siteKey,String apikey,boolean secure,HttpTransport transport){
+		this.transport = transport;
 
 		this.siteKey = siteKey;
 		this.apiKey = apikey;
@@ -165,7 +173,7 @@ public class UnbxdAnalytics{
 			};
 
 
-			RequestManager.getResponse("tracker", url, this.applicationContext, asyncResponse);
+			RequestManager.getResponse(this.transport, Endpoint.TRACKER, url, null, this.applicationContext, asyncResponse);
 
 
 		}catch(UnbxdAnalyticsException e){
@@ -198,10 +206,15 @@ public class UnbxdAnalytics{
 	}
 
 	private String getTrackerUrl(String action,String beacon) throws UnbxdAnalyticsException {
+		return getTrackerUrl(this.secure, this.siteKey, this.apiKey, this.sharedPreferences.getString(userIdentifier, ""), action, beacon);
+	}
+
+	/**
+	 * Builds the tracker URL of an event, without depending on the state of the device.
+	 */
+	static String getTrackerUrl(boolean secure,String siteKey,String apiKey,String uid_val,String action,String beacon) throws UnbxdAnalyticsException {
 		try{
-			String uid_val = this.sharedPreferences.getString(userIdentifier, "");
-			String key = this.apiKey;
-			String url = (this.secure ? "https://" : "http://") + "tracker.unbxdapi.com/v2/1p.jpg";
+			String url = (secure ? "https://" : "http://") + "tracker.unbxdapi.com/v2/1p.jpg";
 			StringBuffer sb = new StringBuffer();
 			long now = Calendar.getInstance().getTimeInMillis();
 			long rand = (new Random()).nextLong();
@@ -209,8 +222,8 @@ public class UnbxdAnalytics{
 			sb.append(url);
 			if(beacon != null)
 				sb.append("?q="+URLEncoder.encode(beacon,__encoding));
-			if(this.apiKey != null)
-				sb.append("&UnbxdKey="+URLEncoder.encode(this.siteKey,__encoding));
+			if(apiKey != null)
+				sb.append("&UnbxdKey="+URLEncoder.encode(siteKey,__encoding));
 			if(action != null)
 				sb.append("&action="+URLEncoder.encode(action,__encoding));
 			if(uid_val != null)
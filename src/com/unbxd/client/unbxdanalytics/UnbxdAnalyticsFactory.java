@@ -5,6 +5,8 @@ package com.unbxd.client.unbxdanalytics;
 
 import android.content.Context;
 
+import com.unbxd.client.http.HttpTransport;
+
 
 /**
  * @author suprit
@@ -17,4 +19,8 @@ public class UnbxdAnalyticsFactory {
 		return new UnbxdAnalytics(context, siteKey, apiKey, secure);
 	}
 
+	public static UnbxdAnalytics getUnbxdAanalytics(Context context, String siteKey, String apiKey, boolean secure, HttpTransport transport){
+		return new UnbxdAnalytics(context, siteKey, apiKey, secure, transport);
+	}
+
 }